@@ -1,18 +1,11 @@
 package com.app.blog;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class BlogApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(BlogApplication.class, args);
 	}
-
-	@Bean
-	ModelMapper modelMapper() {
-		return new ModelMapper();
-	}
 }
\ No newline at end of file
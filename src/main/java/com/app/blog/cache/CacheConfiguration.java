@@ -0,0 +1,67 @@
+package com.app.blog.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.cache.SpringCacheBasedUserCache;
+
+import java.time.Duration;
+
+/**
+ * In-process caches. Every cache is bounded by size and time-to-live and records
+ * its statistics, which are published by Actuator as the cache.gets (hit/miss),
+ * cache.puts and cache.evictions metrics, e.g.
+ * /actuator/metrics/cache.gets?tag=name:posts&tag=result:hit
+ *
+ * The caches are transaction-aware: an eviction within a transaction happens
+ * once it commits, so a concurrent read cannot cache the row being replaced
+ * again before the new one is visible
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+	// ResponsePostDto by post id, see PostServiceImpl.getPostById()
+	public static final String POSTS = "posts";
+
+	// UserDetails by Jwt subject, see CustomUserDetailsService.loadPrincipal()
+	public static final String PRINCIPALS = "principals";
+
+	@Value("${app.cache.posts.maximum-size:10000}")
+	private long postsMaximumSize;
+
+	@Value("${app.cache.posts.time-to-live-seconds:300}")
+	private long postsTimeToLiveSeconds;
+
+	@Value("${app.cache.principals.maximum-size:10000}")
+	private long principalsMaximumSize;
+
+	@Value("${app.cache.principals.time-to-live-seconds:30}")
+	private long principalsTimeToLiveSeconds;
+
+	@Bean
+	CacheManager cacheManager() {
+		CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+		cacheManager.registerCustomCache(POSTS, Caffeine.newBuilder()
+				.maximumSize(postsMaximumSize)
+				.expireAfterWrite(Duration.ofSeconds(postsTimeToLiveSeconds))
+				.recordStats()
+				.build());
+		cacheManager.registerCustomCache(PRINCIPALS, Caffeine.newBuilder()
+				.maximumSize(principalsMaximumSize)
+				.expireAfterWrite(Duration.ofSeconds(principalsTimeToLiveSeconds))
+				.recordStats()
+				.build());
+		return new TransactionAwareCacheManagerProxy(cacheManager);
+	}
+
+	@Bean
+	UserCache userCache(CacheManager cacheManager) {
+		return new SpringCacheBasedUserCache(cacheManager.getCache(PRINCIPALS));
+	}
+}
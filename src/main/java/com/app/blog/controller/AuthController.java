@@ -2,14 +2,20 @@ package com.app.blog.controller;
 
 import com.app.blog.dto.auth.ErrorMessageDto;
 import com.app.blog.dto.auth.LoginDto;
+import com.app.blog.dto.auth.RefreshTokenDto;
 import com.app.blog.dto.auth.SignupCreateDto;
 import com.app.blog.dto.auth.SignupResponseDto;
 import com.app.blog.entity.Role;
 import com.app.blog.entity.User;
+import com.app.blog.exception.BlogApiException;
 import com.app.blog.repository.RoleRepository;
 import com.app.blog.repository.UserRepository;
 import com.app.blog.security.JwtAuthResponseDto;
 import com.app.blog.security.JwtTokenProvider;
+import com.app.blog.security.RefreshTokenService;
+import com.app.blog.security.TokenRevocationList;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +24,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -43,6 +50,12 @@ public class AuthController {
 	@Autowired
 	private JwtTokenProvider jwtTokenProvider;
 
+	@Autowired
+	private TokenRevocationList tokenRevocationList;
+
+	@Autowired
+	private RefreshTokenService refreshTokenService;
+
 	/**
 	 * Creates a new user
 	 * 
@@ -92,7 +105,8 @@ public class AuthController {
 	 * Logins a user
 	 * 
 	 * @param loginDto credentials data
-	 * @return ResponseEntity<JwtAuthResponseDto> object (token) (200 OK)
+	 * @return ResponseEntity<JwtAuthResponseDto> object (access and refresh
+	 *         tokens) (200 OK)
 	 * @exception BlogApiException if a token is invalid
 	 */
 	@PostMapping("/login")
@@ -102,7 +116,73 @@ public class AuthController {
 		SecurityContextHolder.getContext().setAuthentication(authentication);
 
 		String token = jwtTokenProvider.generateToken(authentication);
-		JwtAuthResponseDto jwtAuthResponseDto = new JwtAuthResponseDto(token);
+		String refreshToken = refreshTokenService.issue(authentication.getName());
+		JwtAuthResponseDto jwtAuthResponseDto = new JwtAuthResponseDto(token, refreshToken);
 		return ResponseEntity.ok(jwtAuthResponseDto);
 	}
+
+	/**
+	 * Renews the access token without the credentials. The refresh token is
+	 * rotated: the response carries a new one, and the given one cannot be used
+	 * again
+	 * 
+	 * @param refreshTokenDto the refresh token of the login or the previous
+	 *                        refresh
+	 * @return ResponseEntity<JwtAuthResponseDto> object (access and refresh
+	 *         tokens) (200 OK)
+	 * @exception BlogApiException if the refresh token is invalid, expired,
+	 *                             revoked or reused (401 Unauthorized)
+	 */
+	@PostMapping("/refresh")
+	public ResponseEntity<JwtAuthResponseDto> refresh(@RequestBody RefreshTokenDto refreshTokenDto) {
+		return ResponseEntity.ok(refreshTokenService.refresh(refreshTokenDto.getRefreshToken()));
+	}
+
+	/**
+	 * Logs out a user by revoking the access token of the request until it
+	 * expires, and the family of the refresh token. Either token authenticates
+	 * the logout, so a client whose access token expired logs out with the
+	 * refresh token alone
+	 * 
+	 * @param request         request with the "Authorization: Bearer" token,
+	 *                        optional with a refresh token
+	 * @param refreshTokenDto the refresh token, optional with an access token
+	 * @return ResponseEntity<String> object (200 OK)
+	 * @exception BlogApiException if neither token is given, or if the given
+	 *                             tokens are invalid or already revoked (401
+	 *                             Unauthorized)
+	 */
+	@PostMapping("/logout")
+	public ResponseEntity<String> logout(HttpServletRequest request,
+			@RequestBody(required = false) RefreshTokenDto refreshTokenDto) {
+		String token = jwtTokenProvider.resolveToken(request);
+		String refreshToken = refreshTokenDto != null ? refreshTokenDto.getRefreshToken() : null;
+		boolean hasRefreshToken = StringUtils.hasText(refreshToken);
+		if (token == null && !hasRefreshToken) {
+			throw new BlogApiException("Missing Jwt token", HttpStatus.UNAUTHORIZED);
+		}
+
+		boolean refreshTokenRevoked = hasRefreshToken && refreshTokenService.revoke(refreshToken);
+		if (token == null) {
+			if (!refreshTokenRevoked) {
+				throw new BlogApiException("Invalid refresh token", HttpStatus.UNAUTHORIZED);
+			}
+			return ResponseEntity.ok("Logged out successfully");
+		}
+
+		try {
+			Claims claims = jwtTokenProvider.validateAndGetClaims(token);
+			if (claims.getId() == null || tokenRevocationList.isRevoked(claims.getId())) {
+				throw new BlogApiException("Revoked Jwt token", HttpStatus.UNAUTHORIZED);
+			}
+			tokenRevocationList.revoke(claims.getId(), claims.getExpiration().toInstant());
+		} catch (BlogApiException ex) {
+			// An expired or revoked access token is no use to anybody once its
+			// refresh token is revoked
+			if (!refreshTokenRevoked) {
+				throw ex;
+			}
+		}
+		return ResponseEntity.ok("Logged out successfully");
+	}
 }
@@ -1,17 +1,27 @@
 package com.app.blog.controller;
 
 import com.app.blog.dto.comment.CommentDto;
+import com.app.blog.dto.comment.CommentVersionDto;
 import com.app.blog.dto.comment.CreateCommentDto;
+import com.app.blog.dto.comment.ResponseCommentCursorPagesDto;
+import com.app.blog.dto.comment.ResponseCommentPagesDto;
+import com.app.blog.dto.post.PostVersionDto;
 import com.app.blog.service.CommentService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 import java.sql.SQLException;
-import java.util.List;
+
+class CommentDefaults {
+	public static final String PAGE_NUMBER = "0";
+	public static final String PAGE_SIZE = "20";
+	public static final int MAX_PAGE_SIZE = 100;
+}
 
 @RestController
 @RequestMapping("/api/v1")
@@ -41,17 +51,56 @@ public class CommentController {
 	}
 
 	/**
-	 * Retrieves the comments by post id
+	 * Retrieves the comments by post id, page by page, sorted by the comment id.
+	 * The page size is capped at CommentDefaults.MAX_PAGE_SIZE
 	 *
-	 * @param postId post's id, the comments belong to
-	 * @return List<CommentDto> (200 OK) or an empty list if no comments
+	 * @param postId   post's id, the comments belong to
+	 * @param pageNo   page number, ignored in the cursor mode
+	 * @param pageSize amount of items per page
+	 * @param cursor   switches to keyset pagination: an empty value for the first
+	 *                 page, then the nextCursor of the previous page
+	 * @param request  the request, for its conditional headers
+	 * @return ResponseCommentPagesDto object, or ResponseCommentCursorPagesDto
+	 *         object in the cursor mode (200 OK), with the ETag of the version of
+	 *         the post and of the page parameters, or no body if the comments of
+	 *         the post did not change since (304 Not modified)
 	 * @exception ResourceNotFoundException if no post with given id (404 Not found)
+	 * @exception BlogApiException          if the cursor is invalid or the page
+	 *                                      size is less than one (400 Bad request)
 	 */
 	@PreAuthorize("hasAnyRole('ADMIN', 'USER')")
 	@GetMapping("/posts/{postId}/comments")
-	public ResponseEntity<List<CommentDto>> getCommentsByPostId(@PathVariable("postId") Long postId) {
-		List<CommentDto> commentsDto = commentService.getCommentsByPostId(postId);
-		return ResponseEntity.ok(commentsDto);
+	public ResponseEntity<?> getCommentsByPostId(@PathVariable("postId") Long postId,
+			@RequestParam(value = "pageNo", defaultValue = CommentDefaults.PAGE_NUMBER, required = false) int pageNo,
+			@RequestParam(value = "pageSize", defaultValue = CommentDefaults.PAGE_SIZE, required = false) int pageSize,
+			@RequestParam(value = "cursor", required = false) String cursor, HttpServletRequest request) {
+		pageSize = Math.min(pageSize, CommentDefaults.MAX_PAGE_SIZE);
+
+		// Every comment change increments the version of the post
+		String page = cursor != null ? String.format("c%s-s%d", cursor, pageSize)
+				: String.format("n%d-s%d", pageNo, pageSize);
+		if (ConditionalRequests.isConditional(request)) {
+			PostVersionDto postVersionDto = commentService.getCommentsVersion(postId);
+			String etag = ConditionalRequests.pageEtag("pc", postId, postVersionDto.getVersion(), page);
+			if (ConditionalRequests.isNotModified(request, etag, postVersionDto.getLastModified())) {
+				return ConditionalRequests.notModified(etag, postVersionDto.getLastModified());
+			}
+		}
+
+		if (cursor != null) {
+			ResponseCommentCursorPagesDto commentsDto = commentService.getCommentsByPostIdByCursor(postId, cursor,
+					pageSize);
+			return ConditionalRequests
+					.ok(ConditionalRequests.pageEtag("pc", postId, commentsDto.getPostVersion(), page),
+							commentsDto.getPostLastModified())
+					.body(commentsDto);
+		}
+
+		ResponseCommentPagesDto commentsDto = commentService.getCommentsByPostId(postId, pageNo, pageSize);
+		return ConditionalRequests
+				.ok(ConditionalRequests.pageEtag("pc", postId, commentsDto.getPostVersion(), page),
+						commentsDto.getPostLastModified())
+				.body(commentsDto);
 	}
 
 	/**
@@ -59,7 +108,10 @@ public class CommentController {
 	 *
 	 * @param postId    post's id
 	 * @param commentId comment's id
-	 * @return CommentDto object (200 OK)
+	 * @param request   the request, for its conditional headers
+	 * @return CommentDto object (200 OK) with the ETag of the version of the
+	 *         comment, or no body if the comment did not change since (304 Not
+	 *         modified)
 	 * @exception ResourceNotFoundException    if no post or comment with given id
 	 *                                         (404 Not found)
 	 * @exception PostCommentMismatchException if the post id and the comment id are
@@ -68,9 +120,18 @@ public class CommentController {
 	 */
 	@GetMapping("/posts/{postId}/comments/{commentId}")
 	public ResponseEntity<CommentDto> getCommentById(@PathVariable("postId") Long postId,
-			@PathVariable("commentId") Long commentId) {
+			@PathVariable("commentId") Long commentId, HttpServletRequest request) {
+		if (ConditionalRequests.isConditional(request)) {
+			CommentVersionDto commentVersionDto = commentService.getCommentVersion(postId, commentId);
+			String etag = ConditionalRequests.etag("c", commentId, commentVersionDto.getVersion());
+			if (ConditionalRequests.isNotModified(request, etag, commentVersionDto.getLastModified())) {
+				return ConditionalRequests.notModified(etag, commentVersionDto.getLastModified());
+			}
+		}
+
 		CommentDto commentDto = commentService.getCommentById(postId, commentId);
-		return ResponseEntity.ok(commentDto);
+		return ConditionalRequests.ok(ConditionalRequests.etag("c", commentId, commentDto.getVersion()),
+				commentDto.getLastModified()).body(commentDto);
 	}
 
 	/**
@@ -79,18 +140,28 @@ public class CommentController {
 	 * @param postId     post's id
 	 * @param commentId  comment's id
 	 * @param commentDto data for updates
-	 * @return CommentDto object (200 OK)
-	 * @exception ResourceNotFoundException    if no post or comment with given id
-	 *                                         (404 Not found)
-	 * @exception PostCommentMismatchException if the post id and the comment id are
-	 *                                         valid, but don't match each other
-	 *                                         (400 Bad request)
+	 * @param request    the request, for its If-Match header
+	 * @return CommentDto object (200 OK) with the new ETag
+	 * @exception ResourceNotFoundException          if no post or comment with
+	 *                                               given id (404 Not found)
+	 * @exception PostCommentMismatchException       if the post id and the comment
+	 *                                               id are valid, but don't match
+	 *                                               each other (400 Bad request)
+	 * @exception PreconditionFailedException        if the comment changed since
+	 *                                               the If-Match ETag (412
+	 *                                               Precondition failed)
+	 * @exception OptimisticLockingFailureException if the comment was changed by
+	 *                                               a concurrent update (409
+	 *                                               Conflict)
 	 */
 	@PutMapping("/posts/{postId}/comments/{id}")
 	public ResponseEntity<CommentDto> updateCommentById(@PathVariable("postId") Long postId,
-			@PathVariable("id") Long commentId, @Valid @RequestBody CommentDto commentDto) {
-		CommentDto updatedCommentDto = commentService.updateCommentById(postId, commentId, commentDto);
-		return ResponseEntity.ok(updatedCommentDto);
+			@PathVariable("id") Long commentId, @Valid @RequestBody CommentDto commentDto,
+			HttpServletRequest request) {
+		CommentDto updatedCommentDto = commentService.updateCommentById(postId, commentId, commentDto,
+				ConditionalRequests.ifMatchVersion(request, "c", commentId));
+		return ConditionalRequests.ok(ConditionalRequests.etag("c", commentId, updatedCommentDto.getVersion()),
+				updatedCommentDto.getLastModified()).body(updatedCommentDto);
 	}
 
 	/**
@@ -0,0 +1,126 @@
+package com.app.blog.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Evaluates the If-None-Match and If-Modified-Since headers of a GET against the
+ * version of a resource before the resource is loaded, so an unchanged
+ * resource is answered with 304 Not Modified from a version lookup, and reads
+ * the version an update is based on from If-Match. The ETags are strong and
+ * built from the id and the version, see etag(), and for a page of a
+ * collection also from the page parameters, see pageEtag(). The version is
+ * only looked up for a conditional request, see isConditional(), a full
+ * response takes it from the loaded resource
+ */
+final class ConditionalRequests {
+	private ConditionalRequests() {
+	}
+
+	static String etag(String prefix, long id, long version) {
+		return String.format("\"%s%d-v%d\"", prefix, id, version);
+	}
+
+	/**
+	 * @param page the parameters of the page, the characters not allowed in an
+	 *             ETag are replaced
+	 * @return the ETag of a page of the collection owned by the resource, two
+	 *         pages never share it
+	 */
+	static String pageEtag(String prefix, long id, long version, String page) {
+		String etagPage = page.replaceAll("[^\\x21\\x23-\\x7E]", "_");
+		return String.format("\"%s%d-v%d-%s\"", prefix, id, version, etagPage);
+	}
+
+	/**
+	 * @return true if the request has If-None-Match or If-Modified-Since, so it
+	 *         may be answered with 304 Not Modified
+	 */
+	static boolean isConditional(HttpServletRequest request) {
+		return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+				|| request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+	}
+
+	/**
+	 * @return true if the client has the current representation: one of its
+	 *         If-None-Match ETags matches, or, without If-None-Match, the resource
+	 *         did not change since If-Modified-Since (at a second precision)
+	 */
+	static boolean isNotModified(HttpServletRequest request, String etag, Instant lastModified) {
+		List<String> ifNoneMatch = Collections.list(request.getHeaders(HttpHeaders.IF_NONE_MATCH));
+		if (!ifNoneMatch.isEmpty()) {
+			for (String header : ifNoneMatch) {
+				for (String candidate : header.split(",")) {
+					String trimmed = candidate.trim();
+					if (trimmed.equals("*") || trimmed.equals(etag)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		long ifModifiedSince;
+		try {
+			ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+		} catch (IllegalArgumentException ex) {
+			return false;
+		}
+		return ifModifiedSince >= 0 && lastModified != null
+				&& lastModified.truncatedTo(ChronoUnit.SECONDS).toEpochMilli() <= ifModifiedSince;
+	}
+
+	/**
+	 * @return the version in the If-Match ETag of the resource, null without
+	 *         If-Match or with If-Match: *, or -1 if no ETag of the resource
+	 *         matches, so the version check of the update fails (412)
+	 */
+	static Long ifMatchVersion(HttpServletRequest request, String prefix, long id) {
+		List<String> ifMatch = Collections.list(request.getHeaders(HttpHeaders.IF_MATCH));
+		if (ifMatch.isEmpty()) {
+			return null;
+		}
+
+		String tagPrefix = String.format("\"%s%d-v", prefix, id);
+		for (String header : ifMatch) {
+			for (String candidate : header.split(",")) {
+				String trimmed = candidate.trim();
+				if (trimmed.equals("*")) {
+					return null;
+				}
+				if (trimmed.startsWith(tagPrefix) && trimmed.endsWith("\"")
+						&& trimmed.length() > tagPrefix.length() + 1) {
+					try {
+						return Long.parseLong(trimmed.substring(tagPrefix.length(), trimmed.length() - 1));
+					} catch (NumberFormatException ex) {
+						// Not an ETag of this application, cannot match
+					}
+				}
+			}
+		}
+		return -1L;
+	}
+
+	static <T> ResponseEntity<T> notModified(String etag, Instant lastModified) {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag);
+		if (lastModified != null) {
+			builder.lastModified(lastModified);
+		}
+		return builder.build();
+	}
+
+	static ResponseEntity.BodyBuilder ok(String etag, Instant lastModified) {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok().eTag(etag);
+		if (lastModified != null) {
+			builder.lastModified(lastModified);
+		}
+		return builder;
+	}
+}
@@ -2,30 +2,55 @@ package com.app.blog.controller;
 
 import com.app.blog.dto.post.*;
 import com.app.blog.exception.AlreadyExistsException;
+import com.app.blog.exception.BlogApiException;
+import com.app.blog.exception.PreconditionFailedException;
 import com.app.blog.exception.ResourceNotFoundException;
+import com.app.blog.service.PostImportService;
 import com.app.blog.service.PostService;
+import com.app.blog.views.PostViewCounter;
+import com.app.blog.views.TrendingPosts;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
 
 class PostDefaults {
 	public static final String PAGE_NUMBER = "0";
 	public static final String PAGE_SIZE = "10";
+	public static final int MAX_PAGE_SIZE = 100;
 	public static final String SORT_BY = "id";
 	public static final String SORT_DIR = "asc";
+	public static final String VIEW = "full";
+	public static final String VIEW_SUMMARY = "summary";
+	public static final String SUGGESTION_LIMIT = "10";
+	public static final int MAX_SUGGESTION_LIMIT = 50;
+	public static final String TRENDING_LIMIT = "10";
+	public static final String MERGE_PATCH_JSON = "application/merge-patch+json";
 }
 
 @RestController
 @RequestMapping("/api/v1/posts")
 public class PostController {
 	private PostService postService;
+	private PostImportService postImportService;
+	private PostViewCounter postViewCounter;
+	private TrendingPosts trendingPosts;
 
-	public PostController(PostService postService) {
+	public PostController(PostService postService, PostImportService postImportService,
+			PostViewCounter postViewCounter, TrendingPosts trendingPosts) {
 		this.postService = postService;
+		this.postImportService = postImportService;
+		this.postViewCounter = postViewCounter;
+		this.trendingPosts = trendingPosts;
 	}
 
 	/**
@@ -45,77 +70,300 @@ public class PostController {
 	}
 
 	/**
-	 * Retrieves all the posts
+	 * Creates the posts in bulk, e.g. for content migration
+	 * 
+	 * @param bulkCreatePostsDto data for the new posts, at most 5000
+	 * @return ResponseEntity<ResponseBulkCreatePostsDto> object with CREATED or
+	 *         CONFLICT per post (200 OK)
+	 * @exception BlogApiException if a conflicting post was created concurrently
+	 *                             (409 Conflict)
+	 */
+	@PreAuthorize("hasRole('ADMIN')")
+	@PostMapping("/bulk")
+	public ResponseEntity<ResponseBulkCreatePostsDto> createPosts(
+			@Valid @RequestBody BulkCreatePostsDto bulkCreatePostsDto) {
+		ResponseBulkCreatePostsDto responseBulkCreatePostsDto = postService
+				.createPosts(bulkCreatePostsDto.getPosts());
+		return ResponseEntity.ok(responseBulkCreatePostsDto);
+	}
+
+	/**
+	 * Retrieves all the posts. Offset pagination is used by default; passing the
+	 * cursor parameter (empty for the first page) switches to keyset pagination,
+	 * which skips the count query and keeps deep pages as fast as the first one.
+	 * The summary view returns only the id, title and description of the posts.
+	 * The page size is capped at PostDefaults.MAX_PAGE_SIZE
 	 *
-	 * @param pageNo   the page number
+	 * @param pageNo   the page number (ignored with a cursor)
 	 * @param pageSize the amount of the items per page
 	 * @param sortBy   the field name used to sort by
 	 * @param sortDir  the value for sorting direction: "asc" for ascending and
 	 *                 "desc" for descending
+	 * @param cursor   the nextCursor of the previous page
+	 * @param view     "full" for the posts with the content and the comments,
+	 *                 "summary" for the post summaries
 	 * @return ResponseEntity<ResponsePostPagesDto> object (200 OK), possibly empty
-	 *         list
+	 *         list, ResponseEntity<ResponsePostCursorPagesDto> object (200 OK) if
+	 *         the cursor is given, or their summary counterparts
+	 * @exception BlogApiException if the cursor or the view is invalid (400 Bad
+	 *                             request)
 	 */
 	@PreAuthorize("hasAnyRole('ADMIN', 'USER')")
 	@GetMapping
-	public ResponseEntity<ResponsePostPagesDto> getAllPosts(
+	public ResponseEntity<?> getAllPosts(
 			@RequestParam(value = "pageNo", defaultValue = PostDefaults.PAGE_NUMBER, required = false) int pageNo,
 			@RequestParam(value = "pageSize", defaultValue = PostDefaults.PAGE_SIZE, required = false) int pageSize,
 			@RequestParam(value = "sortBy", defaultValue = PostDefaults.SORT_BY, required = false) String sortBy,
-			@RequestParam(value = "sortDir", defaultValue = PostDefaults.SORT_DIR, required = false) String sortDir) {
+			@RequestParam(value = "sortDir", defaultValue = PostDefaults.SORT_DIR, required = false) String sortDir,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "view", defaultValue = PostDefaults.VIEW, required = false) String view) {
+		pageSize = Math.min(pageSize, PostDefaults.MAX_PAGE_SIZE);
+
+		if (view.equalsIgnoreCase(PostDefaults.VIEW_SUMMARY)) {
+			if (cursor != null) {
+				ResponsePostSummaryCursorPagesDto postsDto = postService.getAllPostSummariesByCursor(cursor, pageSize,
+						sortBy, sortDir);
+				return ResponseEntity.ok(postsDto);
+			}
+
+			ResponsePostSummaryPagesDto postsDto = postService.getAllPostSummaries(pageNo, pageSize, sortBy, sortDir);
+			return ResponseEntity.ok(postsDto);
+		}
+
+		if (!view.equalsIgnoreCase(PostDefaults.VIEW)) {
+			String message = String.format("Unknown view '%s', expected '%s' or '%s'", view, PostDefaults.VIEW,
+					PostDefaults.VIEW_SUMMARY);
+			throw new BlogApiException(message, HttpStatus.BAD_REQUEST);
+		}
+
+		if (cursor != null) {
+			ResponsePostCursorPagesDto postsDto = postService.getAllPostsByCursor(cursor, pageSize, sortBy, sortDir);
+			return ResponseEntity.ok(postsDto);
+		}
+
 		ResponsePostPagesDto postsDto = postService.getAllPosts(pageNo, pageSize, sortBy, sortDir);
 		return ResponseEntity.ok(postsDto);
 	}
 
 	/**
-	 * Retrieves a post by id
+	 * Retrieves the posts with the most recent activity, a comment weighing more
+	 * than a view and older activity less than newer. The answer is precomputed
+	 * every few seconds, see TrendingPosts
 	 *
-	 * @param id post's id
-	 * @return ResponseEntity<ResponsePostDto> object (200 OK)
+	 * @param limit the maximal amount of the posts, at most
+	 *              app.posts.trending.size
+	 * @return ResponseEntity<ResponseTrendingPostsDto> object (200 OK), possibly
+	 *         empty list
+	 * @exception BlogApiException if the limit is invalid (400 Bad request)
+	 */
+	@PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+	@GetMapping("/trending")
+	public ResponseEntity<ResponseTrendingPostsDto> getTrendingPosts(
+			@RequestParam(value = "limit", defaultValue = PostDefaults.TRENDING_LIMIT, required = false) int limit) {
+		ResponseTrendingPostsDto trendingPostsDto = postService.getTrendingPosts(limit);
+		return ResponseEntity.ok(trendingPostsDto);
+	}
+
+	/**
+	 * Suggests the titles starting with the prefix as the user types, ignoring the
+	 * case. Also tells whether the prefix is already taken as a title, which a new
+	 * post would be rejected for
+	 *
+	 * @param prefix the beginning of the title
+	 * @param limit  the maximal amount of the suggestions, at most 50
+	 * @return ResponseEntity<ResponseTitleSuggestionsDto> object (200 OK), possibly
+	 *         empty list
+	 * @exception BlogApiException if the prefix is empty or the limit is invalid
+	 *                             (400 Bad request)
+	 */
+	@PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+	@GetMapping("/titles")
+	public ResponseEntity<ResponseTitleSuggestionsDto> suggestTitles(@RequestParam(value = "prefix") String prefix,
+			@RequestParam(value = "limit", defaultValue = PostDefaults.SUGGESTION_LIMIT, required = false) int limit) {
+		ResponseTitleSuggestionsDto suggestionsDto = postService.suggestTitles(prefix,
+				Math.min(limit, PostDefaults.MAX_SUGGESTION_LIMIT));
+		return ResponseEntity.ok(suggestionsDto);
+	}
+
+	/**
+	 * Searches the title, description and content of the posts. The terms of the
+	 * query are matched case-insensitively and the posts are ranked by relevance,
+	 * a match in the title counts the most. The page size is capped at
+	 * PostDefaults.MAX_PAGE_SIZE
+	 *
+	 * @param query    free text query
+	 * @param pageNo   the page number
+	 * @param pageSize the amount of the items per page
+	 * @return ResponseEntity<ResponsePostSearchPagesDto> object (200 OK), possibly
+	 *         empty list
+	 * @exception BlogApiException if the query is empty, or the page number or the
+	 *                             page size is invalid (400 Bad request)
+	 */
+	@PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+	@GetMapping("/search")
+	public ResponseEntity<ResponsePostSearchPagesDto> searchPosts(@RequestParam(value = "q") String query,
+			@RequestParam(value = "pageNo", defaultValue = PostDefaults.PAGE_NUMBER, required = false) int pageNo,
+			@RequestParam(value = "pageSize", defaultValue = PostDefaults.PAGE_SIZE, required = false) int pageSize) {
+		pageSize = Math.min(pageSize, PostDefaults.MAX_PAGE_SIZE);
+		ResponsePostSearchPagesDto postsDto = postService.searchPosts(query, pageNo, pageSize);
+		return ResponseEntity.ok(postsDto);
+	}
+
+	/**
+	 * Exports all the posts with their comments as newline-delimited JSON, one post
+	 * per line, sorted by id. The response is streamed while the posts are read
+	 * 
+	 * @return ResponseEntity<StreamingResponseBody> (200 OK)
+	 */
+	@PreAuthorize("hasRole('ADMIN')")
+	@GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportPosts() {
+		StreamingResponseBody body = outputStream -> postService.exportPosts(outputStream);
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+	}
+
+	/**
+	 * Imports posts with their comments from newline-delimited JSON, one post per
+	 * line (the export format is accepted). Invalid lines are skipped and reported
+	 * 
+	 * @param inputStream request body
+	 * @return ResponseEntity<ResponseImportPostsDto> object with the counters,
+	 *         throughput and errors by line number (200 OK)
+	 */
+	@PreAuthorize("hasRole('ADMIN')")
+	@PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<ResponseImportPostsDto> importPosts(InputStream inputStream) throws IOException {
+		ResponseImportPostsDto responseImportPostsDto = postImportService.importPosts(inputStream);
+		return ResponseEntity.ok(responseImportPostsDto);
+	}
+
+	/**
+	 * Retrieves a post by id and counts the view. Only a conditional request looks
+	 * up the version of the post, and is answered without loading the post if it
+	 * did not change. The ETag of a full response is built from the version of the
+	 * loaded post, which may come from the posts cache
+	 *
+	 * @param id      post's id
+	 * @param request the request, for its conditional headers
+	 * @return ResponseEntity<ResponsePostDto> object (200 OK) with the ETag of the
+	 *         version of the post, or no body if the post did not change since
+	 *         (304 Not modified)
 	 * @exception ResourceNotFoundException if no post found with given id (404 Not
 	 *                                      found)
 	 */
 	@PreAuthorize("hasAnyRole('ADMIN', 'USER')")
 	@GetMapping("/{id}")
-	public ResponseEntity<ResponsePostDto> getPostById(@PathVariable("id") long id) throws ResourceNotFoundException {
+	public ResponseEntity<ResponsePostDto> getPostById(@PathVariable("id") long id, HttpServletRequest request)
+			throws ResourceNotFoundException {
+		if (ConditionalRequests.isConditional(request)) {
+			PostVersionDto postVersionDto = postService.getPostVersion(id);
+			String etag = ConditionalRequests.etag("p", id, postVersionDto.getVersion());
+			if (ConditionalRequests.isNotModified(request, etag, postVersionDto.getLastModified())) {
+				postViewCounter.record(id);
+				trendingPosts.recordView(id);
+				return ConditionalRequests.notModified(etag, postVersionDto.getLastModified());
+			}
+		}
+
 		ResponsePostDto responsePostDto = postService.getPostById(id);
-		return ResponseEntity.ok(responsePostDto);
+		postViewCounter.record(id);
+		trendingPosts.recordView(id);
+		return ConditionalRequests
+				.ok(ConditionalRequests.etag("p", id, responsePostDto.getVersion()), responsePostDto.getLastModified())
+				.body(responsePostDto);
 	}
 
 	/**
-	 * Updates a post by id
+	 * Updates a post by id. With If-Match, only the post at the version of the
+	 * given ETag is updated
 	 *
 	 * @param id            post's id
 	 * @param updatePostDto data for updates
-	 * @return ResponseEntity<ResponsePostDto> object (200 OK)
-	 * @exception ResourceNotFoundException if no post found with provided id (404
-	 *                                      Not found)
+	 * @param request       the request, for its If-Match header
+	 * @return ResponseEntity<ResponsePostDto> object (200 OK) with the new ETag
+	 * @exception ResourceNotFoundException          if no post found with provided
+	 *                                               id (404 Not found)
+	 * @exception PreconditionFailedException        if the post changed since the
+	 *                                               If-Match ETag (412
+	 *                                               Precondition failed)
+	 * @exception OptimisticLockingFailureException if the post was changed by a
+	 *                                               concurrent update (409
+	 *                                               Conflict)
 	 */
 	@PreAuthorize("hasAnyRole('ADMIN', 'USER')")
 	@PutMapping("/{id}")
 	public ResponseEntity<ResponsePostDto> updatePost(@Valid @RequestBody UpdatePostDto updatePostDto,
-			@PathVariable("id") long id) throws ResourceNotFoundException {
-		ResponsePostDto updatedPostDto = postService.updatePost(updatePostDto, id);
-		return ResponseEntity.ok(updatedPostDto);
+			@PathVariable("id") long id, HttpServletRequest request) throws ResourceNotFoundException {
+		ResponsePostDto updatedPostDto = postService.updatePost(updatePostDto, id,
+				ConditionalRequests.ifMatchVersion(request, "p", id));
+		return ConditionalRequests
+				.ok(ConditionalRequests.etag("p", id, updatedPostDto.getVersion()), updatedPostDto.getLastModified())
+				.body(updatedPostDto);
 	}
 
 	/**
-	 * Partially updates a post by id
+	 * Partially updates one field of a post by id, with the If-Match check of
+	 * updatePost()
 	 *
 	 * @param id           post's id
 	 * @param patchPostDto data for updates (the method name and the new value)
-	 * @return ResponseEntity<ResponsePostDto> object (200 OK)
-	 * @exception NoSuchMethodException     if invalid method name
-	 * @exception ResourceNotFoundException if no post with given id
-	 * @exception AlreadyExistsException    if the post with same title already
-	 *                                      exists
+	 * @param request      the request, for its If-Match header
+	 * @return ResponseEntity<ResponsePostDto> object (200 OK) with the new ETag
+	 * @exception BlogApiException                   if invalid method name or
+	 *                                               value (400 Bad request)
+	 * @exception ResourceNotFoundException          if no post with given id
+	 * @exception AlreadyExistsException             if the post with same title
+	 *                                               already exists
+	 * @exception PreconditionFailedException        if the post changed since the
+	 *                                               If-Match ETag (412
+	 *                                               Precondition failed)
+	 * @exception OptimisticLockingFailureException if the post was changed by a
+	 *                                               concurrent update (409
+	 *                                               Conflict)
 	 */
 	@PreAuthorize("hasAnyRole('ADMIN', 'USER')")
-	@PatchMapping("/{id}")
+	@PatchMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
 	public ResponseEntity<ResponsePostDto> patchPost(@PathVariable("id") long id,
-			@Valid @RequestBody PatchPostDto patchPostDto)
-			throws InvocationTargetException, NoSuchMethodException, IllegalAccessException {
-		ResponsePostDto responsePostDto = postService.partialUpdatePost(id, patchPostDto);
-		return ResponseEntity.ok(responsePostDto);
+			@Valid @RequestBody PatchPostDto patchPostDto, HttpServletRequest request) {
+		ResponsePostDto responsePostDto = postService.partialUpdatePost(id, patchPostDto,
+				ConditionalRequests.ifMatchVersion(request, "p", id));
+		return ConditionalRequests
+				.ok(ConditionalRequests.etag("p", id, responsePostDto.getVersion()), responsePostDto.getLastModified())
+				.body(responsePostDto);
+	}
+
+	/**
+	 * Updates the fields of a post present in a JSON merge patch, e.g.
+	 * {"title": "...", "content": "..."}, in one request, with the If-Match check
+	 * of updatePost()
+	 *
+	 * @param id         post's id
+	 * @param mergePatch the new values of the title, the description or the
+	 *                   content
+	 * @param request    the request, for its If-Match header
+	 * @return ResponseEntity<ResponsePostDto> object (200 OK) with the new ETag
+	 * @exception BlogApiException                   if an unknown field, a null
+	 *                                               or invalid value (400 Bad
+	 *                                               request)
+	 * @exception ResourceNotFoundException          if no post with given id
+	 * @exception AlreadyExistsException             if the post with same title
+	 *                                               already exists
+	 * @exception PreconditionFailedException        if the post changed since the
+	 *                                               If-Match ETag (412
+	 *                                               Precondition failed)
+	 * @exception OptimisticLockingFailureException if the post was changed by a
+	 *                                               concurrent update (409
+	 *                                               Conflict)
+	 */
+	@PreAuthorize("hasAnyRole('ADMIN', 'USER')")
+	@PatchMapping(value = "/{id}", consumes = PostDefaults.MERGE_PATCH_JSON)
+	public ResponseEntity<ResponsePostDto> mergePatchPost(@PathVariable("id") long id,
+			@RequestBody Map<String, Object> mergePatch, HttpServletRequest request) {
+		ResponsePostDto responsePostDto = postService.mergePatchPost(id, mergePatch,
+				ConditionalRequests.ifMatchVersion(request, "p", id));
+		return ConditionalRequests
+				.ok(ConditionalRequests.etag("p", id, responsePostDto.getVersion()), responsePostDto.getLastModified())
+				.body(responsePostDto);
 	}
 
 	/**
@@ -0,0 +1,8 @@
+package com.app.blog.dto.auth;
+
+import lombok.Data;
+
+@Data
+public class RefreshTokenDto {
+    private String refreshToken;
+}
@@ -1,7 +1,10 @@
 package com.app.blog.dto.comment;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
+import java.time.Instant;
+
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
@@ -20,4 +23,11 @@ public class CommentDto {
     @NotEmpty(message = "Body should not be null or empty")
     @Size(min = 10, message = "Comment's body should have at least 10 chars")
     private String body;
+
+    // Sent as the ETag and Last-Modified headers, not in the body
+    @JsonIgnore
+    private long version;
+
+    @JsonIgnore
+    private Instant lastModified;
 }
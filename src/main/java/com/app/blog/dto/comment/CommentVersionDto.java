@@ -0,0 +1,11 @@
+package com.app.blog.dto.comment;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class CommentVersionDto {
+	private long version;
+	private Instant lastModified;
+}
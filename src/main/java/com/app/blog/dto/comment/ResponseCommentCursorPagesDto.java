@@ -0,0 +1,22 @@
+package com.app.blog.dto.comment;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+public class ResponseCommentCursorPagesDto {
+	private int pageSize;
+	private String nextCursor;
+	private boolean last;
+	private List<CommentDto> comments;
+
+	// The version of the post, sent as the ETag and Last-Modified headers
+	@JsonIgnore
+	private long postVersion;
+
+	@JsonIgnore
+	private Instant postLastModified;
+}
@@ -0,0 +1,24 @@
+package com.app.blog.dto.comment;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+public class ResponseCommentPagesDto {
+	private int pageNo;
+	private int pageSize;
+	private long totalElements;
+	private long totalPages;
+	private boolean last;
+	private List<CommentDto> comments;
+
+	// The version of the post, sent as the ETag and Last-Modified headers
+	@JsonIgnore
+	private long postVersion;
+
+	@JsonIgnore
+	private Instant postLastModified;
+}
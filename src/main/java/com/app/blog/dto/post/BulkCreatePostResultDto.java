@@ -0,0 +1,15 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+@Data
+public class BulkCreatePostResultDto {
+	public enum Status {
+		CREATED, CONFLICT
+	}
+
+	private int index;
+	private String title;
+	private Status status;
+	private Long id;
+}
@@ -0,0 +1,15 @@
+package com.app.blog.dto.post;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkCreatePostsDto {
+	@NotEmpty
+	@Size(max = 5000, message = "At most 5000 posts can be created at once")
+	private List<@Valid CreatePostDto> posts;
+}
@@ -0,0 +1,13 @@
+package com.app.blog.dto.post;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportErrorDto {
+	private long line;
+	private String message;
+}
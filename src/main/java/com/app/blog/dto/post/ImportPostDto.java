@@ -0,0 +1,21 @@
+package com.app.blog.dto.post;
+
+import com.app.blog.dto.comment.CreateCommentDto;
+import jakarta.validation.Valid;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A line of the NDJSON import: a new post with its comments. Other fields, e.g.
+ * the ids of the export format, are ignored
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class ImportPostDto extends CreatePostDto {
+	private List<@Valid CreateCommentDto> comments = new ArrayList<>();
+}
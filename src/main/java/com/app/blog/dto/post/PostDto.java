@@ -22,5 +22,9 @@ public class PostDto {
 	@NotEmpty
 	private String content;
 
+	private long commentCount;
+
+	private long viewCount;
+
 	private Set<CommentDto> comments;
 }
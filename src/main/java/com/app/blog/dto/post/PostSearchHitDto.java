@@ -0,0 +1,13 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+@Data
+public class PostSearchHitDto {
+	private long id;
+	private String title;
+	private String description;
+	private long commentCount;
+	private long viewCount;
+	private double score;
+}
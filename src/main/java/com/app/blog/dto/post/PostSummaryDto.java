@@ -0,0 +1,12 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+@Data
+public class PostSummaryDto {
+	private long id;
+	private String title;
+	private String description;
+	private long commentCount;
+	private long viewCount;
+}
@@ -0,0 +1,11 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class PostVersionDto {
+	private long version;
+	private Instant lastModified;
+}
@@ -0,0 +1,12 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ResponseBulkCreatePostsDto {
+	private int created;
+	private int conflicts;
+	private List<BulkCreatePostResultDto> results;
+}
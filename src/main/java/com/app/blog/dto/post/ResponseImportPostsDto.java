@@ -0,0 +1,18 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ResponseImportPostsDto {
+	private long lines;
+	private long importedPosts;
+	private long importedComments;
+	private long failedLines;
+	private long elapsedMillis;
+	private double rowsPerSecond;
+	// The first app.posts.import.max-errors errors only, see failedLines for the total
+	private List<ImportErrorDto> errors = new ArrayList<>();
+}
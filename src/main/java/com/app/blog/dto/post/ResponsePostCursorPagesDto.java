@@ -0,0 +1,13 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ResponsePostCursorPagesDto {
+	private int pageSize;
+	private String nextCursor;
+	private boolean last;
+	private List<PostDto> posts;
+}
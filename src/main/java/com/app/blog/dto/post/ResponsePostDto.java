@@ -1,10 +1,12 @@
 package com.app.blog.dto.post;
 
 import com.app.blog.dto.comment.CommentDto;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.Size;
+import java.time.Instant;
 import java.util.Set;
 
 @Data
@@ -22,5 +24,14 @@ public class ResponsePostDto {
 	@NotEmpty
 	private String content;
 
+	private long commentCount;
+
+	// Sent as the ETag and Last-Modified headers, not in the body
+	@JsonIgnore
+	private long version;
+
+	@JsonIgnore
+	private Instant lastModified;
+
 	private Set<CommentDto> comments;
 }
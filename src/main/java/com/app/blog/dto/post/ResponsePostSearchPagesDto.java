@@ -0,0 +1,16 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ResponsePostSearchPagesDto {
+	private String query;
+	private int pageNo;
+	private int pageSize;
+	private long totalElements;
+	private long totalPages;
+	private boolean last;
+	private List<PostSearchHitDto> posts;
+}
@@ -0,0 +1,13 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ResponsePostSummaryCursorPagesDto {
+	private int pageSize;
+	private String nextCursor;
+	private boolean last;
+	private List<PostSummaryDto> posts;
+}
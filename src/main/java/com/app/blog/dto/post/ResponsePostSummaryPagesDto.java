@@ -0,0 +1,15 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ResponsePostSummaryPagesDto {
+	private int pageNo;
+	private int pageSize;
+	private long totalElements;
+	private long totalPages;
+	private boolean last;
+	private List<PostSummaryDto> posts;
+}
@@ -0,0 +1,13 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ResponseTitleSuggestionsDto {
+	private String prefix;
+	// Whether the prefix is the exact title of a post, so a new post cannot take it
+	private boolean taken;
+	private List<TitleSuggestionDto> suggestions;
+}
@@ -0,0 +1,12 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+public class ResponseTrendingPostsDto {
+	private Instant refreshedAt;
+	private List<TrendingPostDto> posts;
+}
@@ -0,0 +1,9 @@
+package com.app.blog.dto.post;
+
+import lombok.Data;
+
+@Data
+public class TitleSuggestionDto {
+	private long id;
+	private String title;
+}
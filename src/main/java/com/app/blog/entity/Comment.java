@@ -4,7 +4,10 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.ColumnDefault;
+
 import jakarta.persistence.*;
+import java.time.Instant;
 
 @Data
 @AllArgsConstructor
@@ -26,7 +29,22 @@ public class Comment {
 	@Column(name = "body", nullable = false)
 	private String body;
 
+	// Checked and incremented by every update of the comment (optimistic locking)
+	@Version
+	@ColumnDefault("0")
+	@Column(name = "version", nullable = false)
+	private long version;
+
+	@ColumnDefault("CURRENT_TIMESTAMP(6)")
+	@Column(name = "last_modified", nullable = false, insertable = false)
+	private Instant lastModified;
+
 	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "post_id") // FOREIGN KEY(post_id) REFERENCES posts(id)
 	private Post post;
+
+	@PreUpdate
+	void onUpdate() {
+		lastModified = Instant.now();
+	}
 }
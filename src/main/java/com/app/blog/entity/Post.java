@@ -4,8 +4,11 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import jakarta.persistence.*;
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -14,9 +17,15 @@ import java.util.Set;
 @AllArgsConstructor
 @NoArgsConstructor
 
+// An update sets the changed columns only, a patch of the title does not rewrite the content
+@DynamicUpdate
 @Entity
-@Table(name = "posts", uniqueConstraints = { @UniqueConstraint(columnNames = { "title" }) })
+@Table(name = "posts", uniqueConstraints = {
+		@UniqueConstraint(name = Post.TITLE_CONSTRAINT, columnNames = { "title" }) })
 public class Post {
+	// Named, so a violation of it can be told from the other constraints
+	public static final String TITLE_CONSTRAINT = "uk_posts_title";
+
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
@@ -30,6 +39,33 @@ public class Post {
 	@Column(name = "content", nullable = false)
 	private String content;
 
+	// Incremented by every change of the post or of its comments, the ETag of the
+	// post and of its comment pages. An update of the post checks and increments
+	// it (optimistic locking), the comment changes increment it with the atomic
+	// update queries of PostRepository
+	@Version
+	@ColumnDefault("0")
+	@Column(name = "version", nullable = false)
+	private long version;
+
+	@ColumnDefault("CURRENT_TIMESTAMP(6)")
+	@Column(name = "last_modified", nullable = false, insertable = false)
+	private Instant lastModified;
+
+	@ColumnDefault("0")
+	@Column(name = "comment_count", nullable = false, insertable = false, updatable = false)
+	private long commentCount;
+
+	// Maintained by PostViewCounter only, flushed periodically
+	@ColumnDefault("0")
+	@Column(name = "view_count", nullable = false, insertable = false, updatable = false)
+	private long viewCount;
+
 	@OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
 	private Set<Comment> comments = new HashSet<>();
+
+	@PreUpdate
+	void onUpdate() {
+		lastModified = Instant.now();
+	}
 }
@@ -0,0 +1,44 @@
+package com.app.blog.entity;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+
+// A refresh token, stored as its hash, see RefreshTokenService
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+		@Index(name = "idx_refresh_tokens_token_hash", columnList = "token_hash", unique = true),
+		@Index(name = "idx_refresh_tokens_family", columnList = "family"),
+		@Index(name = "idx_refresh_tokens_expires_at", columnList = "expires_at") })
+public class RefreshToken {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(name = "token_hash", length = 64, nullable = false)
+	private String tokenHash;
+
+	// The tokens rotated from the same login
+	@Column(name = "family", length = 36, nullable = false)
+	private String family;
+
+	@Column(name = "username", nullable = false)
+	private String username;
+
+	@Column(name = "expires_at", nullable = false)
+	private Instant expiresAt;
+
+	// Set once the token is exchanged, a second exchange is a reuse
+	@Column(name = "used_at")
+	private Instant usedAt;
+
+	@Column(name = "revoked", nullable = false)
+	private boolean revoked;
+}
@@ -0,0 +1,30 @@
+package com.app.blog.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+
+// A revoked Jwt token, kept until it expires, see TokenRevocationList
+@Entity
+@Table(name = "revoked_tokens", indexes = { @Index(name = "idx_revoked_tokens_revoked_at", columnList = "revoked_at"),
+		@Index(name = "idx_revoked_tokens_expires_at", columnList = "expires_at") })
+public class RevokedToken {
+	@Id
+	@Column(name = "jti", length = 64)
+	private String jti;
+
+	@Column(name = "expires_at", nullable = false)
+	private Instant expiresAt;
+
+	@Column(name = "revoked_at", nullable = false)
+	private Instant revokedAt;
+}
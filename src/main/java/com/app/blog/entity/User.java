@@ -1,12 +1,17 @@
 package com.app.blog.entity;
 
+import com.app.blog.security.PrincipalCacheEvictionListener;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 
 import jakarta.persistence.*;
 import java.util.Set;
 
 @Data
 @Entity
+@EntityListeners(PrincipalCacheEvictionListener.class)
 @Table(name = "users", uniqueConstraints = { @UniqueConstraint(columnNames = { "username" }),
 		@UniqueConstraint(columnNames = { "email" }) })
 public class User {
@@ -18,6 +23,20 @@ public class User {
 	private String email;
 	private String password;
 
+	// Incremented by every change, including a change of the roles only, which
+	// fires PrincipalCacheEvictionListener then
+	@Version
+	@ColumnDefault("0")
+	@Column(name = "version", nullable = false)
+	private long version;
+
+	// The email and username as loaded, the cache keys of the principal before a
+	// change, see PrincipalCacheEvictionListener
+	@Transient
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private String[] loadedPrincipalKeys;
+
 	@ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
 	@JoinTable(name = "user_roles", 
 			joinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"), 
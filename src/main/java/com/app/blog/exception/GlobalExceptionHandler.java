@@ -4,6 +4,7 @@ import com.app.blog.exception.BlogApiException;
 import com.app.blog.exception.ErrorDetailsDto;
 import com.app.blog.exception.PostCommentMismatchException;
 import com.app.blog.exception.ResourceNotFoundException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -40,6 +41,17 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 		return new ResponseEntity<ErrorDetailsDto>(errorDetailsDto, exception.getStatus());
 	}
 
+	// Tells the client when to retry
+	@ExceptionHandler(ServiceUnavailableException.class)
+	public ResponseEntity<ErrorDetailsDto> handleServiceUnavailableException(ServiceUnavailableException exception,
+			WebRequest webRequest) {
+		ErrorDetailsDto errorDetailsDto = new ErrorDetailsDto(new Date(), exception.getMessage(),
+				webRequest.getDescription(false), exception.getStatus(), exception.getStackTrace());
+
+		return ResponseEntity.status(exception.getStatus())
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds())).body(errorDetailsDto);
+	}
+
 	@ExceptionHandler(BlogApiException.class)
 	public ResponseEntity<ErrorDetailsDto> handleBlogApiException(BlogApiException exception, WebRequest webRequest) {
 		ErrorDetailsDto errorDetailsDto = new ErrorDetailsDto(new Date(), exception.getMessage(),
@@ -48,6 +60,17 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 		return new ResponseEntity<ErrorDetailsDto>(errorDetailsDto, exception.getStatus());
 	}
 
+	// A concurrent update changed the version between the read and the write
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<ErrorDetailsDto> handleOptimisticLockingFailureException(
+			OptimisticLockingFailureException exception, WebRequest webRequest) {
+		ErrorDetailsDto errorDetailsDto = new ErrorDetailsDto(new Date(),
+				"The resource has been changed concurrently, retry with its current version",
+				webRequest.getDescription(false), HttpStatus.CONFLICT, exception.getStackTrace());
+
+		return new ResponseEntity<ErrorDetailsDto>(errorDetailsDto, HttpStatus.CONFLICT);
+	}
+
 	@Override
 	protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
 			HttpHeaders headers, HttpStatusCode status, WebRequest request) {
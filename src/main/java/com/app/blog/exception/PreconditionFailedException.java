@@ -0,0 +1,10 @@
+package com.app.blog.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class PreconditionFailedException extends BlogApiException {
+	public PreconditionFailedException(String resourceName, long id, long version) {
+		super(String.format("%s with id=%s has been changed, its current version is %s", resourceName, id, version),
+				HttpStatus.PRECONDITION_FAILED);
+	}
+}
@@ -0,0 +1,16 @@
+package com.app.blog.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class ServiceUnavailableException extends BlogApiException {
+	private final long retryAfterSeconds;
+
+	public ServiceUnavailableException(String message, long retryAfterSeconds) {
+		super(message, HttpStatus.SERVICE_UNAVAILABLE);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
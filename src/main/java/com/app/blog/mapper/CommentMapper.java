@@ -0,0 +1,50 @@
+package com.app.blog.mapper;
+
+import com.app.blog.dto.comment.CommentDto;
+import com.app.blog.dto.comment.CreateCommentDto;
+import com.app.blog.entity.Comment;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Maps the comment entity to the comment DTOs and back with plain accessors,
+ * without reflection
+ */
+@Component
+public class CommentMapper {
+	/**
+	 * Creates a new comment (without the post) from the request data
+	 *
+	 * @param createCommentDto data for a new comment
+	 * @return Comment object
+	 */
+	public Comment toEntity(CreateCommentDto createCommentDto) {
+		Comment comment = new Comment();
+		comment.setName(createCommentDto.getName());
+		comment.setEmail(createCommentDto.getEmail());
+		comment.setBody(createCommentDto.getBody());
+		return comment;
+	}
+
+	public CommentDto toCommentDto(Comment comment) {
+		CommentDto commentDto = new CommentDto();
+		commentDto.setId(comment.getId());
+		commentDto.setName(comment.getName());
+		commentDto.setEmail(comment.getEmail());
+		commentDto.setBody(comment.getBody());
+		commentDto.setVersion(comment.getVersion());
+		commentDto.setLastModified(comment.getLastModified());
+		return commentDto;
+	}
+
+	public Set<CommentDto> toCommentDtos(Collection<Comment> comments) {
+		Set<CommentDto> commentDtos = new HashSet<>(comments.size() * 2);
+		for (Comment comment : comments) {
+			commentDtos.add(toCommentDto(comment));
+		}
+		return commentDtos;
+	}
+}
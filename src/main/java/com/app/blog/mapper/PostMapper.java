@@ -0,0 +1,59 @@
+package com.app.blog.mapper;
+
+import com.app.blog.dto.post.CreatePostDto;
+import com.app.blog.dto.post.PostDto;
+import com.app.blog.dto.post.ResponsePostDto;
+import com.app.blog.entity.Post;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps the post entity to the post DTOs and back with plain accessors, without
+ * reflection. The comments of a post are mapped with CommentMapper.
+ */
+@Component
+public class PostMapper {
+	private CommentMapper commentMapper;
+
+	public PostMapper(CommentMapper commentMapper) {
+		this.commentMapper = commentMapper;
+	}
+
+	/**
+	 * Creates a new post (without the comments) from the request data
+	 *
+	 * @param createPostDto data for a new post
+	 * @return Post object
+	 */
+	public Post toEntity(CreatePostDto createPostDto) {
+		Post post = new Post();
+		post.setTitle(createPostDto.getTitle());
+		post.setDescription(createPostDto.getDescription());
+		post.setContent(createPostDto.getContent());
+		return post;
+	}
+
+	public PostDto toPostDto(Post post) {
+		PostDto postDto = new PostDto();
+		postDto.setId(post.getId());
+		postDto.setTitle(post.getTitle());
+		postDto.setDescription(post.getDescription());
+		postDto.setContent(post.getContent());
+		postDto.setCommentCount(post.getCommentCount());
+		postDto.setViewCount(post.getViewCount());
+		postDto.setComments(commentMapper.toCommentDtos(post.getComments()));
+		return postDto;
+	}
+
+	public ResponsePostDto toResponsePostDto(Post post) {
+		ResponsePostDto responsePostDto = new ResponsePostDto();
+		responsePostDto.setId(post.getId());
+		responsePostDto.setTitle(post.getTitle());
+		responsePostDto.setDescription(post.getDescription());
+		responsePostDto.setContent(post.getContent());
+		responsePostDto.setCommentCount(post.getCommentCount());
+		responsePostDto.setVersion(post.getVersion());
+		responsePostDto.setLastModified(post.getLastModified());
+		responsePostDto.setComments(commentMapper.toCommentDtos(post.getComments()));
+		return responsePostDto;
+	}
+}
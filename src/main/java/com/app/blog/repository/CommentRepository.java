@@ -1,10 +1,42 @@
 package com.app.blog.repository;
 
 import com.app.blog.entity.Comment;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
-public interface CommentRepository extends JpaRepository<Comment, Long> {
+public interface CommentRepository extends JpaRepository<Comment, Long>, CommentRepositoryCustom {
 	List<Comment> findByPostId(long postId);
+
+	// A page of the comments of the post with the version of the post, empty if no such post
+	@Query(value = "select c as comment, p.version as postVersion, p.lastModified as postLastModified "
+			+ "from Comment c join c.post p where p.id = :postId",
+			countQuery = "select count(c) from Comment c where c.post.id = :postId")
+	Page<CommentWithPostVersion> findWithPostVersionByPostId(@Param("postId") long postId, Pageable pageable);
+
+	// Keyset page: the comments of the post after the given id, limited and sorted by the pageable
+	@Query("select c as comment, p.version as postVersion, p.lastModified as postLastModified "
+			+ "from Comment c join c.post p where p.id = :postId and c.id > :lastId")
+	List<CommentWithPostVersion> findWithPostVersionByPostIdAndIdGreaterThan(@Param("postId") long postId,
+			@Param("lastId") long lastId, Pageable pageable);
+
+	// Comment lookup and ownership check in one statement, empty if no such comment on the post
+	Optional<Comment> findByIdAndPostId(long id, long postId);
+
+	@Query("select c.version as version, c.lastModified as lastModified from Comment c "
+			+ "where c.id = :id and c.post.id = :postId")
+	Optional<EntityVersion> findVersionByIdAndPostId(@Param("id") long id, @Param("postId") long postId);
+
+	// Deletes the comment if it belongs to the post, returns the number of deleted comments
+	@Transactional
+	@Modifying
+	@Query("delete from Comment c where c.id = :id and c.post.id = :postId")
+	int deleteByIdAndPostId(@Param("id") long id, @Param("postId") long postId);
 }
@@ -0,0 +1,16 @@
+package com.app.blog.repository;
+
+import com.app.blog.entity.Comment;
+
+import java.util.List;
+
+public interface CommentRepositoryCustom {
+	/**
+	 * Inserts the comments with JDBC batching, bypassing the persistence context.
+	 * Every comment must reference a persisted post. The generated ids are not
+	 * read back
+	 *
+	 * @param comments new comments
+	 */
+	void insertAll(List<Comment> comments);
+}
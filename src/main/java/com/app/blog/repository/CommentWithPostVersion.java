@@ -0,0 +1,17 @@
+package com.app.blog.repository;
+
+import com.app.blog.entity.Comment;
+
+import java.time.Instant;
+
+/**
+ * A comment with the version columns of its post, read in the same row, so a
+ * page of comments carries the ETag of the comments without a post lookup
+ */
+public interface CommentWithPostVersion {
+	Comment getComment();
+
+	long getPostVersion();
+
+	Instant getPostLastModified();
+}
@@ -0,0 +1,13 @@
+package com.app.blog.repository;
+
+import java.time.Instant;
+
+/**
+ * Closed projection of the version columns of Post or Comment, enough to answer
+ * a conditional request without loading the entity
+ */
+public interface EntityVersion {
+	long getVersion();
+
+	Instant getLastModified();
+}
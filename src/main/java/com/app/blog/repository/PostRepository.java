@@ -1,10 +1,66 @@
 package com.app.blog.repository;
 
 import com.app.blog.entity.Post;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface PostRepository extends JpaRepository<Post, Long> {
+public interface PostRepository extends JpaRepository<Post, Long>, PostRepositoryCustom {
     Optional<Post> findByTitle(String title);
+
+    @Query(value = "select p.id from Post p", countQuery = "select count(p) from Post p")
+    Page<Long> findPageOfIds(Pageable pageable);
+
+    Page<PostSummary> findAllProjectedBy(Pageable pageable);
+
+    List<PostSummary> findSummariesByIdIn(Collection<Long> ids);
+
+    // Keyset pages of the posts, used to rebuild the search index
+    List<Post> findFirst1000ByIdGreaterThanOrderById(long id);
+
+    // Loads the posts together with their comments in a single query, see findPageOfIds()
+    @Query("select p from Post p left join fetch p.comments where p.id in :ids")
+    List<Post> findAllWithCommentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select p.version as version, p.lastModified as lastModified from Post p where p.id = :id")
+    Optional<EntityVersion> findVersionById(@Param("id") long id);
+
+    // Increments the version of the post, to be called with every change of its comments
+    @Transactional
+    @Modifying
+    @Query("update Post p set p.version = p.version + 1, p.lastModified = :now where p.id = :id")
+    int touch(@Param("id") long id, @Param("now") Instant now);
+
+    // Adds to the comment counter in the database, without a read-modify-write race, and increments the version
+    @Transactional
+    @Modifying
+    @Query("update Post p set p.commentCount = p.commentCount + :delta, p.version = p.version + 1, "
+            + "p.lastModified = :now where p.id = :id")
+    int addToCommentCount(@Param("id") long id, @Param("delta") long delta, @Param("now") Instant now);
+
+    // Recounts the comments of the given posts
+    @Transactional
+    @Modifying
+    @Query("update Post p set p.commentCount = (select count(c) from Comment c where c.post = p) where p.id in :ids")
+    int recountComments(@Param("ids") Collection<Long> ids);
+
+    // Recounts the comments of the posts in the id range whose counter is wrong, returns the amount of fixed posts
+    @Transactional
+    @Modifying
+    @Query("update Post p set p.commentCount = (select count(c) from Comment c where c.post = p) "
+            + "where p.id between :fromId and :toId "
+            + "and p.commentCount <> (select count(c) from Comment c where c.post = p)")
+    int repairCommentCounts(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Query("select coalesce(max(p.id), 0) from Post p")
+    long findMaxId();
 }
@@ -0,0 +1,88 @@
+package com.app.blog.repository;
+
+import com.app.blog.entity.Post;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import jakarta.persistence.Tuple;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+public interface PostRepositoryCustom {
+	String ID = "id";
+	String SORT_VALUE = "sortValue";
+
+	int IN_LIST_CHUNK_SIZE = 1000;
+
+	// Compares the titles like the unique index on posts.title: the default MySQL
+	// collation ignores the case and the trailing spaces
+	Comparator<String> TITLE_COLLATION = Comparator.comparing(String::stripTrailing, String.CASE_INSENSITIVE_ORDER);
+
+	// Column labels of streamAllWithComments() rows
+	String POST_ID = "post_id";
+	String POST_TITLE = "post_title";
+	String POST_DESCRIPTION = "post_description";
+	String POST_CONTENT = "post_content";
+	String COMMENT_ID = "comment_id";
+	String COMMENT_NAME = "comment_name";
+	String COMMENT_EMAIL = "comment_email";
+	String COMMENT_BODY = "comment_body";
+
+	/**
+	 * Retrieves the keys of the next page of the posts using keyset (seek)
+	 * pagination
+	 *
+	 * @param sortBy    the field name used to sort by
+	 * @param direction sorting direction
+	 * @param lastValue value of the sorting field of the last seen post, or null
+	 *                  for the first page
+	 * @param lastId    id of the last seen post, or null for the first page
+	 * @param limit     maximum amount of the posts to retrieve
+	 * @return List<Tuple> of the post ids (ID) and the values of the sorting field
+	 *         (SORT_VALUE, only if it is not the id), sorted by the given field and
+	 *         then by id
+	 */
+	List<Tuple> findNextPageKeys(String sortBy, Sort.Direction direction, Object lastValue, Long lastId, int limit);
+
+	/**
+	 * Resolves the ids of the posts by their (unique) titles with set-based
+	 * queries, IN lists are bounded by IN_LIST_CHUNK_SIZE titles
+	 *
+	 * @param titles titles to look up
+	 * @return Map<String, Long> of the ids by title, only for the existing posts,
+	 *         ordered by TITLE_COLLATION, so a title is found in it whatever the
+	 *         spelling of the matching row
+	 */
+	Map<String, Long> findIdsByTitles(Collection<String> titles);
+
+	/**
+	 * Inserts the posts (without the comments) with JDBC batching, bypassing the
+	 * persistence context. The generated ids are not read back
+	 *
+	 * @param posts new posts
+	 */
+	void insertAll(List<Post> posts);
+
+	/**
+	 * Streams all the posts joined with their comments from a forward-only,
+	 * read-only JDBC cursor, one row per comment (or per post without comments),
+	 * sorted by the post id and then by the comment id. The title, description
+	 * and content are set on the first row of a post only, null on the next ones.
+	 * Rows are fetched in batches of app.posts.export.fetch-size and never
+	 * collected
+	 *
+	 * @param rowCallbackHandler handler of every row, see the column labels above
+	 */
+	void streamAllWithComments(RowCallbackHandler rowCallbackHandler);
+
+	/**
+	 * Adds the views to the view counters of the posts with JDBC batching, one
+	 * atomic update per post. Joins the current transaction
+	 *
+	 * @param deltasById the views to add by post id
+	 * @return List<Long> of the ids without a post
+	 */
+	List<Long> addToViewCounts(Map<Long, Long> deltasById);
+}
@@ -0,0 +1,18 @@
+package com.app.blog.repository;
+
+/**
+ * Closed projection of Post used by the listing pages: only the id, title,
+ * description and counter columns are selected, neither the content nor the
+ * comments
+ */
+public interface PostSummary {
+	Long getId();
+
+	String getTitle();
+
+	String getDescription();
+
+	long getCommentCount();
+
+	long getViewCount();
+}
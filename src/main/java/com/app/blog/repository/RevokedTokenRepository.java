@@ -0,0 +1,21 @@
+package com.app.blog.repository;
+
+import com.app.blog.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+    // The revocations since the given time which did not expire yet, including those of the other instances
+    List<RevokedToken> findByRevokedAtGreaterThanEqualAndExpiresAtAfter(Instant revokedAt, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,33 @@
+package com.app.blog.repository.impl;
+
+import com.app.blog.entity.Comment;
+import com.app.blog.repository.CommentRepositoryCustom;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+public class CommentRepositoryCustomImpl implements CommentRepositoryCustom {
+	private static final String INSERT_COMMENT = "insert into comments(name, email, body, post_id) values (?, ?, ?, ?)";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Value("${app.posts.bulk.batch-size:500}")
+	private int batchSize;
+
+	/**
+	 * Same as PostRepositoryCustomImpl.insertAll(): plain JDBC batches of
+	 * app.posts.bulk.batch-size statements, joins the current transaction
+	 */
+	@Override
+	public void insertAll(List<Comment> comments) {
+		jdbcTemplate.batchUpdate(INSERT_COMMENT, comments, batchSize, (statement, comment) -> {
+			statement.setString(1, comment.getName());
+			statement.setString(2, comment.getEmail());
+			statement.setString(3, comment.getBody());
+			statement.setLong(4, comment.getPost().getId());
+		});
+	}
+}
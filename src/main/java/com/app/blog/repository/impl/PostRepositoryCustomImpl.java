@@ -0,0 +1,171 @@
+package com.app.blog.repository.impl;
+
+import com.app.blog.entity.Post;
+import com.app.blog.repository.PostRepositoryCustom;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+public class PostRepositoryCustomImpl implements PostRepositoryCustom {
+	private static final String INSERT_POST = "insert into posts(title, description, content) values (?, ?, ?)";
+
+	private static final String ADD_TO_VIEW_COUNT = "update posts set view_count = view_count + ? where id = ?";
+
+	// The post columns are selected on the first row of the post only, the content
+	// is not repeated for every comment
+	private static final String FIRST_ROW_OF_POST = "row_number() over (partition by p.id order by c.id) = 1";
+
+	private static final String SELECT_POSTS_WITH_COMMENTS = "select p.id as " + POST_ID
+			+ ", case when " + FIRST_ROW_OF_POST + " then p.title end as " + POST_TITLE
+			+ ", case when " + FIRST_ROW_OF_POST + " then p.description end as " + POST_DESCRIPTION
+			+ ", case when " + FIRST_ROW_OF_POST + " then p.content end as " + POST_CONTENT
+			+ ", c.id as " + COMMENT_ID + ", c.name as " + COMMENT_NAME + ", c.email as " + COMMENT_EMAIL
+			+ ", c.body as " + COMMENT_BODY
+			+ " from posts p left join comments c on c.post_id = p.id order by p.id, c.id";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Value("${app.posts.bulk.batch-size:500}")
+	private int batchSize;
+
+	@Value("${app.posts.export.fetch-size:500}")
+	private int fetchSize;
+
+	/**
+	 * Seeks past the last seen post instead of skipping pageNo * pageSize rows, so
+	 * the cost of a page does not depend on its depth. No count query is issued.
+	 * Relies on an index over the sorting field (posts.id and posts.title have one)
+	 */
+	@Override
+	public List<Tuple> findNextPageKeys(String sortBy, Sort.Direction direction, Object lastValue, Long lastId,
+			int limit) {
+		CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Tuple> query = builder.createTupleQuery();
+		Root<Post> post = query.from(Post.class);
+		Path<Long> idPath = post.get("id");
+		Path<Object> sortPath = post.get(sortBy);
+		boolean ascending = direction.isAscending();
+		boolean sortById = "id".equals(sortBy);
+		if (sortById) {
+			query.multiselect(idPath.alias(ID));
+		} else {
+			query.multiselect(idPath.alias(ID), sortPath.alias(SORT_VALUE));
+		}
+
+		if (lastId != null) {
+			Predicate afterId = seek(builder, ascending, idPath, lastId);
+			if (sortById) {
+				query.where(afterId);
+			} else {
+				query.where(builder.or(seek(builder, ascending, sortPath, (Comparable<?>) lastValue),
+						builder.and(builder.equal(sortPath, lastValue), afterId)));
+			}
+		}
+
+		if (sortById) {
+			query.orderBy(ascending ? builder.asc(idPath) : builder.desc(idPath));
+		} else {
+			query.orderBy(ascending ? builder.asc(sortPath) : builder.desc(sortPath),
+					ascending ? builder.asc(idPath) : builder.desc(idPath));
+		}
+
+		return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+	}
+
+	@Override
+	public Map<String, Long> findIdsByTitles(Collection<String> titles) {
+		Map<String, Long> idsByTitle = new TreeMap<>(TITLE_COLLATION);
+		Set<String> uniqueTitles = new TreeSet<>(TITLE_COLLATION);
+		uniqueTitles.addAll(titles);
+		List<String> distinctTitles = new ArrayList<>(uniqueTitles);
+		for (int from = 0; from < distinctTitles.size(); from += IN_LIST_CHUNK_SIZE) {
+			List<String> chunk = distinctTitles.subList(from,
+					Math.min(from + IN_LIST_CHUNK_SIZE, distinctTitles.size()));
+			entityManager.createQuery("select p.title, p.id from Post p where p.title in :titles", Object[].class)
+					.setParameter("titles", chunk).getResultList()
+					.forEach(row -> idsByTitle.put((String) row[0], (Long) row[1]));
+		}
+		return idsByTitle;
+	}
+
+	/**
+	 * Hibernate does not batch inserts of entities with IDENTITY ids, so the posts
+	 * are inserted with plain JDBC batches of app.posts.bulk.batch-size statements
+	 * (rewritten into multi-row inserts by MySQL with rewriteBatchedStatements).
+	 * Joins the current transaction
+	 */
+	@Override
+	public void insertAll(List<Post> posts) {
+		jdbcTemplate.batchUpdate(INSERT_POST, posts, batchSize, (statement, post) -> {
+			statement.setString(1, post.getTitle());
+			statement.setString(2, post.getDescription());
+			statement.setString(3, post.getContent());
+		});
+	}
+
+	/**
+	 * MySQL only honors the fetch size with useCursorFetch=true in the URL,
+	 * otherwise the driver reads the whole result set into memory
+	 */
+	@Override
+	public void streamAllWithComments(RowCallbackHandler rowCallbackHandler) {
+		jdbcTemplate.query(connection -> {
+			PreparedStatement statement = connection.prepareStatement(SELECT_POSTS_WITH_COMMENTS,
+					ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(fetchSize);
+			return statement;
+		}, rowCallbackHandler);
+	}
+
+	@Override
+	public List<Long> addToViewCounts(Map<Long, Long> deltasById) {
+		List<Map.Entry<Long, Long>> deltas = new ArrayList<>(deltasById.entrySet());
+		int[][] updated = jdbcTemplate.batchUpdate(ADD_TO_VIEW_COUNT, deltas, batchSize, (statement, delta) -> {
+			statement.setLong(1, delta.getValue());
+			statement.setLong(2, delta.getKey());
+		});
+
+		// Drivers may report Statement.SUCCESS_NO_INFO instead of the row count
+		List<Long> missingIds = new ArrayList<>();
+		int index = 0;
+		for (int[] batch : updated) {
+			for (int rows : batch) {
+				if (rows == 0) {
+					missingIds.add(deltas.get(index).getKey());
+				}
+				index++;
+			}
+		}
+		return missingIds;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Predicate seek(CriteriaBuilder builder, boolean ascending, Expression path, Comparable value) {
+		return ascending ? builder.greaterThan(path, value) : builder.lessThan(path, value);
+	}
+}
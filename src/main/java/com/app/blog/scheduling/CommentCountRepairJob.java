@@ -0,0 +1,59 @@
+package com.app.blog.scheduling;
+
+import com.app.blog.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recounts the comments of the posts whose comment counter drifted, e.g. after
+ * the comments were changed in the database directly. The posts are repaired
+ * by id ranges of app.posts.comment-count.repair-chunk-size, one set-based
+ * statement and one transaction per range, so the rows are never locked for
+ * long. The job also runs at startup: the posts existing before the counter
+ * column was added (ddl-auto=update) start with a zero counter
+ */
+@Component
+public class CommentCountRepairJob {
+	private static final Logger logger = LoggerFactory.getLogger(CommentCountRepairJob.class);
+
+	private PostRepository postRepository;
+
+	@Value("${app.posts.comment-count.repair-chunk-size:10000}")
+	private int chunkSize;
+
+	@Value("${app.posts.comment-count.repair-on-startup:true}")
+	private boolean repairOnStartup;
+
+	public CommentCountRepairJob(PostRepository postRepository) {
+		this.postRepository = postRepository;
+	}
+
+	/**
+	 * @return amount of the posts with a repaired counter
+	 */
+	@Scheduled(cron = "${app.posts.comment-count.repair-cron:0 0 3 * * *}")
+	public int repair() {
+		long maxId = postRepository.findMaxId();
+		int repaired = 0;
+		for (long fromId = 1; fromId <= maxId; fromId += chunkSize) {
+			repaired += postRepository.repairCommentCounts(fromId, fromId + chunkSize - 1);
+		}
+
+		if (repaired > 0) {
+			logger.warn("Repaired the comment counter of {} posts", repaired);
+		}
+		return repaired;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void repairOnStartup() {
+		if (repairOnStartup) {
+			repair();
+		}
+	}
+}
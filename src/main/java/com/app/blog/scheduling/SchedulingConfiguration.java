@@ -0,0 +1,13 @@
+package com.app.blog.scheduling;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Background jobs of the application, run by the scheduler of Spring Boot
+ * (spring.task.scheduling.*)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
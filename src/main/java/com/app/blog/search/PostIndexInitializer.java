@@ -0,0 +1,60 @@
+package com.app.blog.search;
+
+import com.app.blog.entity.Post;
+import com.app.blog.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds the search and the title indexes from the database once the
+ * application is ready. The posts are read in keyset pages of 1000, so the
+ * whole table is never held in memory at once, only the titles and the ids
+ */
+@Component
+public class PostIndexInitializer {
+	private static final Logger logger = LoggerFactory.getLogger(PostIndexInitializer.class);
+
+	private PostRepository postRepository;
+	private PostSearchIndex postSearchIndex;
+	private PostTitleIndex postTitleIndex;
+
+	public PostIndexInitializer(PostRepository postRepository, PostSearchIndex postSearchIndex,
+			PostTitleIndex postTitleIndex) {
+		this.postRepository = postRepository;
+		this.postSearchIndex = postSearchIndex;
+		this.postTitleIndex = postTitleIndex;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		long start = System.currentTimeMillis();
+		postSearchIndex.clear();
+		postTitleIndex.clear();
+
+		// The title index copies its arrays on every change, so it is filled once
+		Map<String, Long> idsByTitle = new HashMap<>();
+		long lastId = 0;
+		List<Post> posts;
+		do {
+			posts = postRepository.findFirst1000ByIdGreaterThanOrderById(lastId);
+			for (Post post : posts) {
+				postSearchIndex.index(post);
+				idsByTitle.put(post.getTitle(), post.getId());
+			}
+			if (!posts.isEmpty()) {
+				lastId = posts.get(posts.size() - 1).getId();
+			}
+		} while (!posts.isEmpty());
+		postTitleIndex.addAll(idsByTitle);
+
+		logger.info("Indexed {} posts for search and {} titles in {} ms", postSearchIndex.size(),
+				postTitleIndex.size(), System.currentTimeMillis() - start);
+	}
+}
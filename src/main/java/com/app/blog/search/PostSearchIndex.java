@@ -0,0 +1,187 @@
+package com.app.blog.search;
+
+import com.app.blog.entity.Post;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over the title, description and content of the
+ * posts, ranked with BM25. A term counts TITLE_WEIGHT times in the title and
+ * DESCRIPTION_WEIGHT times in the description. Only the postings are kept, the
+ * texts stay in the database.
+ *
+ * The index is kept in sync by the post write paths (see PostServiceImpl and
+ * PostImportServiceImpl) and rebuilt from the database at startup (see
+ * PostIndexInitializer). Reads run in parallel, writes are exclusive.
+ */
+@Component
+public class PostSearchIndex {
+	static final int TITLE_WEIGHT = 3;
+	static final int DESCRIPTION_WEIGHT = 2;
+
+	// BM25 term frequency saturation and document length normalization
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// term -> post id -> weighted term frequency
+	private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+
+	// post id -> the indexed document, needed to remove its postings
+	private final Map<Long, Document> documents = new HashMap<>();
+
+	private long totalLength;
+
+	public void index(Post post) {
+		index(post.getId(), post.getTitle(), post.getDescription(), post.getContent());
+	}
+
+	/**
+	 * Adds a post to the index, or replaces it if it is already indexed
+	 */
+	public void index(long id, String title, String description, String content) {
+		Map<String, Integer> frequencies = new HashMap<>();
+		addTerms(frequencies, title, TITLE_WEIGHT);
+		addTerms(frequencies, description, DESCRIPTION_WEIGHT);
+		addTerms(frequencies, content, 1);
+		int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+
+		lock.writeLock().lock();
+		try {
+			removeDocument(id);
+			frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, key -> new HashMap<>())
+					.put(id, frequency));
+			documents.put(id, new Document(length, frequencies.keySet().toArray(new String[0])));
+			totalLength += length;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(long id) {
+		lock.writeLock().lock();
+		try {
+			removeDocument(id);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			postings.clear();
+			documents.clear();
+			totalLength = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the posts containing any of the query terms, ranked by BM25. Only the
+	 * best (pageNo + 1) * pageSize hits are kept while ranking
+	 *
+	 * @param query    free text query
+	 * @param pageNo   page number
+	 * @param pageSize amount of hits per page
+	 * @return SearchResult object with the hits of the page and the total amount
+	 *         of the matching posts
+	 */
+	public SearchResult search(String query, int pageNo, int pageSize) {
+		Set<String> terms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+		Map<Long, Double> scores = new HashMap<>();
+
+		lock.readLock().lock();
+		try {
+			int documentCount = documents.size();
+			double averageLength = documentCount == 0 ? 0 : (double) totalLength / documentCount;
+			for (String term : terms) {
+				Map<Long, Integer> termPostings = postings.get(term);
+				if (termPostings == null) {
+					continue;
+				}
+
+				double idf = Math.log(1 + (documentCount - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+				termPostings.forEach((id, frequency) -> {
+					double lengthNorm = 1 - B + B * documents.get(id).length / averageLength;
+					double score = idf * frequency * (K1 + 1) / (frequency + K1 * lengthNorm);
+					scores.merge(id, score, Double::sum);
+				});
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		long limit = (long) (pageNo + 1) * pageSize;
+		Comparator<SearchHit> ranking = Comparator.comparingDouble(SearchHit::getScore)
+				.thenComparing(Comparator.comparingLong(SearchHit::getId).reversed());
+		PriorityQueue<SearchHit> best = new PriorityQueue<>(ranking);
+		scores.forEach((id, score) -> {
+			best.add(new SearchHit(id, score));
+			if (best.size() > limit) {
+				best.poll();
+			}
+		});
+
+		List<SearchHit> hits = new ArrayList<>(best);
+		hits.sort(ranking.reversed());
+		int from = (int) Math.min((long) pageNo * pageSize, hits.size());
+		List<SearchHit> page = from < hits.size() ? hits.subList(from, hits.size()) : Collections.emptyList();
+
+		return new SearchResult(new ArrayList<>(page), scores.size());
+	}
+
+	private void addTerms(Map<String, Integer> frequencies, String text, int weight) {
+		for (String term : Tokenizer.tokenize(text)) {
+			frequencies.merge(term, weight, Integer::sum);
+		}
+	}
+
+	private void removeDocument(long id) {
+		Document document = documents.remove(id);
+		if (document == null) {
+			return;
+		}
+
+		for (String term : document.terms) {
+			Map<Long, Integer> termPostings = postings.get(term);
+			termPostings.remove(id);
+			if (termPostings.isEmpty()) {
+				postings.remove(term);
+			}
+		}
+		totalLength -= document.length;
+	}
+
+	private static class Document {
+		private final int length;
+		private final String[] terms;
+
+		private Document(int length, String[] terms) {
+			this.length = length;
+			this.terms = terms;
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.app.blog.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory index of the post titles for the autocomplete and the duplicate
+ * title check. The titles are kept in sorted arrays and looked up by binary
+ * search, the keys being the lower-cased titles, so a prefix matches
+ * case-insensitively while the title check stays exact, as the unique
+ * constraint of the posts table.
+ *
+ * The arrays are copied on every change and published at once, so the lookups
+ * never lock and always see a consistent snapshot. Changes are serialized. This
+ * suits titles, which are read on every keystroke but rarely written; bulk
+ * changes go through addAll() and cost a single copy.
+ */
+@Component
+public class PostTitleIndex {
+	private volatile Snapshot snapshot = new Snapshot(new String[0], new String[0], new long[0]);
+
+	public static String key(String title) {
+		return title.toLowerCase(Locale.ROOT);
+	}
+
+	public boolean contains(String title) {
+		Snapshot current = snapshot;
+		return current.indexOf(key(title), title) >= 0;
+	}
+
+	public int size() {
+		return snapshot.titles.length;
+	}
+
+	/**
+	 * Finds the titles starting with the prefix, ignoring the case
+	 *
+	 * @param prefix the beginning of the title
+	 * @param limit  maximal amount of the suggestions
+	 * @return List<TitleSuggestion> sorted by the title, at most limit long
+	 */
+	public List<TitleSuggestion> suggest(String prefix, int limit) {
+		Snapshot current = snapshot;
+		String prefixKey = key(prefix);
+		List<TitleSuggestion> suggestions = new ArrayList<>(Math.min(limit, 16));
+		for (int i = current.lowerBound(prefixKey, ""); i < current.keys.length && suggestions.size() < limit
+				&& current.keys[i].startsWith(prefixKey); i++) {
+			suggestions.add(new TitleSuggestion(current.ids[i], current.titles[i]));
+		}
+		return suggestions;
+	}
+
+	public synchronized void add(long id, String title) {
+		addAll(Map.of(title, id));
+	}
+
+	/**
+	 * Adds the titles with one copy of the arrays, the new titles are sorted and
+	 * merged into the current ones
+	 *
+	 * @param idsByTitle posts' ids by title
+	 */
+	public synchronized void addAll(Map<String, Long> idsByTitle) {
+		if (idsByTitle.isEmpty()) {
+			return;
+		}
+
+		Snapshot current = snapshot;
+		List<Map.Entry<String, Long>> added = new ArrayList<>(idsByTitle.entrySet());
+		added.removeIf(entry -> current.indexOf(key(entry.getKey()), entry.getKey()) >= 0);
+		added.sort(Comparator.comparing((Map.Entry<String, Long> entry) -> key(entry.getKey()))
+				.thenComparing(Map.Entry::getKey));
+
+		int size = current.titles.length + added.size();
+		String[] keys = new String[size];
+		String[] titles = new String[size];
+		long[] ids = new long[size];
+		int i = 0;
+		int j = 0;
+		for (int k = 0; k < size; k++) {
+			boolean takeCurrent = j == added.size() || i < current.titles.length && compare(current.keys[i],
+					current.titles[i], key(added.get(j).getKey()), added.get(j).getKey()) < 0;
+			if (takeCurrent) {
+				keys[k] = current.keys[i];
+				titles[k] = current.titles[i];
+				ids[k] = current.ids[i];
+				i++;
+			} else {
+				titles[k] = added.get(j).getKey();
+				keys[k] = key(titles[k]);
+				ids[k] = added.get(j).getValue();
+				j++;
+			}
+		}
+
+		snapshot = new Snapshot(keys, titles, ids);
+	}
+
+	public synchronized void remove(String title) {
+		Snapshot current = snapshot;
+		int index = current.indexOf(key(title), title);
+		if (index < 0) {
+			return;
+		}
+
+		int size = current.titles.length - 1;
+		String[] keys = new String[size];
+		String[] titles = new String[size];
+		long[] ids = new long[size];
+		System.arraycopy(current.keys, 0, keys, 0, index);
+		System.arraycopy(current.keys, index + 1, keys, index, size - index);
+		System.arraycopy(current.titles, 0, titles, 0, index);
+		System.arraycopy(current.titles, index + 1, titles, index, size - index);
+		System.arraycopy(current.ids, 0, ids, 0, index);
+		System.arraycopy(current.ids, index + 1, ids, index, size - index);
+
+		snapshot = new Snapshot(keys, titles, ids);
+	}
+
+	public synchronized void rename(long id, String oldTitle, String newTitle) {
+		remove(oldTitle);
+		add(id, newTitle);
+	}
+
+	public synchronized void clear() {
+		snapshot = new Snapshot(new String[0], new String[0], new long[0]);
+	}
+
+	private static int compare(String key, String title, String otherKey, String otherTitle) {
+		int byKey = key.compareTo(otherKey);
+		return byKey != 0 ? byKey : title.compareTo(otherTitle);
+	}
+
+	private static class Snapshot {
+		// Sorted by the key, then by the title
+		private final String[] keys;
+		private final String[] titles;
+		private final long[] ids;
+
+		private Snapshot(String[] keys, String[] titles, long[] ids) {
+			this.keys = keys;
+			this.titles = titles;
+			this.ids = ids;
+		}
+
+		// The position of the first entry not less than the given one
+		private int lowerBound(String key, String title) {
+			int low = 0;
+			int high = keys.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (compare(keys[middle], titles[middle], key, title) < 0) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		private int indexOf(String key, String title) {
+			int index = lowerBound(key, title);
+			return index < titles.length && titles[index].equals(title) ? index : -1;
+		}
+	}
+}
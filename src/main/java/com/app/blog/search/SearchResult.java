@@ -0,0 +1,14 @@
+package com.app.blog.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class SearchResult {
+	// Hits of the requested page, best first
+	private List<SearchHit> hits;
+	private long totalHits;
+}
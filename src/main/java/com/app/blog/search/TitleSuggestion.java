@@ -0,0 +1,11 @@
+package com.app.blog.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class TitleSuggestion {
+	private long id;
+	private String title;
+}
@@ -0,0 +1,33 @@
+package com.app.blog.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lower-cased terms at every character that is neither a letter
+ * nor a digit, so "Spring-Boot's" gives "spring", "boot" and "s"
+ */
+public final class Tokenizer {
+	private Tokenizer() {
+	}
+
+	public static List<String> tokenize(String text) {
+		List<String> terms = new ArrayList<>();
+		if (text == null) {
+			return terms;
+		}
+
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean termChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (termChar && start < 0) {
+				start = i;
+			} else if (!termChar && start >= 0) {
+				terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return terms;
+	}
+}
@@ -0,0 +1,69 @@
+package com.app.blog.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter of strings: mightContain() never misses an added
+ * string and answers true for a string never added with about the configured
+ * false positive rate, as long as no more than the expected amount of strings
+ * is added. Strings cannot be removed, the filter is rebuilt instead
+ */
+class BloomFilter {
+	private final AtomicLongArray words;
+	private final long bitCount;
+	private final int hashCount;
+
+	BloomFilter(int expectedInsertions, double falsePositiveRate) {
+		int insertions = Math.max(1, expectedInsertions);
+		double ln2 = Math.log(2);
+		long bits = (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+		int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+		this.words = new AtomicLongArray(wordCount);
+		this.bitCount = wordCount * 64L;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitCount / insertions * ln2));
+	}
+
+	void add(String value) {
+		long hash1 = hash(value);
+		long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+			long mask = 1L << bit;
+			int word = (int) (bit >>> 6);
+			if ((words.get(word) & mask) == 0) {
+				words.getAndAccumulate(word, mask, (current, added) -> current | added);
+			}
+		}
+	}
+
+	boolean mightContain(String value) {
+		long hash1 = hash(value);
+		long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L) | 1;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+			if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// 64-bit FNV-1a of the chars, spread by the MurmurHash3 finalizer
+	private static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return mix(hash);
+	}
+
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,122 @@
+package com.app.blog.security;
+
+import com.app.blog.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the hashing and the verification of the passwords (BCrypt, deliberately
+ * slow) on a small pool with a bounded queue instead of on the request thread.
+ * At most threads + queueCapacity requests wait for a hash, the next ones are
+ * rejected at once with 503, so a login storm uses a bounded amount of CPU and
+ * of servlet threads and the reads keep being served.
+ *
+ * The pool is published as the executor metrics of Micrometer with the name
+ * passwordHashing: executor (hash latency), executor.idle (queue wait),
+ * executor.queued (queue depth) and executor.active
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+	public static final String EXECUTOR_NAME = "passwordHashing";
+
+	private final PasswordEncoder delegate;
+	private final ThreadPoolExecutor threadPoolExecutor;
+	private final ExecutorService executor;
+	private final long timeoutMillis;
+	private final Counter rejected;
+
+	/**
+	 * @param delegate      the encoder doing the work, e.g. BCryptPasswordEncoder
+	 * @param threads       the threads hashing concurrently
+	 * @param queueCapacity the hashes waiting for a thread at most
+	 * @param timeoutMillis how long a request waits for its hash at most
+	 * @param meterRegistry registry of the executor metrics
+	 */
+	public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long timeoutMillis,
+			MeterRegistry meterRegistry) {
+		this.delegate = delegate;
+		this.timeoutMillis = timeoutMillis;
+		this.threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+		this.executor = ExecutorServiceMetrics.monitor(meterRegistry, threadPoolExecutor, EXECUTOR_NAME,
+				Collections.emptyList());
+		this.rejected = Counter.builder("executor.rejected").tag("name", EXECUTOR_NAME)
+				.description("Password hashes rejected because the queue was full").register(meterRegistry);
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return call(() -> delegate.encode(rawPassword));
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return call(() -> delegate.matches(rawPassword, encodedPassword));
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return delegate.upgradeEncoding(encodedPassword);
+	}
+
+	public int getQueueSize() {
+		return threadPoolExecutor.getQueue().size();
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	private <T> T call(Callable<T> task) {
+		Future<T> future;
+		try {
+			future = executor.submit(task);
+		} catch (RejectedExecutionException ex) {
+			rejected.increment();
+			throw new ServiceUnavailableException("Too many concurrent logins, try again later", 1);
+		}
+
+		try {
+			return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException ex) {
+			future.cancel(true);
+			throw new ServiceUnavailableException("Password check timed out, try again later", 1);
+		} catch (InterruptedException ex) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new ServiceUnavailableException("Password check interrupted, try again later", 1);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException(ex.getCause());
+		}
+	}
+
+	private static class HashingThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
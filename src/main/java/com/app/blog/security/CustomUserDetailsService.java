@@ -5,6 +5,7 @@ import com.app.blog.entity.User;
 import com.app.blog.repository.UserRepository;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -17,9 +18,11 @@ import java.util.stream.Collectors;
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
     private UserRepository userRepository;
+    private UserCache userCache;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository, UserCache userCache) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
     }
 
     @Override
@@ -40,6 +43,46 @@ public class CustomUserDetailsService implements UserDetailsService {
         );
     }
 
+    /**
+     * Loads the principal of a validated Jwt. Principals are cached by subject for a
+     * short time (see CacheConfiguration), so token-authenticated requests skip the
+     * users and roles tables in the common case. The cached copy holds no password.
+     *
+     * @param subject the Jwt subject (user's email)
+     * @return UserDetails object without the password
+     * @throws UsernameNotFoundException if no user with the given subject
+     */
+    public UserDetails loadPrincipal(String subject) throws UsernameNotFoundException {
+        UserDetails principal = userCache.getUserFromCache(subject);
+
+        if (principal == null) {
+            UserDetails userDetails = loadUserByUsername(subject);
+            principal = new org.springframework.security.core.userdetails.User(
+                    userDetails.getUsername(),
+                    "",
+                    userDetails.getAuthorities()
+            );
+            userCache.putUserInCache(principal);
+        }
+
+        return principal;
+    }
+
+    /**
+     * Evicts the cached principal of the user. Must be called when the user's roles,
+     * password, email or username change, with the keys before and after the change,
+     * see PrincipalCacheEvictionListener
+     *
+     * @param keys the emails and usernames the principal may be cached under
+     */
+    public void evictPrincipal(String... keys) {
+        for (String key : keys) {
+            if (key != null) {
+                userCache.removeUserFromCache(key);
+            }
+        }
+    }
+
     private Collection<? extends GrantedAuthority> mapRolesToAuthorities(Set<Role> roles) {
         return roles.stream()
                 .map(role -> new SimpleGrantedAuthority(role.getName()))
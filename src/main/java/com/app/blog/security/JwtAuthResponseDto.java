@@ -2,12 +2,18 @@ package com.app.blog.security;
 
 public class JwtAuthResponseDto {
     private String accessToken;
+    private String refreshToken;
     private final String tokenType = "Bearer";
 
     public JwtAuthResponseDto(String accessToken) {
         this.accessToken = accessToken;
     }
 
+    public JwtAuthResponseDto(String accessToken, String refreshToken) {
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+    }
+
     public String getAccessToken() {
         return accessToken;
     }
@@ -16,6 +22,14 @@ public class JwtAuthResponseDto {
         this.accessToken = accessToken;
     }
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
     public String getTokenType() {
         return tokenType;
     }
@@ -1,6 +1,7 @@
 package com.app.blog.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -13,12 +14,15 @@ import com.app.blog.exception.BlogApiException;
 import com.app.blog.exception.ErrorDetailsDto;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.jsonwebtoken.Claims;
+
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Date;
+import java.util.Set;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 	@Autowired
@@ -27,16 +31,34 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 	@Autowired
 	private CustomUserDetailsService customUserDetailsService;
 
+	@Autowired
+	private TokenRevocationList tokenRevocationList;
+
+	// These endpoints check the tokens they are given themselves, an expired access
+	// token must not fail a refresh or a logout
+	private static final Set<String> SELF_AUTHENTICATED_PATHS = Set.of("/api/v1/auth/refresh",
+			"/api/v1/auth/logout");
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return SELF_AUTHENTICATED_PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+	}
+
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
 			throws ServletException, IOException {
 
-		String token = getJwtFromRequestHeader(request);
+		String token = jwtTokenProvider.resolveToken(request);
 
 		try {
-			if (StringUtils.hasText(token) && jwtTokenProvider.validateToken(token)) {
-				String username = jwtTokenProvider.getUsernameFromJwt(token);
-				UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
+			if (StringUtils.hasText(token)) {
+				Claims claims = jwtTokenProvider.validateAndGetClaims(token);
+				if (tokenRevocationList.isRevoked(claims.getId())) {
+					throw new BlogApiException("Revoked Jwt token", HttpStatus.UNAUTHORIZED);
+				}
+
+				String username = claims.getSubject();
+				UserDetails userDetails = customUserDetailsService.loadPrincipal(username);
 
 				UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
 						userDetails, null, userDetails.getAuthorities());
@@ -56,15 +78,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
 		filterChain.doFilter(request, response);
 	}
-
-	private String getJwtFromRequestHeader(HttpServletRequest request) {
-		String bearerToken = request.getHeader("Authorization");
-
-		if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
-			String token = bearerToken.substring(7, bearerToken.length());
-			return token;
-		}
-
-		return null;
-	}
 }
@@ -0,0 +1,180 @@
+package com.app.blog.security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The keys of the Jwt tokens: the key signing the new tokens and the keys
+ * verifying the tokens, decoded once and found by the kid header of a token.
+ * With HS512 (the default) a single shared secret signs and verifies, and the
+ * tokens carry no kid. With ES256 a node verifying the tokens holds the public
+ * keys only; a key is rotated by adding its public key to every node first,
+ * then switching the signing key, and removing the old public key once its
+ * tokens expired
+ */
+public final class JwtKeyRing {
+	private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+
+	private final SignatureAlgorithm algorithm;
+	private final String signingKeyId;
+	private final Key signingKey;
+	// Verifies the tokens without a kid, null if they are rejected
+	private final SecretKey hmacKey;
+	private final Map<String, PublicKey> verificationKeys;
+
+	private JwtKeyRing(SignatureAlgorithm algorithm, String signingKeyId, Key signingKey, SecretKey hmacKey,
+			Map<String, PublicKey> verificationKeys) {
+		this.algorithm = algorithm;
+		this.signingKeyId = signingKeyId;
+		this.signingKey = signingKey;
+		this.hmacKey = hmacKey;
+		this.verificationKeys = Map.copyOf(verificationKeys);
+	}
+
+	/**
+	 * @param jwtSecret Base64 encoded HMAC secret
+	 * @return the ring signing and verifying with HS512
+	 */
+	public static JwtKeyRing hmac(String jwtSecret) {
+		SecretKey secretKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+		return new JwtKeyRing(SignatureAlgorithm.HS512, null, secretKey, secretKey, Map.of());
+	}
+
+	/**
+	 * @param signingKeyId     kid of the signing key
+	 * @param signingKey       EC P-256 private key
+	 * @param verificationKeys EC P-256 public keys by kid, including the one of
+	 *                         the signing key
+	 * @param hmacKey          the key of the former HS512 tokens, accepted until
+	 *                         they expire, null to reject them
+	 * @return the ring signing with ES256
+	 */
+	public static JwtKeyRing es256(String signingKeyId, PrivateKey signingKey,
+			Map<String, PublicKey> verificationKeys, SecretKey hmacKey) {
+		if (!verificationKeys.containsKey(signingKeyId)) {
+			throw new IllegalArgumentException(
+					String.format("No verification key for the signing key kid='%s'", signingKeyId));
+		}
+		return new JwtKeyRing(SignatureAlgorithm.ES256, signingKeyId, signingKey, hmacKey, verificationKeys);
+	}
+
+	/**
+	 * Builds the ring of the app.jwt properties. Without a signing key, ES256
+	 * signs with a key pair generated at startup, which suits a single node only
+	 *
+	 * @param jwtSecret        Base64 encoded HMAC secret
+	 * @param algorithm        HS512 or ES256
+	 * @param signingKeyId     kid of the ES256 signing key
+	 * @param signingKey       Base64 encoded PKCS#8 EC private key
+	 * @param verificationKeys comma separated kid=Base64 encoded X.509 EC public
+	 *                         key
+	 * @param acceptHs512      accept the HS512 tokens along with the ES256 ones
+	 * @return the key ring
+	 */
+	static JwtKeyRing fromProperties(String jwtSecret, String algorithm, String signingKeyId, String signingKey,
+			String verificationKeys, boolean acceptHs512) {
+		if (SignatureAlgorithm.HS512.name().equalsIgnoreCase(algorithm)) {
+			return hmac(jwtSecret);
+		}
+		if (!SignatureAlgorithm.ES256.name().equalsIgnoreCase(algorithm)) {
+			throw new IllegalArgumentException(String.format("Unsupported Jwt algorithm '%s'", algorithm));
+		}
+
+		Map<String, PublicKey> publicKeys = new HashMap<>();
+		for (String entry : verificationKeys.split(",")) {
+			if (entry.isBlank()) {
+				continue;
+			}
+			String[] kidAndKey = entry.split("=", 2);
+			if (kidAndKey.length != 2) {
+				throw new IllegalArgumentException(String.format("Expected kid=key, got '%s'", entry.trim()));
+			}
+			publicKeys.put(kidAndKey[0].trim(), decodePublicKey(kidAndKey[1].trim()));
+		}
+
+		SecretKey hmacKey = acceptHs512 ? Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret)) : null;
+		if (signingKey.isBlank()) {
+			KeyPair keyPair = generateEs256KeyPair();
+			String kid = "generated-" + UUID.randomUUID();
+			publicKeys.put(kid, keyPair.getPublic());
+			logger.warn("No app.jwt.signing-key, signing with the generated key kid='{}', "
+					+ "other nodes cannot verify its tokens", kid);
+			return es256(kid, keyPair.getPrivate(), publicKeys, hmacKey);
+		}
+		return es256(signingKeyId, decodePrivateKey(signingKey), publicKeys, hmacKey);
+	}
+
+	public static KeyPair generateEs256KeyPair() {
+		return Keys.keyPairFor(SignatureAlgorithm.ES256);
+	}
+
+	SignatureAlgorithm getAlgorithm() {
+		return algorithm;
+	}
+
+	String getSigningKeyId() {
+		return signingKeyId;
+	}
+
+	Key getSigningKey() {
+		return signingKey;
+	}
+
+	/**
+	 * @param header the header of a token
+	 * @return the key verifying the token
+	 * @throws UnsupportedJwtException if the kid is unknown, or the algorithm does
+	 *                                 not match the key
+	 */
+	Key resolveVerificationKey(JwsHeader<?> header) {
+		String kid = header.getKeyId();
+		if (kid == null) {
+			if (hmacKey == null || !SignatureAlgorithm.HS512.getValue().equals(header.getAlgorithm())) {
+				throw new UnsupportedJwtException("Jwt token without kid");
+			}
+			return hmacKey;
+		}
+
+		PublicKey publicKey = verificationKeys.get(kid);
+		if (publicKey == null || !SignatureAlgorithm.ES256.getValue().equals(header.getAlgorithm())) {
+			throw new UnsupportedJwtException(String.format("Unknown Jwt kid='%s'", kid));
+		}
+		return publicKey;
+	}
+
+	private static PublicKey decodePublicKey(String key) {
+		try {
+			return KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(key)));
+		} catch (GeneralSecurityException | IllegalArgumentException ex) {
+			throw new IllegalArgumentException("Invalid EC public key", ex);
+		}
+	}
+
+	private static PrivateKey decodePrivateKey(String key) {
+		try {
+			return KeyFactory.getInstance("EC")
+					.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(key)));
+		} catch (GeneralSecurityException | IllegalArgumentException ex) {
+			throw new IllegalArgumentException("Invalid EC private key", ex);
+		}
+	}
+}
@@ -2,51 +2,117 @@ package com.app.blog.security;
 
 import com.app.blog.exception.BlogApiException;
 import io.jsonwebtoken.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
+import jakarta.servlet.http.HttpServletRequest;
+import java.security.Key;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtTokenProvider {
-    @Value("${app.jwt-secret}")
-    private String jwtSecret;
+    private final JwtKeyRing keyRing;
+
+    private final int jwtExpirationInMs;
+
+    // Immutable and thread-safe, shared by all requests
+    private final JwtParser jwtParser;
+
+    /**
+     * @param jwtSecret Base64 encoded HMAC secret, decoded once here
+     * @param jwtExpirationInMs token lifetime in milliseconds
+     * @param algorithm HS512 or ES256, see JwtKeyRing
+     * @param signingKeyId kid of the ES256 signing key
+     * @param signingKey Base64 encoded PKCS#8 EC private key
+     * @param verificationKeys comma separated kid=Base64 encoded X.509 EC public key
+     * @param acceptHs512 with ES256, keep accepting the HS512 tokens
+     */
+    @Autowired
+    public JwtTokenProvider(@Value("${app.jwt-secret}") String jwtSecret,
+                            @Value("${app.jwt-expiration-milliseconds}") int jwtExpirationInMs,
+                            @Value("${app.jwt.algorithm:HS512}") String algorithm,
+                            @Value("${app.jwt.signing-key-id:}") String signingKeyId,
+                            @Value("${app.jwt.signing-key:}") String signingKey,
+                            @Value("${app.jwt.verification-keys:}") String verificationKeys,
+                            @Value("${app.jwt.accept-hs512:true}") boolean acceptHs512) {
+        this(JwtKeyRing.fromProperties(jwtSecret, algorithm, signingKeyId, signingKey, verificationKeys, acceptHs512),
+                jwtExpirationInMs);
+    }
+
+    public JwtTokenProvider(String jwtSecret, int jwtExpirationInMs) {
+        this(JwtKeyRing.hmac(jwtSecret), jwtExpirationInMs);
+    }
 
-    @Value("${app.jwt-expiration-milliseconds}")
-    private int jwtExpirationInMs;
+    public JwtTokenProvider(JwtKeyRing keyRing, int jwtExpirationInMs) {
+        this.keyRing = keyRing;
+        this.jwtExpirationInMs = jwtExpirationInMs;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return keyRing.resolveVerificationKey(header);
+                    }
+                })
+                .build();
+    }
 
     public String generateToken(Authentication authentication) {
-        String username = authentication.getName();
+        return generateToken(authentication.getName());
+    }
+
+    public String generateToken(String username) {
         Date currentDate = new Date();
         Date expirationDate = new Date(currentDate.getTime() + jwtExpirationInMs);
 
-        String token = Jwts.builder()
+        JwtBuilder builder = Jwts.builder();
+        if (keyRing.getSigningKeyId() != null) {
+            builder.setHeaderParam(JwsHeader.KEY_ID, keyRing.getSigningKeyId());
+        }
+
+        String token = builder
+                // The id a logout revokes, see TokenRevocationList
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(expirationDate)
-                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .signWith(keyRing.getSigningKey(), keyRing.getAlgorithm())
                 .compact();
 
         return token;
     }
 
-    public String getUsernameFromJwt(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(jwtSecret)
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * @param request the request
+     * @return the token of the "Authorization: Bearer" header, null if there is none
+     */
+    public String resolveToken(HttpServletRequest request) {
+        String bearerToken = request.getHeader("Authorization");
 
-        String username = claims.getSubject();
-        return username;
+        if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+            return bearerToken.substring(7);
+        }
+
+        return null;
     }
 
-    public boolean validateToken(String token) {
+    /**
+     * Verifies the token signature and expiration and returns its claims, so a request
+     * parses the token exactly once
+     *
+     * @param token Jwt token
+     * @return the token's claims
+     * @throws BlogApiException with the UNAUTHORIZED status if the token is not valid
+     */
+    public Claims validateAndGetClaims(String token) {
         try {
-            Jwts.parser()
-                    .setSigningKey(jwtSecret)
-                    .parseClaimsJws(token);
+            return jwtParser
+                    .parseClaimsJws(token)
+                    .getBody();
 
         } catch (SignatureException ex) {
             String message = "Invalid Jwt signature";
@@ -73,7 +139,5 @@ public class JwtTokenProvider {
             HttpStatus status = HttpStatus.UNAUTHORIZED;
             throw new BlogApiException(message, status);
         }
-
-        return true;
     }
 }
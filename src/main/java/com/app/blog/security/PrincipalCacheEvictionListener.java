@@ -0,0 +1,43 @@
+package com.app.blog.security;
+
+import com.app.blog.entity.User;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Evicts the cached principal whenever a user is updated (e.g. roles or password
+ * change) or removed, so the change applies to the next request instead of after
+ * the cache time-to-live. Both the keys the user was loaded with and the current
+ * ones are evicted, so a change of the email does not leave the principal cached
+ * under the former one. A change of the roles only increments the version of
+ * the user, which makes it an update too
+ */
+@Component
+public class PrincipalCacheEvictionListener {
+	private CustomUserDetailsService customUserDetailsService;
+
+	public PrincipalCacheEvictionListener(@Lazy CustomUserDetailsService customUserDetailsService) {
+		this.customUserDetailsService = customUserDetailsService;
+	}
+
+	@PostLoad
+	@PostPersist
+	public void rememberPrincipalKeys(User user) {
+		user.setLoadedPrincipalKeys(new String[] { user.getEmail(), user.getUsername() });
+	}
+
+	@PostUpdate
+	@PostRemove
+	public void evictPrincipal(User user) {
+		if (user.getLoadedPrincipalKeys() != null) {
+			customUserDetailsService.evictPrincipal(user.getLoadedPrincipalKeys());
+		}
+		customUserDetailsService.evictPrincipal(user.getEmail(), user.getUsername());
+		rememberPrincipalKeys(user);
+	}
+}
@@ -0,0 +1,78 @@
+package com.app.blog.security;
+
+import com.app.blog.dto.auth.ErrorMessageDto;
+import com.app.blog.security.RateLimiter.RouteClass;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects the requests over the budget of the client with 429 Too Many Requests
+ * and Retry-After. Runs after JwtAuthenticationFilter, so an authenticated
+ * client is limited by its JWT subject and an anonymous one by its IP address.
+ * The auth endpoints, the reads and the writes have separate budgets, see
+ * RateLimiter
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+	private static final String AUTH_PATH = "/api/v1/auth/";
+
+	private final RateLimiter rateLimiter;
+	private final ObjectMapper objectMapper;
+
+	public RateLimitFilter(RateLimiter rateLimiter, ObjectMapper objectMapper) {
+		this.rateLimiter = rateLimiter;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		long waitNanos = rateLimiter.tryAcquire(routeClass(request), client(request));
+		if (waitNanos > 0) {
+			long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999));
+			response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+			response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+			response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			ErrorMessageDto errorMessageDto = new ErrorMessageDto();
+			errorMessageDto.setErrorMessage("Too many requests, retry in " + retryAfterSeconds + " s");
+			response.getWriter().write(objectMapper.writeValueAsString(errorMessageDto));
+			return;
+		}
+
+		filterChain.doFilter(request, response);
+	}
+
+	private RouteClass routeClass(HttpServletRequest request) {
+		if (request.getRequestURI().startsWith(AUTH_PATH)) {
+			return RouteClass.AUTH;
+		}
+
+		String method = request.getMethod();
+		if (HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method)) {
+			return RouteClass.READ;
+		}
+		return RouteClass.WRITE;
+	}
+
+	private String client(HttpServletRequest request) {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		if (authentication != null && authentication.isAuthenticated()
+				&& !(authentication instanceof AnonymousAuthenticationToken)) {
+			return "user:" + authentication.getName();
+		}
+		return "ip:" + request.getRemoteAddr();
+	}
+}
@@ -0,0 +1,90 @@
+package com.app.blog.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client token buckets with a separate budget per route class. The buckets
+ * of a class expire once idle for as long as a full refill takes, at which
+ * point they would be full anyway, so forgetting them loses nothing and the
+ * memory follows the amount of the active clients. The amount of the buckets
+ * per class is bounded by app.rate-limit.max-clients in any case
+ */
+@Component
+public class RateLimiter {
+	public enum RouteClass {
+		AUTH, READ, WRITE
+	}
+
+	private final Map<RouteClass, Budget> budgets = new EnumMap<>(RouteClass.class);
+
+	public RateLimiter(@Value("${app.rate-limit.auth.capacity:20}") long authCapacity,
+			@Value("${app.rate-limit.auth.refill-per-second:2}") double authRefillPerSecond,
+			@Value("${app.rate-limit.read.capacity:200}") long readCapacity,
+			@Value("${app.rate-limit.read.refill-per-second:100}") double readRefillPerSecond,
+			@Value("${app.rate-limit.write.capacity:50}") long writeCapacity,
+			@Value("${app.rate-limit.write.refill-per-second:10}") double writeRefillPerSecond,
+			@Value("${app.rate-limit.max-clients:1000000}") long maxClients, MeterRegistry meterRegistry) {
+		budgets.put(RouteClass.AUTH,
+				new Budget(RouteClass.AUTH, authCapacity, authRefillPerSecond, maxClients, meterRegistry));
+		budgets.put(RouteClass.READ,
+				new Budget(RouteClass.READ, readCapacity, readRefillPerSecond, maxClients, meterRegistry));
+		budgets.put(RouteClass.WRITE,
+				new Budget(RouteClass.WRITE, writeCapacity, writeRefillPerSecond, maxClients, meterRegistry));
+	}
+
+	/**
+	 * @param routeClass the budget to take the token from
+	 * @param client     the JWT subject or the IP address of the client
+	 * @return 0 if the request is allowed, otherwise the nanoseconds until it
+	 *         would be
+	 */
+	public long tryAcquire(RouteClass routeClass, String client) {
+		return tryAcquire(routeClass, client, System.nanoTime());
+	}
+
+	long tryAcquire(RouteClass routeClass, String client, long nowNanos) {
+		return budgets.get(routeClass).tryAcquire(client, nowNanos);
+	}
+
+	public long trackedClients(RouteClass routeClass) {
+		Cache<String, TokenBucket> buckets = budgets.get(routeClass).buckets;
+		buckets.cleanUp();
+		return buckets.estimatedSize();
+	}
+
+	private static class Budget {
+		private final long intervalNanos;
+		private final long toleranceNanos;
+		private final Cache<String, TokenBucket> buckets;
+		private final Counter rejected;
+
+		private Budget(RouteClass routeClass, long capacity, double refillPerSecond, long maxClients,
+				MeterRegistry meterRegistry) {
+			this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond));
+			this.toleranceNanos = (capacity - 1) * intervalNanos;
+			this.buckets = Caffeine.newBuilder().expireAfterAccess(Duration.ofNanos(toleranceNanos + intervalNanos))
+					.maximumSize(maxClients).build();
+			this.rejected = Counter.builder("rate.limit.rejected").tag("route", routeClass.name().toLowerCase())
+					.description("Requests rejected by the rate limit").register(meterRegistry);
+		}
+
+		private long tryAcquire(String client, long nowNanos) {
+			long waitNanos = buckets.get(client, key -> new TokenBucket(nowNanos)).tryConsume(nowNanos,
+					intervalNanos, toleranceNanos);
+			if (waitNanos > 0) {
+				rejected.increment();
+			}
+			return waitNanos;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package com.app.blog.security;
+
+import com.app.blog.entity.RefreshToken;
+import com.app.blog.exception.BlogApiException;
+import com.app.blog.repository.RefreshTokenRepository;
+import com.app.blog.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Issues and rotates the refresh tokens, so a client renews its access token
+ * with one indexed lookup and an HMAC instead of a password verification. A
+ * refresh token is an opaque random string, stored as its HMAC-SHA256 only.
+ * Every exchange returns a new refresh token of the same family; exchanging a
+ * used one again means it leaked, the whole family is then revoked
+ */
+@Component
+public class RefreshTokenService {
+	private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+	private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+	private final RefreshTokenRepository refreshTokenRepository;
+	private final UserRepository userRepository;
+	private final JwtTokenProvider jwtTokenProvider;
+	private final SecretKeySpec hashKey;
+	private final long refreshExpirationMillis;
+	private final SecureRandom random = new SecureRandom();
+
+	public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository,
+			JwtTokenProvider jwtTokenProvider, @Value("${app.jwt-secret}") String jwtSecret,
+			@Value("${app.jwt.refresh-expiration-milliseconds:1209600000}") long refreshExpirationMillis) {
+		this.refreshTokenRepository = refreshTokenRepository;
+		this.userRepository = userRepository;
+		this.jwtTokenProvider = jwtTokenProvider;
+		this.hashKey = new SecretKeySpec(jwtSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+		this.refreshExpirationMillis = refreshExpirationMillis;
+	}
+
+	/**
+	 * @param username the authenticated user
+	 * @return the refresh token of a new family
+	 */
+	public String issue(String username) {
+		return issue(username, UUID.randomUUID().toString());
+	}
+
+	/**
+	 * Exchanges a refresh token for a new access token and a new refresh token
+	 *
+	 * @param refreshToken the refresh token of the previous exchange or login
+	 * @return JwtAuthResponseDto object with the new tokens
+	 * @throws BlogApiException with the UNAUTHORIZED status if the token is
+	 *                          unknown, expired, revoked or already used, or if
+	 *                          its user no longer exists (the family is revoked
+	 *                          then)
+	 */
+	@Transactional(noRollbackFor = BlogApiException.class)
+	public JwtAuthResponseDto refresh(String refreshToken) {
+		if (refreshToken == null || refreshToken.isEmpty()) {
+			throw new BlogApiException("Missing refresh token", HttpStatus.UNAUTHORIZED);
+		}
+
+		RefreshToken stored = refreshTokenRepository.findByTokenHash(hash(refreshToken))
+				.orElseThrow(() -> new BlogApiException("Invalid refresh token", HttpStatus.UNAUTHORIZED));
+		Instant now = Instant.now();
+		if (stored.isRevoked()) {
+			throw new BlogApiException("Revoked refresh token", HttpStatus.UNAUTHORIZED);
+		}
+		if (!stored.getExpiresAt().isAfter(now)) {
+			throw new BlogApiException("Expired refresh token", HttpStatus.UNAUTHORIZED);
+		}
+		// The user may have been deleted or renamed since the login
+		if (!userRepository.existsByEmail(stored.getUsername())) {
+			refreshTokenRepository.revokeFamily(stored.getFamily());
+			throw new BlogApiException("Unknown user of the refresh token", HttpStatus.UNAUTHORIZED);
+		}
+		if (stored.getUsedAt() != null || refreshTokenRepository.markUsed(stored.getId(), now) == 0) {
+			refreshTokenRepository.revokeFamily(stored.getFamily());
+			logger.warn("Refresh token reuse detected for user {}, family {} revoked", stored.getUsername(),
+					stored.getFamily());
+			throw new BlogApiException("Refresh token reuse detected", HttpStatus.UNAUTHORIZED);
+		}
+
+		String accessToken = jwtTokenProvider.generateToken(stored.getUsername());
+		return new JwtAuthResponseDto(accessToken, issue(stored.getUsername(), stored.getFamily()));
+	}
+
+	/**
+	 * Revokes the family of the refresh token
+	 *
+	 * @param refreshToken the refresh token
+	 * @return true if the family was revoked, false if the token is unknown,
+	 *         expired or already revoked
+	 */
+	public boolean revoke(String refreshToken) {
+		return refreshTokenRepository.findByTokenHash(hash(refreshToken))
+				.filter(stored -> !stored.isRevoked() && stored.getExpiresAt().isAfter(Instant.now()))
+				.map(stored -> refreshTokenRepository.revokeFamily(stored.getFamily()) > 0).orElse(false);
+	}
+
+	@Scheduled(fixedDelayString = "${app.jwt.refresh-cleanup-interval-ms:3600000}",
+			initialDelayString = "${app.jwt.refresh-cleanup-interval-ms:3600000}")
+	public void deleteExpired() {
+		int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+		logger.debug("Deleted {} expired refresh tokens", deleted);
+	}
+
+	private String issue(String username, String family) {
+		byte[] bytes = new byte[32];
+		random.nextBytes(bytes);
+		String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+		RefreshToken refreshToken = new RefreshToken();
+		refreshToken.setTokenHash(hash(token));
+		refreshToken.setFamily(family);
+		refreshToken.setUsername(username);
+		refreshToken.setExpiresAt(Instant.now().plusMillis(refreshExpirationMillis));
+		refreshTokenRepository.save(refreshToken);
+		return token;
+	}
+
+	private String hash(String token) {
+		try {
+			// A Mac is not thread-safe, its creation is cheap next to a password hash
+			Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+			mac.init(hashKey);
+			return HexFormat.of().formatHex(mac.doFinal(token.getBytes(StandardCharsets.UTF_8)));
+		} catch (GeneralSecurityException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
@@ -1,6 +1,9 @@
 package com.app.blog.security;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -28,14 +31,25 @@ public class SecurityConfiguration {
 	@Autowired
 	private JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
 
+	@Autowired
+	private RateLimiter rateLimiter;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	@Bean
 	JwtAuthenticationFilter jwtAuthenticationFilter() {
 		return new JwtAuthenticationFilter();
 	}
 
+	// BCrypt runs on its own bounded pool, see BoundedPasswordEncoder
 	@Bean
-	PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+	PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+			@Value("${app.security.password-hashing.threads:2}") int threads,
+			@Value("${app.security.password-hashing.queue-capacity:20}") int queueCapacity,
+			@Value("${app.security.password-hashing.timeout-ms:5000}") long timeoutMillis) {
+		return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), threads, queueCapacity, timeoutMillis,
+				meterRegistry);
 	}
 
 	@Bean
@@ -44,10 +58,13 @@ public class SecurityConfiguration {
 				.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
 				.authorizeHttpRequests(authorize -> {
 					authorize.requestMatchers(HttpMethod.GET, "/api/v1/**").permitAll()
-							.requestMatchers("/api/v1/auth/**").permitAll().anyRequest().authenticated();
+							.requestMatchers("/api/v1/auth/**").permitAll()
+							.requestMatchers("/actuator/**").hasRole("ADMIN").anyRequest().authenticated();
 				});
 
 		httpSecurity.addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
+		// Not a bean, so it is not registered as a servlet filter running before the authentication
+		httpSecurity.addFilterAfter(new RateLimitFilter(rateLimiter, objectMapper), JwtAuthenticationFilter.class);
 		return httpSecurity.build();
 	}
 
@@ -0,0 +1,40 @@
+package com.app.blog.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket of one client, kept lock-free as a single theoretical arrival
+ * time (the generic cell rate algorithm): the bucket is full when the time is
+ * in the past, and every request moves it by one refill interval. A request is
+ * allowed while the time is at most capacity - 1 intervals ahead of now
+ */
+class TokenBucket {
+	private final AtomicLong theoreticalArrivalNanos;
+
+	TokenBucket(long nowNanos) {
+		this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+	}
+
+	/**
+	 * Takes a token if there is one
+	 *
+	 * @param nowNanos       current System.nanoTime()
+	 * @param intervalNanos  nanoseconds to refill one token
+	 * @param toleranceNanos (capacity - 1) * intervalNanos
+	 * @return 0 if a token was taken, otherwise the nanoseconds until the next
+	 *         token
+	 */
+	long tryConsume(long nowNanos, long intervalNanos, long toleranceNanos) {
+		while (true) {
+			long current = theoreticalArrivalNanos.get();
+			long arrival = current - nowNanos > 0 ? current : nowNanos;
+			long ahead = arrival - nowNanos;
+			if (ahead > toleranceNanos) {
+				return ahead - toleranceNanos;
+			}
+			if (theoreticalArrivalNanos.compareAndSet(current, arrival + intervalNanos)) {
+				return 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.app.blog.security;
+
+import com.app.blog.entity.RevokedToken;
+import com.app.blog.repository.RevokedTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The ids (jti) of the revoked Jwt tokens until they expire. The revocations are
+ * written to the revoked_tokens table and kept in memory, where a Bloom filter
+ * answers the check of a token which is not revoked (nearly every token)
+ * without a lookup of the set, and never with a database query. The other
+ * instances learn a revocation at the next sync, every
+ * app.jwt.revocations.sync-interval-ms
+ */
+@Component
+public class TokenRevocationList {
+	private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+	private final RevokedTokenRepository revokedTokenRepository;
+	private final int expectedRevocations;
+	private final double falsePositiveRate;
+	private final long syncIntervalMillis;
+
+	// Expiration by jti
+	private final Map<String, Instant> revokedTokens = new ConcurrentHashMap<>();
+	private volatile BloomFilter bloomFilter;
+	private Instant lastSync = Instant.EPOCH;
+
+	public TokenRevocationList(RevokedTokenRepository revokedTokenRepository,
+			@Value("${app.jwt.revocations.expected:100000}") int expectedRevocations,
+			@Value("${app.jwt.revocations.false-positive-rate:0.01}") double falsePositiveRate,
+			@Value("${app.jwt.revocations.sync-interval-ms:10000}") long syncIntervalMillis) {
+		this.revokedTokenRepository = revokedTokenRepository;
+		this.expectedRevocations = expectedRevocations;
+		this.falsePositiveRate = falsePositiveRate;
+		this.syncIntervalMillis = syncIntervalMillis;
+		this.bloomFilter = new BloomFilter(expectedRevocations, falsePositiveRate);
+	}
+
+	/**
+	 * @param jti the id of a valid token, null for the tokens issued without one
+	 * @return true if the token is revoked
+	 */
+	public boolean isRevoked(String jti) {
+		if (jti == null || !bloomFilter.mightContain(jti)) {
+			return false;
+		}
+		return revokedTokens.containsKey(jti);
+	}
+
+	/**
+	 * Revokes the token on this instance at once, and on the others at their next
+	 * sync
+	 *
+	 * @param jti       the id of the token
+	 * @param expiresAt the expiration of the token, the revocation is forgotten
+	 *                  afterwards
+	 */
+	public void revoke(String jti, Instant expiresAt) {
+		revokedTokenRepository.save(new RevokedToken(jti, expiresAt, Instant.now()));
+		add(jti, expiresAt);
+	}
+
+	/**
+	 * Loads the revocations of the other instances before the first request. A
+	 * listener returning a value would publish it as an event, so it does not
+	 * return the amount of sync()
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void syncOnStartup() {
+		sync();
+	}
+
+	/**
+	 * Loads the revocations since the previous sync (with an overlap of one
+	 * interval for the clock skew and the transactions in flight), and forgets
+	 * the expired ones, in memory and in the table
+	 *
+	 * @return the amount of the loaded revocations
+	 */
+	@Scheduled(fixedDelayString = "${app.jwt.revocations.sync-interval-ms:10000}",
+			initialDelayString = "${app.jwt.revocations.sync-interval-ms:10000}")
+	public synchronized int sync() {
+		Instant now = Instant.now();
+		Instant since = lastSync.equals(Instant.EPOCH) ? lastSync : lastSync.minusMillis(syncIntervalMillis);
+		List<RevokedToken> loaded = revokedTokenRepository.findByRevokedAtGreaterThanEqualAndExpiresAtAfter(since,
+				now);
+		for (RevokedToken revokedToken : loaded) {
+			add(revokedToken.getJti(), revokedToken.getExpiresAt());
+		}
+		lastSync = now;
+
+		int size = revokedTokens.size();
+		revokedTokens.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+		if (revokedTokens.size() < size) {
+			rebuildBloomFilter();
+		}
+		int deleted = revokedTokenRepository.deleteExpired(now);
+
+		logger.debug("Synced {} revoked tokens, {} in memory, {} expired deleted", loaded.size(),
+				revokedTokens.size(), deleted);
+		return loaded.size();
+	}
+
+	private void add(String jti, Instant expiresAt) {
+		revokedTokens.put(jti, expiresAt);
+		// Read after the put: a rebuild running concurrently adds the jti again
+		bloomFilter.add(jti);
+	}
+
+	// Drops the expired ids from the filter, and sizes it for a grown set
+	private void rebuildBloomFilter() {
+		BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, 2 * revokedTokens.size()),
+				falsePositiveRate);
+		revokedTokens.keySet().forEach(rebuilt::add);
+		bloomFilter = rebuilt;
+		// The ids revoked while the filter was being built went to the previous one
+		revokedTokens.keySet().forEach(rebuilt::add);
+	}
+}
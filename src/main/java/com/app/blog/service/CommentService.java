@@ -1,19 +1,28 @@
 package com.app.blog.service;
 
 import com.app.blog.dto.comment.CommentDto;
+import com.app.blog.dto.comment.CommentVersionDto;
 import com.app.blog.dto.comment.CreateCommentDto;
+import com.app.blog.dto.comment.ResponseCommentCursorPagesDto;
+import com.app.blog.dto.comment.ResponseCommentPagesDto;
+import com.app.blog.dto.post.PostVersionDto;
 
 import java.sql.SQLException;
-import java.util.List;
 
 public interface CommentService {
     CommentDto createComment(long postId, CreateCommentDto createCommentDto);
 
-    List<CommentDto> getCommentsByPostId(long postId);
+    ResponseCommentPagesDto getCommentsByPostId(long postId, int pageNo, int pageSize);
+
+    ResponseCommentCursorPagesDto getCommentsByPostIdByCursor(long postId, String cursor, int pageSize);
+
+    PostVersionDto getCommentsVersion(long postId);
 
     CommentDto getCommentById(long postId, long commentId);
 
-    CommentDto updateCommentById(long postId, long commentId, CommentDto commentDto);
+    CommentVersionDto getCommentVersion(long postId, long commentId);
+
+    CommentDto updateCommentById(long postId, long commentId, CommentDto commentDto, Long expectedVersion);
 
     void deleteComment(long postId, long commentId);
 }
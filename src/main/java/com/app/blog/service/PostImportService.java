@@ -0,0 +1,10 @@
+package com.app.blog.service;
+
+import com.app.blog.dto.post.ResponseImportPostsDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface PostImportService {
+	ResponseImportPostsDto importPosts(InputStream inputStream) throws IOException;
+}
@@ -3,19 +3,42 @@ package com.app.blog.service;
 import com.app.blog.dto.post.*;
 import com.app.blog.exception.ResourceNotFoundException;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
 
 public interface PostService {
 	ResponsePostDto createPost(CreatePostDto createPostDto);
 
+	ResponseBulkCreatePostsDto createPosts(List<CreatePostDto> createPostDtos);
+
 	ResponsePostPagesDto getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir);
 
+	ResponsePostCursorPagesDto getAllPostsByCursor(String cursor, int pageSize, String sortBy, String sortDir);
+
+	ResponsePostSummaryPagesDto getAllPostSummaries(int pageNo, int pageSize, String sortBy, String sortDir);
+
+	ResponsePostSummaryCursorPagesDto getAllPostSummariesByCursor(String cursor, int pageSize, String sortBy,
+			String sortDir);
+
+	ResponseTitleSuggestionsDto suggestTitles(String prefix, int limit);
+
+	ResponseTrendingPostsDto getTrendingPosts(int limit);
+
+	ResponsePostSearchPagesDto searchPosts(String query, int pageNo, int pageSize);
+
+	long exportPosts(OutputStream outputStream) throws IOException;
+
 	ResponsePostDto getPostById(long id) throws ResourceNotFoundException;
 
-	ResponsePostDto updatePost(UpdatePostDto postDto, long id) throws ResourceNotFoundException;
+	PostVersionDto getPostVersion(long id) throws ResourceNotFoundException;
+
+	ResponsePostDto updatePost(UpdatePostDto postDto, long id, Long expectedVersion) throws ResourceNotFoundException;
 
 	DeletePostDto deletePost(long id) throws ResourceNotFoundException;
 
-	ResponsePostDto partialUpdatePost(long id, PatchPostDto patchPostDto) throws NoSuchMethodException,
-			SecurityException, IllegalAccessException, IllegalArgumentException, InvocationTargetException;
+	ResponsePostDto partialUpdatePost(long id, PatchPostDto patchPostDto, Long expectedVersion);
+
+	ResponsePostDto mergePatchPost(long id, Map<String, Object> mergePatch, Long expectedVersion);
 }
@@ -1,40 +1,72 @@
 package com.app.blog.service.impl;
 
+import com.app.blog.cache.CacheConfiguration;
 import com.app.blog.dto.comment.CommentDto;
+import com.app.blog.dto.comment.CommentVersionDto;
 import com.app.blog.dto.comment.CreateCommentDto;
+import com.app.blog.dto.comment.ResponseCommentCursorPagesDto;
+import com.app.blog.dto.comment.ResponseCommentPagesDto;
+import com.app.blog.dto.post.PostVersionDto;
 import com.app.blog.entity.Comment;
 import com.app.blog.entity.Post;
 import com.app.blog.exception.BlogApiException;
 import com.app.blog.exception.PostCommentMismatchException;
+import com.app.blog.exception.PreconditionFailedException;
 import com.app.blog.exception.ResourceNotFoundException;
+import com.app.blog.mapper.CommentMapper;
 import com.app.blog.repository.CommentRepository;
+import com.app.blog.repository.CommentWithPostVersion;
+import com.app.blog.repository.EntityVersion;
 import com.app.blog.repository.PostRepository;
 import com.app.blog.service.CommentService;
-import org.modelmapper.ModelMapper;
+import com.app.blog.views.TrendingPosts;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * Every comment mutation evicts the post from the posts cache and increments
+ * the version of the post, as the comments are embedded into ResponsePostDto
+ * and listed by the post. Creating and deleting a comment also updates the
+ * comment counter of the post in the same statement
+ */
 @Service
 public class CommentServiceImpl implements CommentService {
+	private static final String ID = "id";
+
 	private CommentRepository commentRepository;
 	private PostRepository postRepository;
-	private ModelMapper mapper;
+	private CommentMapper mapper;
+	private TrendingPosts trendingPosts;
 
-	public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository, ModelMapper mapper) {
+	public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository, CommentMapper mapper,
+			TrendingPosts trendingPosts) {
 		this.commentRepository = commentRepository;
 		this.postRepository = postRepository;
 		this.mapper = mapper;
+		this.trendingPosts = trendingPosts;
 	}
 
 	/**
-	 * Creates a new comment
+	 * Creates a new comment. The counter update locks the post row until the
+	 * commit, so parallel comments of the post are counted one after another. The
+	 * comment counts for the trending posts once committed
 	 * 
 	 * @param postId           post's id
 	 * @param createCommentDto data for a new comment
@@ -42,35 +74,152 @@ public class CommentServiceImpl implements CommentService {
 	 * @throws ResourceNotFoundException if no post with the given id
 	 */
 	@Override
+	@Transactional
+	@CacheEvict(cacheNames = CacheConfiguration.POSTS, key = "#postId")
 	public CommentDto createComment(long postId, CreateCommentDto createCommentDto) {
-		Post post = postRepository.findById(postId)
-				.orElseThrow(() -> new ResourceNotFoundException("Post", "id", postId));
+		if (postRepository.addToCommentCount(postId, 1, Instant.now()) == 0) {
+			throw new ResourceNotFoundException("Post", "id", postId);
+		}
 
-		Comment comment = mapper.map(createCommentDto, Comment.class);
+		Comment comment = mapper.toEntity(createCommentDto);
+		Post post = postRepository.getReferenceById(postId);
 		comment.setPost(post); // comments_table FK comment.post_id := posts_table post.id
 		Comment newComment = commentRepository.save(comment);
-		CommentDto commentDto = mapper.map(newComment, CommentDto.class);
+		TransactionCallbacks.afterCommit(() -> trendingPosts.recordComment(postId));
+		CommentDto commentDto = mapper.toCommentDto(newComment);
 		return commentDto;
 	}
 
 	/**
-	 * Retrieve the comments by the post id
+	 * Retrieve a page of the comments by the post id, sorted by the comment id. The
+	 * version of the post is read with the comments, the post is only looked up if
+	 * the page is empty
 	 *
-	 * @param postId post's id
-	 * @return List<CommentDto> or an empty list if no comments
+	 * @param postId   post's id
+	 * @param pageNo   page number
+	 * @param pageSize amount of items per page
+	 * @return ResponseCommentPagesDto object with the version of the post,
+	 *         possibly empty
 	 * @throws ResourceNotFoundException if no post with provided id
+	 * @throws BlogApiException          if the page size is less than one
 	 */
 	@Override
-	public List<CommentDto> getCommentsByPostId(long postId) {
-		Post post = postRepository.findById(postId)
-				.orElseThrow(() -> new ResourceNotFoundException("Post", "id", postId));
+	public ResponseCommentPagesDto getCommentsByPostId(long postId, int pageNo, int pageSize) {
+		checkPageSize(pageSize);
+		Pageable pageable = PageRequest.of(pageNo, pageSize, Sort.by(ID));
+		Page<CommentWithPostVersion> page = commentRepository.findWithPostVersionByPostId(postId, pageable);
 
-		List<Comment> comments = commentRepository.findByPostId(postId);
-		List<CommentDto> commentsDto = comments.stream().map((comment) -> {
-			return mapper.map(comment, CommentDto.class);
+		List<CommentDto> commentsDto = page.getContent().stream().map((row) -> {
+			return mapper.toCommentDto(row.getComment());
 		}).collect(Collectors.toList());
 
-		return commentsDto;
+		ResponseCommentPagesDto responseCommentPagesDto = new ResponseCommentPagesDto();
+		if (page.isEmpty()) {
+			EntityVersion postVersion = findPostVersion(postId);
+			responseCommentPagesDto.setPostVersion(postVersion.getVersion());
+			responseCommentPagesDto.setPostLastModified(postVersion.getLastModified());
+		} else {
+			responseCommentPagesDto.setPostVersion(page.getContent().get(0).getPostVersion());
+			responseCommentPagesDto.setPostLastModified(page.getContent().get(0).getPostLastModified());
+		}
+		responseCommentPagesDto.setPageNo(page.getNumber());
+		responseCommentPagesDto.setPageSize(page.getSize());
+		responseCommentPagesDto.setTotalElements(page.getTotalElements());
+		responseCommentPagesDto.setTotalPages(page.getTotalPages());
+		responseCommentPagesDto.setLast(page.isLast());
+		responseCommentPagesDto.setComments(commentsDto);
+
+		return responseCommentPagesDto;
+	}
+
+	/**
+	 * Retrieve the comments by the post id page by page using keyset pagination on
+	 * the comment id, so deep pages cost the same as the first one, and no count
+	 * query is issued. The version of the post is read with the comments, the post
+	 * is only looked up if the page is empty
+	 *
+	 * @param postId   post's id
+	 * @param cursor   the nextCursor of the previous page, or an empty string for
+	 *                 the first page
+	 * @param pageSize amount of items per page
+	 * @return ResponseCommentCursorPagesDto object with the version of the post,
+	 *         possibly empty
+	 * @throws ResourceNotFoundException if no post with provided id
+	 * @throws BlogApiException          if the cursor is invalid or the page size is
+	 *                                   less than one
+	 */
+	@Override
+	public ResponseCommentCursorPagesDto getCommentsByPostIdByCursor(long postId, String cursor, int pageSize) {
+		checkPageSize(pageSize);
+		long lastId = decodeCursor(cursor);
+
+		// One extra row tells whether there is a next page without counting
+		Pageable limit = PageRequest.of(0, pageSize + 1, Sort.by(ID));
+		List<CommentWithPostVersion> comments = commentRepository.findWithPostVersionByPostIdAndIdGreaterThan(postId,
+				lastId, limit);
+
+		ResponseCommentCursorPagesDto responseCommentCursorPagesDto = new ResponseCommentCursorPagesDto();
+		responseCommentCursorPagesDto.setPageSize(pageSize);
+		responseCommentCursorPagesDto.setLast(comments.size() <= pageSize);
+		if (comments.isEmpty()) {
+			EntityVersion postVersion = findPostVersion(postId);
+			responseCommentCursorPagesDto.setPostVersion(postVersion.getVersion());
+			responseCommentCursorPagesDto.setPostLastModified(postVersion.getLastModified());
+		} else {
+			responseCommentCursorPagesDto.setPostVersion(comments.get(0).getPostVersion());
+			responseCommentCursorPagesDto.setPostLastModified(comments.get(0).getPostLastModified());
+		}
+		if (!responseCommentCursorPagesDto.isLast()) {
+			comments = comments.subList(0, pageSize);
+			responseCommentCursorPagesDto
+					.setNextCursor(encodeCursor(comments.get(pageSize - 1).getComment().getId()));
+		}
+
+		List<CommentDto> commentsDto = comments.stream().map((row) -> {
+			return mapper.toCommentDto(row.getComment());
+		}).collect(Collectors.toList());
+		responseCommentCursorPagesDto.setComments(commentsDto);
+
+		return responseCommentCursorPagesDto;
+	}
+
+	/**
+	 * Retrieves the version of the comments of the post, which is the version of
+	 * the post, without loading the post or the comments
+	 *
+	 * @param postId post's id
+	 * @return PostVersionDto object
+	 * @throws ResourceNotFoundException if no post with provided id
+	 */
+	@Override
+	public PostVersionDto getCommentsVersion(long postId) {
+		EntityVersion version = findPostVersion(postId);
+
+		PostVersionDto postVersionDto = new PostVersionDto();
+		postVersionDto.setVersion(version.getVersion());
+		postVersionDto.setLastModified(version.getLastModified());
+		return postVersionDto;
+	}
+
+	/**
+	 * Retrieves the version of a comment without loading the comment
+	 *
+	 * @param postId    post's id
+	 * @param commentId comment's id
+	 * @return CommentVersionDto object
+	 * @throws ResourceNotFoundException    if no post or comment with provided id
+	 * @throws PostCommentMismatchException if the comment does not belong to the
+	 *                                      post
+	 */
+	@Override
+	public CommentVersionDto getCommentVersion(long postId, long commentId) {
+		EntityVersion version = commentRepository.findVersionByIdAndPostId(commentId, postId)
+				.orElseThrow(() -> resolveMissingComment(postId, commentId));
+
+		CommentVersionDto commentVersionDto = new CommentVersionDto();
+		commentVersionDto.setVersion(version.getVersion());
+		commentVersionDto.setLastModified(version.getLastModified());
+		return commentVersionDto;
 	}
 
 	/**
@@ -86,44 +235,43 @@ public class CommentServiceImpl implements CommentService {
 	 */
 	@Override
 	public CommentDto getCommentById(long postId, long commentId) {
-		Post post = postRepository.findById(postId)
-				.orElseThrow(() -> new ResourceNotFoundException("Post", "id", postId));
-
-		Comment comment = commentRepository.findById(commentId)
-				.orElseThrow(() -> new ResourceNotFoundException("Comment", "id", commentId));
-
-		if (!comment.getPost().getId().equals(post.getId())) {
-			String message = String.format("Comment with id=%s does not belong to the post with id=%s", comment.getId(),
-					post.getId());
-			throw new PostCommentMismatchException(message);
-		}
+		Comment comment = commentRepository.findByIdAndPostId(commentId, postId)
+				.orElseThrow(() -> resolveMissingComment(postId, commentId));
 
-		CommentDto commentDto = mapper.map(comment, CommentDto.class);
+		CommentDto commentDto = mapper.toCommentDto(comment);
 		return commentDto;
 	}
 
 	/**
-	 * Updates a comment by id
+	 * Updates a comment by id. The update is flushed with a check of the version
+	 * read with the comment, so a concurrent update is rejected instead of
+	 * overwritten
 	 * 
-	 * @param postId     post's id
-	 * @param commentId  comment's id
-	 * @param commentDto data for updating
+	 * @param postId          post's id
+	 * @param commentId       comment's id
+	 * @param commentDto      data for updating
+	 * @param expectedVersion version the update is based on (If-Match), or null
+	 *                        to update any version
 	 * @return CommentDto object
-	 * @throws ResourceNotFoundException    if no post or comment with provided id
-	 * @throws PostCommentMismatchException if the comment does not belong to the
-	 *                                      post
+	 * @throws ResourceNotFoundException         if no post or comment with
+	 *                                           provided id
+	 * @throws PostCommentMismatchException      if the comment does not belong to
+	 *                                           the post
+	 * @throws PreconditionFailedException       if the comment is not at the
+	 *                                           expected version
+	 * @throws OptimisticLockingFailureException if the comment was changed
+	 *                                           concurrently
 	 */
 	@Override
-	public CommentDto updateCommentById(long postId, long commentId, CommentDto commentDto)
+	@Transactional
+	@CacheEvict(cacheNames = CacheConfiguration.POSTS, key = "#postId")
+	public CommentDto updateCommentById(long postId, long commentId, CommentDto commentDto, Long expectedVersion)
 			throws BlogApiException, ResourceNotFoundException, PostCommentMismatchException {
-		Post post = postRepository.findById(postId)
-				.orElseThrow(() -> new ResourceNotFoundException("Post", "id", postId));
-
-		Comment comment = commentRepository.findById(commentId)
-				.orElseThrow(() -> new ResourceNotFoundException("Comment", "id", commentId));
-
-		if (!comment.getPost().getId().equals(post.getId())) {
-			throw new PostCommentMismatchException(comment.getId(), post.getId());
+		// The comment stays managed until the commit, so saving it does not reload it
+		Comment comment = commentRepository.findByIdAndPostId(commentId, postId)
+				.orElseThrow(() -> resolveMissingComment(postId, commentId));
+		if (expectedVersion != null && expectedVersion != comment.getVersion()) {
+			throw new PreconditionFailedException("Comment", commentId, comment.getVersion());
 		}
 
 		if (commentDto.getName() != null)
@@ -133,8 +281,9 @@ public class CommentServiceImpl implements CommentService {
 		if (commentDto.getBody() != null)
 			comment.setBody(commentDto.getBody());
 
-		Comment updatedComment = commentRepository.save(comment);
-		CommentDto updatedCommentDto = mapper.map(updatedComment, CommentDto.class);
+		Comment updatedComment = commentRepository.saveAndFlush(comment);
+		postRepository.touch(postId, Instant.now());
+		CommentDto updatedCommentDto = mapper.toCommentDto(updatedComment);
 		return updatedCommentDto;
 	}
 
@@ -149,17 +298,65 @@ public class CommentServiceImpl implements CommentService {
 	 *                                      post
 	 */
 	@Override
+	@Transactional
+	@CacheEvict(cacheNames = CacheConfiguration.POSTS, key = "#postId")
 	public void deleteComment(long postId, long commentId) {
-		Post post = postRepository.findById(postId)
+		int deleted = commentRepository.deleteByIdAndPostId(commentId, postId);
+
+		if (deleted == 0) {
+			throw resolveMissingComment(postId, commentId);
+		}
+		postRepository.addToCommentCount(postId, -deleted, Instant.now());
+	}
+
+	/**
+	 * Resolves why no comment with the given id belongs to the post. Only called
+	 * when the single statement lookup misses, so the extra queries are off the
+	 * happy path
+	 *
+	 * @param postId    post's id
+	 * @param commentId comment's id
+	 * @return ResourceNotFoundException if no post or comment with provided id,
+	 *         PostCommentMismatchException otherwise
+	 */
+	private RuntimeException resolveMissingComment(long postId, long commentId) {
+		if (!postRepository.existsById(postId)) {
+			return new ResourceNotFoundException("Post", "id", postId);
+		}
+
+		if (!commentRepository.existsById(commentId)) {
+			return new ResourceNotFoundException("Comment", "id", commentId);
+		}
+
+		return new PostCommentMismatchException(postId, commentId);
+	}
+
+	private void checkPageSize(int pageSize) {
+		if (pageSize < 1) {
+			throw new BlogApiException("Page size should be greater than zero", HttpStatus.BAD_REQUEST);
+		}
+	}
+
+	private EntityVersion findPostVersion(long postId) {
+		return postRepository.findVersionById(postId)
 				.orElseThrow(() -> new ResourceNotFoundException("Post", "id", postId));
+	}
 
-		Comment comment = commentRepository.findById(commentId)
-				.orElseThrow(() -> new ResourceNotFoundException("Comment", "id", commentId));
+	// The cursor is the URL-safe Base64 encoded id of the last comment of the previous page
+	private static String encodeCursor(long lastId) {
+		byte[] raw = Long.toString(lastId).getBytes(StandardCharsets.UTF_8);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+	}
 
-		if (!comment.getPost().getId().equals(post.getId())) {
-			throw new PostCommentMismatchException(comment.getId(), post.getId());
+	private static long decodeCursor(String cursor) {
+		if (cursor == null || cursor.isEmpty()) {
+			return 0;
 		}
 
-		commentRepository.delete(comment);
+		try {
+			return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+		} catch (IllegalArgumentException ex) {
+			throw new BlogApiException("Invalid cursor", HttpStatus.BAD_REQUEST);
+		}
 	}
 }
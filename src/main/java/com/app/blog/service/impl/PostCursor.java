@@ -0,0 +1,83 @@
+package com.app.blog.service.impl;
+
+import com.app.blog.exception.BlogApiException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Opaque position of the last post of a keyset page: the sorting field, the
+ * direction, the id of the post and the value of the sorting field
+ */
+class PostCursor {
+	// Supported sorting fields and the parsers of their values. Only the indexed
+	// columns, a seek on another one scans the table on every page
+	private static final Map<String, Function<String, Object>> SORT_FIELDS = Map.of(
+			"id", Long::valueOf,
+			"title", value -> value);
+
+	private final String sortBy;
+	private final Sort.Direction direction;
+	private final long lastId;
+	private final Object lastValue;
+
+	PostCursor(String sortBy, Sort.Direction direction, long lastId, Object lastValue) {
+		this.sortBy = sortBy;
+		this.direction = direction;
+		this.lastId = lastId;
+		this.lastValue = lastValue;
+	}
+
+	static void checkSortField(String sortBy) {
+		if (!SORT_FIELDS.containsKey(sortBy)) {
+			String message = String.format("Sorting by '%s' is not supported with a cursor, expected 'id' or 'title'",
+					sortBy);
+			throw new BlogApiException(message, HttpStatus.BAD_REQUEST);
+		}
+	}
+
+	/**
+	 * Decodes a cursor issued for the same sorting field and direction
+	 *
+	 * @throws BlogApiException if the cursor is malformed or was issued for other
+	 *                          sorting parameters (400 Bad request)
+	 */
+	static PostCursor decode(String cursor, String sortBy, Sort.Direction direction) {
+		String[] parts;
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			parts = decoded.split("\n", 4);
+		} catch (IllegalArgumentException ex) {
+			throw new BlogApiException("Invalid cursor", HttpStatus.BAD_REQUEST);
+		}
+
+		if (parts.length != 4 || !parts[0].equals(sortBy) || !parts[1].equals(direction.name())) {
+			throw new BlogApiException("Cursor does not match the sorting parameters", HttpStatus.BAD_REQUEST);
+		}
+
+		try {
+			long lastId = Long.parseLong(parts[2]);
+			Object lastValue = SORT_FIELDS.get(sortBy).apply(parts[3]);
+			return new PostCursor(sortBy, direction, lastId, lastValue);
+		} catch (NumberFormatException ex) {
+			throw new BlogApiException("Invalid cursor", HttpStatus.BAD_REQUEST);
+		}
+	}
+
+	String encode() {
+		String raw = String.join("\n", sortBy, direction.name(), String.valueOf(lastId), String.valueOf(lastValue));
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	long getLastId() {
+		return lastId;
+	}
+
+	Object getLastValue() {
+		return lastValue;
+	}
+}
@@ -0,0 +1,250 @@
+package com.app.blog.service.impl;
+
+import com.app.blog.dto.comment.CreateCommentDto;
+import com.app.blog.dto.post.ImportErrorDto;
+import com.app.blog.dto.post.ImportPostDto;
+import com.app.blog.dto.post.ResponseImportPostsDto;
+import com.app.blog.entity.Comment;
+import com.app.blog.entity.Post;
+import com.app.blog.mapper.CommentMapper;
+import com.app.blog.mapper.PostMapper;
+import com.app.blog.repository.CommentRepository;
+import com.app.blog.repository.PostRepository;
+import com.app.blog.search.PostSearchIndex;
+import com.app.blog.search.PostTitleIndex;
+import com.app.blog.service.PostImportService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Imports posts with their comments from newline-delimited JSON. Lines are read
+ * one at a time and collected into batches of app.posts.import.batch-size posts
+ * (or app.posts.import.max-batch-comments comments), each batch is written in
+ * its own transaction with JDBC batching. Reading stops while a batch is being
+ * written, so a fast client is slowed down by the database instead of filling
+ * the heap. A failing line is reported and skipped, it does not stop the import
+ */
+@Service
+public class PostImportServiceImpl implements PostImportService {
+	private PostRepository postRepository;
+	private CommentRepository commentRepository;
+	private PostMapper postMapper;
+	private CommentMapper commentMapper;
+	private ObjectMapper objectMapper;
+	private Validator validator;
+	private TransactionTemplate transactionTemplate;
+	private PostSearchIndex postSearchIndex;
+	private PostTitleIndex postTitleIndex;
+
+	@Value("${app.posts.import.batch-size:1000}")
+	private int batchSize;
+
+	@Value("${app.posts.import.max-batch-comments:20000}")
+	private int maxBatchComments;
+
+	@Value("${app.posts.import.max-errors:100}")
+	private int maxErrors;
+
+	public PostImportServiceImpl(PostRepository postRepository, CommentRepository commentRepository,
+			PostMapper postMapper, CommentMapper commentMapper, ObjectMapper objectMapper, Validator validator,
+			TransactionTemplate transactionTemplate, PostSearchIndex postSearchIndex, PostTitleIndex postTitleIndex) {
+		this.postRepository = postRepository;
+		this.commentRepository = commentRepository;
+		this.postMapper = postMapper;
+		this.commentMapper = commentMapper;
+		this.objectMapper = objectMapper;
+		this.validator = validator;
+		this.transactionTemplate = transactionTemplate;
+		this.postSearchIndex = postSearchIndex;
+		this.postTitleIndex = postTitleIndex;
+	}
+
+	/**
+	 * Imports the posts with their comments, one post per line. A line fails if it
+	 * is not valid JSON, violates the constraints of CreatePostDto or
+	 * CreateCommentDto, or its title is already taken (including by an earlier
+	 * line). Blank lines are skipped
+	 *
+	 * @param inputStream NDJSON stream, read to the end but left open
+	 * @return ResponseImportPostsDto object with the counters, the throughput
+	 *         (posts and comments per second) and the errors by line number
+	 * @throws IOException if reading the stream fails, the batches written before
+	 *                     stay imported
+	 */
+	@Override
+	public ResponseImportPostsDto importPosts(InputStream inputStream) throws IOException {
+		long start = System.nanoTime();
+		ResponseImportPostsDto report = new ResponseImportPostsDto();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+		ImportBatch batch = new ImportBatch();
+		long lineNo = 0;
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+			lineNo++;
+			if (line.isBlank()) {
+				continue;
+			}
+
+			ImportPostDto importPostDto = parse(line, lineNo, report);
+			if (importPostDto == null) {
+				continue;
+			}
+
+			ImportLine importLine = new ImportLine(lineNo, importPostDto);
+			ImportLine sameTitleLine = batch.linesByTitle.putIfAbsent(importPostDto.getTitle(), importLine);
+			if (sameTitleLine != null) {
+				addError(report, lineNo, String.format("Post with title='%s' is already imported on line %s",
+						importPostDto.getTitle(), sameTitleLine.lineNo));
+				continue;
+			}
+			batch.lines.put(importPostDto.getTitle(), importLine);
+
+			batch.comments += importPostDto.getComments().size();
+			if (batch.lines.size() >= batchSize || batch.comments >= maxBatchComments) {
+				write(batch, report);
+				batch = new ImportBatch();
+			}
+		}
+		write(batch, report);
+
+		long elapsedNanos = System.nanoTime() - start;
+		report.setLines(lineNo);
+		report.setElapsedMillis(elapsedNanos / 1_000_000);
+		report.setRowsPerSecond(
+				(report.getImportedPosts() + report.getImportedComments()) * 1e9 / Math.max(elapsedNanos, 1));
+
+		return report;
+	}
+
+	private ImportPostDto parse(String line, long lineNo, ResponseImportPostsDto report) {
+		ImportPostDto importPostDto;
+		try {
+			importPostDto = objectMapper.readValue(line, ImportPostDto.class);
+		} catch (JsonProcessingException ex) {
+			addError(report, lineNo, "Malformed JSON: " + ex.getOriginalMessage());
+			return null;
+		}
+
+		if (importPostDto == null) {
+			addError(report, lineNo, "Malformed JSON: null");
+			return null;
+		}
+
+		Set<ConstraintViolation<ImportPostDto>> violations = validator.validate(importPostDto);
+		if (!violations.isEmpty()) {
+			String message = violations.stream()
+					.map(violation -> violation.getPropertyPath() + ": " + violation.getMessage()).sorted()
+					.collect(Collectors.joining("; "));
+			addError(report, lineNo, message);
+			return null;
+		}
+
+		return importPostDto;
+	}
+
+	private void write(ImportBatch batch, ResponseImportPostsDto report) {
+		// Titles taken by the existing posts, including the earlier batches. The
+		// database may spell them in another case, the lookup uses its collation
+		Map<String, Long> takenTitles = postRepository.findIdsByTitles(batch.lines.keySet());
+		Iterator<ImportLine> importLines = batch.lines.values().iterator();
+		while (importLines.hasNext()) {
+			ImportLine importLine = importLines.next();
+			if (takenTitles.containsKey(importLine.post.getTitle())) {
+				importLines.remove();
+				addError(report, importLine.lineNo,
+						String.format("Post with title='%s' already exists", importLine.post.getTitle()));
+			}
+		}
+
+		if (batch.lines.isEmpty()) {
+			return;
+		}
+
+		List<Post> posts = batch.lines.values().stream().map(importLine -> postMapper.toEntity(importLine.post))
+				.collect(Collectors.toList());
+		Map<String, Long> postIdsByTitle = new TreeMap<>(PostRepository.TITLE_COLLATION);
+		try {
+			int comments = transactionTemplate.execute(status -> {
+				postRepository.insertAll(posts);
+				postIdsByTitle.putAll(postRepository.findIdsByTitles(batch.lines.keySet()));
+				int inserted = insertComments(batch, postIdsByTitle);
+				if (inserted > 0) {
+					postRepository.recountComments(postIdsByTitle.values());
+				}
+				return inserted;
+			});
+			// Indexed once committed, a rejected batch leaves the indexes untouched
+			for (Post post : posts) {
+				postSearchIndex.index(postIdsByTitle.get(post.getTitle()), post.getTitle(), post.getDescription(),
+						post.getContent());
+			}
+			postTitleIndex.addAll(postIdsByTitle);
+			report.setImportedPosts(report.getImportedPosts() + posts.size());
+			report.setImportedComments(report.getImportedComments() + comments);
+		} catch (DataAccessException ex) {
+			String message = "Batch rejected: " + ex.getMostSpecificCause().getMessage();
+			batch.lines.values().forEach(importLine -> addError(report, importLine.lineNo, message));
+		}
+	}
+
+	private int insertComments(ImportBatch batch, Map<String, Long> postIdsByTitle) {
+		List<Comment> comments = new ArrayList<>(batch.comments);
+		for (ImportLine importLine : batch.lines.values()) {
+			Post post = new Post();
+			post.setId(postIdsByTitle.get(importLine.post.getTitle()));
+			for (CreateCommentDto createCommentDto : importLine.post.getComments()) {
+				Comment comment = commentMapper.toEntity(createCommentDto);
+				comment.setPost(post);
+				comments.add(comment);
+			}
+		}
+
+		commentRepository.insertAll(comments);
+		return comments.size();
+	}
+
+	private void addError(ResponseImportPostsDto report, long lineNo, String message) {
+		report.setFailedLines(report.getFailedLines() + 1);
+		if (report.getErrors().size() < maxErrors) {
+			report.getErrors().add(new ImportErrorDto(lineNo, message));
+		}
+	}
+
+	private static class ImportLine {
+		private final long lineNo;
+		private final ImportPostDto post;
+
+		private ImportLine(long lineNo, ImportPostDto post) {
+			this.lineNo = lineNo;
+			this.post = post;
+		}
+	}
+
+	// Lines by title, in the input order, and compared like the unique index
+	private static class ImportBatch {
+		private final Map<String, ImportLine> lines = new LinkedHashMap<>();
+		private final Map<String, ImportLine> linesByTitle = new TreeMap<>(PostRepository.TITLE_COLLATION);
+		private int comments;
+	}
+}
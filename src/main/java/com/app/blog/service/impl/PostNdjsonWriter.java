@@ -0,0 +1,87 @@
+package com.app.blog.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static com.app.blog.repository.PostRepositoryCustom.*;
+
+/**
+ * Writes the rows of PostRepository.streamAllWithComments() as newline-delimited
+ * JSON, one PostDto shaped object per line. The rows come sorted by the post id,
+ * so a post is complete when the next one starts and only the current row is
+ * held in memory
+ */
+class PostNdjsonWriter implements RowCallbackHandler {
+	private final JsonGenerator generator;
+	private final int flushInterval;
+	private long currentPostId = -1;
+	private long posts;
+
+	PostNdjsonWriter(JsonGenerator generator, int flushInterval) {
+		this.generator = generator;
+		this.flushInterval = flushInterval;
+	}
+
+	@Override
+	public void processRow(ResultSet row) throws SQLException {
+		try {
+			long postId = row.getLong(POST_ID);
+			if (postId != currentPostId) {
+				endPost();
+				startPost(postId, row);
+			}
+
+			long commentId = row.getLong(COMMENT_ID);
+			if (!row.wasNull()) {
+				generator.writeStartObject();
+				generator.writeNumberField("id", commentId);
+				generator.writeStringField("name", row.getString(COMMENT_NAME));
+				generator.writeStringField("email", row.getString(COMMENT_EMAIL));
+				generator.writeStringField("body", row.getString(COMMENT_BODY));
+				generator.writeEndObject();
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Completes the last post, must be called after the last row
+	 *
+	 * @return amount of the written posts
+	 */
+	long finish() throws IOException {
+		endPost();
+		generator.flush();
+		return posts;
+	}
+
+	private void startPost(long postId, ResultSet row) throws SQLException, IOException {
+		currentPostId = postId;
+		generator.writeStartObject();
+		generator.writeNumberField("id", postId);
+		generator.writeStringField("title", row.getString(POST_TITLE));
+		generator.writeStringField("description", row.getString(POST_DESCRIPTION));
+		generator.writeStringField("content", row.getString(POST_CONTENT));
+		generator.writeArrayFieldStart("comments");
+	}
+
+	private void endPost() throws IOException {
+		if (currentPostId == -1) {
+			return;
+		}
+
+		generator.writeEndArray();
+		generator.writeEndObject();
+		generator.writeRaw('\n');
+		posts++;
+		if (posts % flushInterval == 0) {
+			generator.flush();
+		}
+	}
+}
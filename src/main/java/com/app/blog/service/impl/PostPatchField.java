@@ -0,0 +1,64 @@
+package com.app.blog.service.impl;
+
+import com.app.blog.entity.Post;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The fields of a post a patch may change, with their setters bound once
+ * instead of looked up by reflection on every request. A field is found by
+ * its JSON name (merge patch) or by its setter name (the single field patch of
+ * PatchPostDto); the minimal lengths are the ones of UpdatePostDto
+ */
+enum PostPatchField {
+	TITLE("title", "setTitle", 2, Post::setTitle),
+	DESCRIPTION("description", "setDescription", 10, Post::setDescription),
+	CONTENT("content", "setContent", 1, Post::setContent);
+
+	private static final Map<String, PostPatchField> BY_NAME = Arrays.stream(values())
+			.collect(Collectors.toUnmodifiableMap(field -> field.name, Function.identity()));
+
+	private static final Map<String, PostPatchField> BY_SETTER_NAME = Arrays.stream(values())
+			.collect(Collectors.toUnmodifiableMap(field -> field.setterName, Function.identity()));
+
+	private final String name;
+	private final String setterName;
+	private final int minLength;
+	private final BiConsumer<Post, String> setter;
+
+	PostPatchField(String name, String setterName, int minLength, BiConsumer<Post, String> setter) {
+		this.name = name;
+		this.setterName = setterName;
+		this.minLength = minLength;
+		this.setter = setter;
+	}
+
+	static Optional<PostPatchField> byName(String name) {
+		return name == null ? Optional.empty() : Optional.ofNullable(BY_NAME.get(name));
+	}
+
+	static Optional<PostPatchField> bySetterName(String setterName) {
+		return setterName == null ? Optional.empty() : Optional.ofNullable(BY_SETTER_NAME.get(setterName));
+	}
+
+	String getName() {
+		return name;
+	}
+
+	int getMinLength() {
+		return minLength;
+	}
+
+	boolean isValid(String value) {
+		return value != null && value.length() >= minLength;
+	}
+
+	void set(Post post, String value) {
+		setter.accept(post, value);
+	}
+}
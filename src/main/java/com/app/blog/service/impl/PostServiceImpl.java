@@ -1,38 +1,83 @@
 package com.app.blog.service.impl;
 
+import com.app.blog.cache.CacheConfiguration;
 import com.app.blog.dto.post.*;
 import com.app.blog.entity.Post;
 import com.app.blog.exception.AlreadyExistsException;
 import com.app.blog.exception.BlogApiException;
+import com.app.blog.exception.PreconditionFailedException;
 import com.app.blog.exception.ResourceNotFoundException;
+import com.app.blog.mapper.PostMapper;
+import com.app.blog.repository.EntityVersion;
 import com.app.blog.repository.PostRepository;
+import com.app.blog.repository.PostSummary;
+import com.app.blog.search.PostSearchIndex;
+import com.app.blog.search.PostTitleIndex;
+import com.app.blog.search.SearchHit;
+import com.app.blog.search.SearchResult;
+import com.app.blog.search.TitleSuggestion;
 import com.app.blog.service.PostService;
-import org.modelmapper.ModelMapper;
+import com.app.blog.views.TrendingPosts;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import jakarta.persistence.Tuple;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class PostServiceImpl implements PostService {
+	// Posts written between the flushes of the export stream, see exportPosts()
+	private static final int EXPORT_FLUSH_INTERVAL = 100;
+
+	// The columns of PostSummary, sorting the summaries by the content would read it
+	private static final Set<String> SUMMARY_SORT_FIELDS = Set.of("id", "title", "description", "commentCount",
+			"viewCount");
+
 	private PostRepository postRepository;
-	private ModelMapper mapper;
+	private PostMapper mapper;
+	private ObjectMapper objectMapper;
+	private PostSearchIndex postSearchIndex;
+	private PostTitleIndex postTitleIndex;
+	private TrendingPosts trendingPosts;
 
-	public PostServiceImpl(PostRepository postRepository, ModelMapper mapper) {
+	public PostServiceImpl(PostRepository postRepository, PostMapper mapper, ObjectMapper objectMapper,
+			PostSearchIndex postSearchIndex, PostTitleIndex postTitleIndex, TrendingPosts trendingPosts) {
 		this.postRepository = postRepository;
 		this.mapper = mapper;
+		this.objectMapper = objectMapper;
+		this.postSearchIndex = postSearchIndex;
+		this.postTitleIndex = postTitleIndex;
+		this.trendingPosts = trendingPosts;
 	}
 
 	/**
-	 * Creates a new post (without the comments)
+	 * Creates a new post (without the comments). The title is checked against the
+	 * title index, the unique constraint catches a post created concurrently
 	 *
 	 * @param createPostDto data for a new post
 	 * @return PostDto object
@@ -40,17 +85,87 @@ public class PostServiceImpl implements PostService {
 	 */
 	@Override
 	public ResponsePostDto createPost(CreatePostDto createPostDto) {
-		Optional<Post> retrievedPostOptional = postRepository.findByTitle(createPostDto.getTitle());
+		checkTitleNotTaken(createPostDto.getTitle());
 
-		if (retrievedPostOptional.isPresent()) {
-			throw new AlreadyExistsException("Post", "title", createPostDto.getTitle());
+		Post postToSave = mapper.toEntity(createPostDto);
+		Post newPost = saveWithTitle(postToSave);
+		postSearchIndex.index(newPost);
+		postTitleIndex.add(newPost.getId(), newPost.getTitle());
+		ResponsePostDto responsePostDto = withVersion(mapper.toResponsePostDto(newPost));
+
+		return responsePostDto;
+	}
+
+	/**
+	 * Creates the posts (without the comments) in one transaction. The titles are
+	 * checked against the existing posts with set-based queries, and the new posts
+	 * are inserted with JDBC batching. A post conflicts if its title is already
+	 * taken, including by an earlier post of the same request, in the comparison of
+	 * PostRepository.TITLE_COLLATION
+	 *
+	 * @param createPostDtos data for the new posts
+	 * @return ResponseBulkCreatePostsDto object with a result per post, in the
+	 *         request order
+	 * @throws BlogApiException if a conflicting post was created concurrently, no
+	 *                          posts are created then
+	 */
+	@Override
+	@Transactional
+	public ResponseBulkCreatePostsDto createPosts(List<CreatePostDto> createPostDtos) {
+		List<String> titles = createPostDtos.stream().map(CreatePostDto::getTitle).collect(Collectors.toList());
+		// Compared like the unique index, so a title taken in another case conflicts
+		Set<String> takenTitles = new TreeSet<>(PostRepository.TITLE_COLLATION);
+		takenTitles.addAll(postRepository.findIdsByTitles(titles).keySet());
+
+		List<BulkCreatePostResultDto> results = new ArrayList<>(createPostDtos.size());
+		List<Post> postsToSave = new ArrayList<>();
+		for (int i = 0; i < createPostDtos.size(); i++) {
+			CreatePostDto createPostDto = createPostDtos.get(i);
+			BulkCreatePostResultDto result = new BulkCreatePostResultDto();
+			result.setIndex(i);
+			result.setTitle(createPostDto.getTitle());
+			if (takenTitles.add(createPostDto.getTitle())) {
+				result.setStatus(BulkCreatePostResultDto.Status.CREATED);
+				postsToSave.add(mapper.toEntity(createPostDto));
+			} else {
+				result.setStatus(BulkCreatePostResultDto.Status.CONFLICT);
+			}
+			results.add(result);
 		}
 
-		Post postToSave = mapper.map(createPostDto, Post.class);
-		Post newPost = postRepository.save(postToSave);
-		ResponsePostDto responsePostDto = mapper.map(newPost, ResponsePostDto.class);
+		try {
+			postRepository.insertAll(postsToSave);
+		} catch (DataIntegrityViolationException ex) {
+			String message = "A post with one of the titles was created concurrently, no posts were created";
+			throw new BlogApiException(message, HttpStatus.CONFLICT);
+		}
 
-		return responsePostDto;
+		// The titles are unique, so they resolve the generated ids
+		List<String> savedTitles = postsToSave.stream().map(Post::getTitle).collect(Collectors.toList());
+		Map<String, Long> idsByTitle = postRepository.findIdsByTitles(savedTitles);
+
+		TransactionCallbacks.afterCommit(() -> {
+			for (Post post : postsToSave) {
+				postSearchIndex.index(idsByTitle.get(post.getTitle()), post.getTitle(), post.getDescription(),
+						post.getContent());
+			}
+			postTitleIndex.addAll(idsByTitle);
+		});
+
+		int created = 0;
+		for (BulkCreatePostResultDto result : results) {
+			if (result.getStatus() == BulkCreatePostResultDto.Status.CREATED) {
+				result.setId(idsByTitle.get(result.getTitle()));
+				created++;
+			}
+		}
+
+		ResponseBulkCreatePostsDto responseBulkCreatePostsDto = new ResponseBulkCreatePostsDto();
+		responseBulkCreatePostsDto.setCreated(created);
+		responseBulkCreatePostsDto.setConflicts(results.size() - created);
+		responseBulkCreatePostsDto.setResults(results);
+
+		return responseBulkCreatePostsDto;
 	}
 
 	/**
@@ -65,15 +180,12 @@ public class PostServiceImpl implements PostService {
 	 */
 	@Override
 	public ResponsePostPagesDto getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir) {
-		Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.by(sortBy).ascending()
-				: Sort.by(sortBy).descending();
-
-		Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-		Page<Post> page = postRepository.findAll(pageable);
+		Pageable pageable = PageRequest.of(pageNo, pageSize, getSort(sortBy, sortDir));
+		Page<Long> page = postRepository.findPageOfIds(pageable);
 
-		List<Post> posts = page.getContent();
+		List<Post> posts = findAllWithComments(page.getContent());
 		List<PostDto> postsDto = posts.stream().map((post) -> {
-			return mapper.map(post, PostDto.class);
+			return mapper.toPostDto(post);
 		}).collect(Collectors.toList());
 
 		ResponsePostPagesDto responsePostPagesDto = new ResponsePostPagesDto();
@@ -88,81 +200,419 @@ public class PostServiceImpl implements PostService {
 	}
 
 	/**
-	 * Retrieves a post by id
+	 * Retrieves the posts page by page using keyset pagination: every page seeks
+	 * past the last post of the previous one, so deep pages cost the same as the
+	 * first one, and no count query is issued
+	 *
+	 * @param cursor   the nextCursor of the previous page, or an empty string for
+	 *                 the first page
+	 * @param pageSize amount of items per page
+	 * @param sortBy   the field name used to sort by, the id is used as a
+	 *                 tiebreaker
+	 * @param sortDir  the value for sorting direction: "asc" for ascending and
+	 *                 "desc" for descending
+	 * @return ResponsePostCursorPagesDto object, possibly empty
+	 * @throws BlogApiException if the cursor is invalid or does not match the
+	 *                          sorting parameters
+	 */
+	@Override
+	public ResponsePostCursorPagesDto getAllPostsByCursor(String cursor, int pageSize, String sortBy,
+			String sortDir) {
+		KeysetPage keysetPage = findNextPage(cursor, pageSize, sortBy, sortDir);
+
+		List<Post> posts = findAllWithComments(keysetPage.ids);
+		List<PostDto> postsDto = posts.stream().map((post) -> {
+			return mapper.toPostDto(post);
+		}).collect(Collectors.toList());
+
+		ResponsePostCursorPagesDto responsePostCursorPagesDto = new ResponsePostCursorPagesDto();
+		responsePostCursorPagesDto.setPageSize(pageSize);
+		responsePostCursorPagesDto.setLast(keysetPage.last);
+		responsePostCursorPagesDto.setNextCursor(keysetPage.nextCursor);
+		responsePostCursorPagesDto.setPosts(postsDto);
+
+		return responsePostCursorPagesDto;
+	}
+
+	/**
+	 * Retrieves the summaries (id, title and description) of all the posts. Neither
+	 * the content nor the comments are read
+	 *
+	 * @param pageNo   page number
+	 * @param pageSize amount of items per page
+	 * @param sortBy   the field name used to sort by
+	 * @param sortDir  the value for sorting direction: "asc" for ascending and
+	 *                 "desc" for descending
+	 * @return ResponsePostSummaryPagesDto object, possibly empty
+	 * @throws BlogApiException if the sorting field is not a column of the summary
+	 */
+	@Override
+	public ResponsePostSummaryPagesDto getAllPostSummaries(int pageNo, int pageSize, String sortBy,
+			String sortDir) {
+		checkSummarySortField(sortBy);
+		Pageable pageable = PageRequest.of(pageNo, pageSize, getSort(sortBy, sortDir));
+		Page<PostSummary> page = postRepository.findAllProjectedBy(pageable);
+
+		List<PostSummaryDto> postsDto = page.getContent().stream().map((summary) -> {
+			return mapToSummaryDto(summary);
+		}).collect(Collectors.toList());
+
+		ResponsePostSummaryPagesDto responsePostSummaryPagesDto = new ResponsePostSummaryPagesDto();
+		responsePostSummaryPagesDto.setPageNo(page.getNumber());
+		responsePostSummaryPagesDto.setPageSize(page.getSize());
+		responsePostSummaryPagesDto.setTotalElements(page.getTotalElements());
+		responsePostSummaryPagesDto.setTotalPages(page.getTotalPages());
+		responsePostSummaryPagesDto.setLast(page.isLast());
+		responsePostSummaryPagesDto.setPosts(postsDto);
+
+		return responsePostSummaryPagesDto;
+	}
+
+	/**
+	 * Retrieves the summaries (id, title and description) of the posts using
+	 * keyset pagination, see getAllPostsByCursor()
+	 *
+	 * @param cursor   the nextCursor of the previous page, or an empty string for
+	 *                 the first page
+	 * @param pageSize amount of items per page
+	 * @param sortBy   the field name used to sort by, the id is used as a
+	 *                 tiebreaker
+	 * @param sortDir  the value for sorting direction: "asc" for ascending and
+	 *                 "desc" for descending
+	 * @return ResponsePostSummaryCursorPagesDto object, possibly empty
+	 * @throws BlogApiException if the cursor is invalid or does not match the
+	 *                          sorting parameters
+	 */
+	@Override
+	public ResponsePostSummaryCursorPagesDto getAllPostSummariesByCursor(String cursor, int pageSize,
+			String sortBy, String sortDir) {
+		KeysetPage keysetPage = findNextPage(cursor, pageSize, sortBy, sortDir);
+
+		Map<Long, PostSummary> summariesById = postRepository.findSummariesByIdIn(keysetPage.ids).stream()
+				.collect(Collectors.toMap(PostSummary::getId, Function.identity()));
+		List<PostSummaryDto> postsDto = keysetPage.ids.stream().map(summariesById::get).filter(Objects::nonNull)
+				.map((summary) -> {
+					return mapToSummaryDto(summary);
+				}).collect(Collectors.toList());
+
+		ResponsePostSummaryCursorPagesDto responsePostSummaryCursorPagesDto = new ResponsePostSummaryCursorPagesDto();
+		responsePostSummaryCursorPagesDto.setPageSize(pageSize);
+		responsePostSummaryCursorPagesDto.setLast(keysetPage.last);
+		responsePostSummaryCursorPagesDto.setNextCursor(keysetPage.nextCursor);
+		responsePostSummaryCursorPagesDto.setPosts(postsDto);
+
+		return responsePostSummaryCursorPagesDto;
+	}
+
+	/**
+	 * Retrieves the posts with the most recent activity from the latest snapshot of
+	 * TrendingPosts, without a database query
+	 *
+	 * @param limit maximal amount of the posts
+	 * @return ResponseTrendingPostsDto object with the best posts first, possibly
+	 *         empty
+	 * @throws BlogApiException if the limit is invalid
+	 */
+	@Override
+	public ResponseTrendingPostsDto getTrendingPosts(int limit) {
+		if (limit < 1) {
+			throw new BlogApiException("Limit should be greater than zero", HttpStatus.BAD_REQUEST);
+		}
+
+		TrendingPosts.Snapshot snapshot = trendingPosts.snapshot();
+		List<TrendingPostDto> postsDto = snapshot.getPosts().stream().limit(limit).map((trendingPost) -> {
+			PostSummary summary = trendingPost.getSummary();
+			TrendingPostDto trendingPostDto = new TrendingPostDto();
+			trendingPostDto.setId(summary.getId());
+			trendingPostDto.setTitle(summary.getTitle());
+			trendingPostDto.setDescription(summary.getDescription());
+			trendingPostDto.setCommentCount(summary.getCommentCount());
+			trendingPostDto.setViewCount(summary.getViewCount());
+			trendingPostDto.setScore(trendingPost.getScore());
+			return trendingPostDto;
+		}).collect(Collectors.toList());
+
+		ResponseTrendingPostsDto responseTrendingPostsDto = new ResponseTrendingPostsDto();
+		responseTrendingPostsDto.setRefreshedAt(snapshot.getRefreshedAt());
+		responseTrendingPostsDto.setPosts(postsDto);
+
+		return responseTrendingPostsDto;
+	}
+
+	/**
+	 * Suggests the titles starting with the prefix, ignoring the case. Served from
+	 * the title index without a database query
+	 *
+	 * @param prefix the beginning of the title
+	 * @param limit  maximal amount of the suggestions
+	 * @return ResponseTitleSuggestionsDto object with the titles in alphabetical
+	 *         order, and whether the prefix is itself a taken title
+	 * @throws BlogApiException if the prefix is empty or the limit is invalid
+	 */
+	@Override
+	public ResponseTitleSuggestionsDto suggestTitles(String prefix, int limit) {
+		if (prefix == null || prefix.isEmpty()) {
+			throw new BlogApiException("Title prefix should not be empty", HttpStatus.BAD_REQUEST);
+		}
+		if (limit < 1) {
+			throw new BlogApiException("Limit should be greater than zero", HttpStatus.BAD_REQUEST);
+		}
+
+		List<TitleSuggestionDto> suggestionsDto = postTitleIndex.suggest(prefix, limit).stream().map((suggestion) -> {
+			TitleSuggestionDto titleSuggestionDto = new TitleSuggestionDto();
+			titleSuggestionDto.setId(suggestion.getId());
+			titleSuggestionDto.setTitle(suggestion.getTitle());
+			return titleSuggestionDto;
+		}).collect(Collectors.toList());
+
+		ResponseTitleSuggestionsDto responseTitleSuggestionsDto = new ResponseTitleSuggestionsDto();
+		responseTitleSuggestionsDto.setPrefix(prefix);
+		responseTitleSuggestionsDto.setTaken(postTitleIndex.contains(prefix));
+		responseTitleSuggestionsDto.setSuggestions(suggestionsDto);
+
+		return responseTitleSuggestionsDto;
+	}
+
+	/**
+	 * Searches the title, description and content of the posts, see
+	 * PostSearchIndex. The index only yields the ranked ids, the summaries of the
+	 * page are read by id in one query
+	 *
+	 * @param query    free text query
+	 * @param pageNo   page number
+	 * @param pageSize amount of items per page
+	 * @return ResponsePostSearchPagesDto object with the best hits first, possibly
+	 *         empty
+	 * @throws BlogApiException if the query has no terms, or the page number or
+	 *                          the page size is invalid
+	 */
+	@Override
+	public ResponsePostSearchPagesDto searchPosts(String query, int pageNo, int pageSize) {
+		if (query == null || query.isBlank()) {
+			throw new BlogApiException("Search query should not be empty", HttpStatus.BAD_REQUEST);
+		}
+		if (pageNo < 0) {
+			throw new BlogApiException("Page number should not be negative", HttpStatus.BAD_REQUEST);
+		}
+		if (pageSize < 1) {
+			throw new BlogApiException("Page size should be greater than zero", HttpStatus.BAD_REQUEST);
+		}
+
+		SearchResult searchResult = postSearchIndex.search(query, pageNo, pageSize);
+		List<Long> ids = searchResult.getHits().stream().map(SearchHit::getId).collect(Collectors.toList());
+		Map<Long, PostSummary> summariesById = ids.isEmpty() ? Collections.emptyMap()
+				: postRepository.findSummariesByIdIn(ids).stream()
+						.collect(Collectors.toMap(PostSummary::getId, Function.identity()));
+
+		// A post removed after it was ranked is skipped
+		List<PostSearchHitDto> postsDto = searchResult.getHits().stream()
+				.filter(hit -> summariesById.containsKey(hit.getId())).map((hit) -> {
+					PostSummary summary = summariesById.get(hit.getId());
+					PostSearchHitDto postSearchHitDto = new PostSearchHitDto();
+					postSearchHitDto.setId(summary.getId());
+					postSearchHitDto.setTitle(summary.getTitle());
+					postSearchHitDto.setDescription(summary.getDescription());
+					postSearchHitDto.setCommentCount(summary.getCommentCount());
+					postSearchHitDto.setViewCount(summary.getViewCount());
+					postSearchHitDto.setScore(hit.getScore());
+					return postSearchHitDto;
+				}).collect(Collectors.toList());
+
+		long totalPages = (searchResult.getTotalHits() + pageSize - 1) / pageSize;
+		ResponsePostSearchPagesDto responsePostSearchPagesDto = new ResponsePostSearchPagesDto();
+		responsePostSearchPagesDto.setQuery(query);
+		responsePostSearchPagesDto.setPageNo(pageNo);
+		responsePostSearchPagesDto.setPageSize(pageSize);
+		responsePostSearchPagesDto.setTotalElements(searchResult.getTotalHits());
+		responsePostSearchPagesDto.setTotalPages(totalPages);
+		responsePostSearchPagesDto.setLast(pageNo + 1 >= totalPages);
+		responsePostSearchPagesDto.setPosts(postsDto);
+
+		return responsePostSearchPagesDto;
+	}
+
+	/**
+	 * Exports all the posts with their comments as newline-delimited JSON, one post
+	 * per line, sorted by id. The posts are streamed from a JDBC cursor straight to
+	 * the output, so the memory use does not depend on the amount of the posts
+	 *
+	 * @param outputStream the stream to write to, left open
+	 * @return amount of the exported posts
+	 * @throws IOException if writing to the stream fails
+	 */
+	@Override
+	public long exportPosts(OutputStream outputStream) throws IOException {
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.setRootValueSeparator(null);
+			PostNdjsonWriter writer = new PostNdjsonWriter(generator, EXPORT_FLUSH_INTERVAL);
+
+			try {
+				postRepository.streamAllWithComments(writer);
+			} catch (UncheckedIOException ex) {
+				throw ex.getCause();
+			}
+
+			return writer.finish();
+		}
+	}
+
+	/**
+	 * Retrieves a post by id. The result is cached until the post or one of its
+	 * comments changes, see CacheConfiguration
 	 *
 	 * @param id post's id
 	 * @return ResponsePostDto object
 	 * @throws ResourceNotFoundException if no post found with given id
 	 */
 	@Override
+	@Cacheable(cacheNames = CacheConfiguration.POSTS, key = "#id")
 	public ResponsePostDto getPostById(long id) {
 		Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
-		ResponsePostDto responsePostDto = mapper.map(post, ResponsePostDto.class);
+		ResponsePostDto responsePostDto = mapper.toResponsePostDto(post);
 		return responsePostDto;
 	}
 
 	/**
-	 * Updates a post by id
+	 * Retrieves the version of a post without loading the post or its comments,
+	 * enough to answer a conditional request
+	 *
+	 * @param id post's id
+	 * @return PostVersionDto object
+	 * @throws ResourceNotFoundException if no post found with given id
+	 */
+	@Override
+	public PostVersionDto getPostVersion(long id) {
+		EntityVersion version = postRepository.findVersionById(id)
+				.orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
+
+		PostVersionDto postVersionDto = new PostVersionDto();
+		postVersionDto.setVersion(version.getVersion());
+		postVersionDto.setLastModified(version.getLastModified());
+		return postVersionDto;
+	}
+
+	/**
+	 * Updates a post by id. The version read with the post is checked when the
+	 * post is saved, so a concurrent update is rejected instead of overwritten
 	 *
-	 * @param id            post's id
-	 * @param updatePostDto data for updates
+	 * @param id              post's id
+	 * @param updatePostDto   data for updates
+	 * @param expectedVersion version the update is based on (If-Match), or null
+	 *                        to update any version
 	 * @return ResponsePostDto object
-	 * @throws ResourceNotFoundException if no post found with provided id
-	 * @throws AlreadyExistsException    if the post with same title already exists
+	 * @throws ResourceNotFoundException          if no post found with provided id
+	 * @throws AlreadyExistsException             if the post with same title
+	 *                                            already exists
+	 * @throws PreconditionFailedException        if the post is not at the
+	 *                                            expected version
+	 * @throws OptimisticLockingFailureException if the post was changed
+	 *                                            concurrently
 	 */
 	@Override
-	public ResponsePostDto updatePost(UpdatePostDto updatePostDto, long id) {
+	@Transactional
+	@CacheEvict(cacheNames = CacheConfiguration.POSTS, key = "#id")
+	public ResponsePostDto updatePost(UpdatePostDto updatePostDto, long id, Long expectedVersion) {
 		Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
+		checkVersion(post, expectedVersion);
 
+		String oldTitle = post.getTitle();
 		if (updatePostDto.getTitle() != null) {
-			Optional<Post> checkPostOptional = postRepository.findByTitle(updatePostDto.getTitle());
-			if (checkPostOptional.isPresent()) {
-				throw new AlreadyExistsException("Post", "title", updatePostDto.getTitle());
-			} else {
-				post.setTitle(updatePostDto.getTitle());
-			}
+			checkTitleNotTaken(updatePostDto.getTitle());
+			post.setTitle(updatePostDto.getTitle());
 		}
 		if (updatePostDto.getDescription() != null)
 			post.setDescription(updatePostDto.getDescription());
 		if (updatePostDto.getContent() != null)
 			post.setContent(updatePostDto.getContent());
 
-		Post updatedPost = postRepository.save(post);
-		ResponsePostDto responsePostDto = mapper.map(updatedPost, ResponsePostDto.class);
+		Post updatedPost = saveWithTitle(post);
+		String title = updatedPost.getTitle();
+		String description = updatedPost.getDescription();
+		String content = updatedPost.getContent();
+		TransactionCallbacks.afterCommit(() -> {
+			postSearchIndex.index(id, title, description, content);
+			postTitleIndex.rename(id, oldTitle, title);
+		});
+		ResponsePostDto responsePostDto = mapper.toResponsePostDto(updatedPost);
 		return responsePostDto;
 	}
 
 	/**
-	 * Partially updates a post by id
+	 * Partially updates one field of a post by id, with the same version checks
+	 * as updatePost(), see mergePatchPost()
 	 * 
-	 * @param id           post's id
-	 * @param patchPostDto data for updates (the method name and the value to
-	 *                     update)
+	 * @param id              post's id
+	 * @param patchPostDto    data for updates (the setter name of the field and
+	 *                        the value)
+	 * @param expectedVersion version the update is based on (If-Match), or null
+	 *                        to update any version
 	 * @return ResponsePostDto object
-	 * @throws NoSuchMethodException     if invalid method name
-	 * @throws ResourceNotFoundException if no post with given id
-	 * @throws AlreadyExistsException    if the post with same title already exists
+	 * @throws ResourceNotFoundException          if no post with given id
+	 * @throws BlogApiException                   if no such field or the value is
+	 *                                            too short (400 Bad request)
+	 * @throws AlreadyExistsException             if the post with same title
+	 *                                            already exists
+	 * @throws PreconditionFailedException        if the post is not at the
+	 *                                            expected version
+	 * @throws OptimisticLockingFailureException if the post was changed
+	 *                                            concurrently
 	 */
 	@Override
-	public ResponsePostDto partialUpdatePost(long id, PatchPostDto patchPostDto) throws NoSuchMethodException,
-			SecurityException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-		if (patchPostDto.getFieldName().equals("setTitle")) {
-			Optional<Post> checkTitlePost = postRepository.findByTitle(patchPostDto.getFieldValue());
-			if (checkTitlePost.isPresent()) {
-				throw new AlreadyExistsException("Post", "title", patchPostDto.getFieldValue());
-			}
-		}
+	@Transactional
+	@CacheEvict(cacheNames = CacheConfiguration.POSTS, key = "#id")
+	public ResponsePostDto partialUpdatePost(long id, PatchPostDto patchPostDto, Long expectedVersion) {
 		Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
-		Method method = null;
-		try {
-			method = post.getClass().getMethod(patchPostDto.getFieldName(), String.class);
-			method.invoke(post, patchPostDto.getFieldValue());
-		} catch (Exception ex) {
-			throw new BlogApiException(ex.getMessage(), HttpStatus.BAD_REQUEST);
+		checkVersion(post, expectedVersion);
+
+		PostPatchField field = PostPatchField.bySetterName(patchPostDto.getFieldName())
+				.orElseThrow(() -> new BlogApiException(
+						String.format("Post has no field set by '%s'", patchPostDto.getFieldName()),
+						HttpStatus.BAD_REQUEST));
+		Map<PostPatchField, String> changes = new EnumMap<>(PostPatchField.class);
+		changes.put(field, patchPostDto.getFieldValue());
+		return applyPatch(post, changes);
+	}
+
+	/**
+	 * Updates the fields of a post present in a JSON merge patch (RFC 7396), in a
+	 * single load and a single update of the changed columns. The fields are
+	 * applied through PostPatchField, the fields of a post cannot be removed
+	 * 
+	 * @param id              post's id
+	 * @param mergePatch      the new values by the field name
+	 * @param expectedVersion version the update is based on (If-Match), or null
+	 *                        to update any version
+	 * @return ResponsePostDto object
+	 * @throws ResourceNotFoundException          if no post with given id
+	 * @throws BlogApiException                   if no such field, the value is
+	 *                                            not a string, null or too short
+	 *                                            (400 Bad request)
+	 * @throws AlreadyExistsException             if the post with same title
+	 *                                            already exists
+	 * @throws PreconditionFailedException        if the post is not at the
+	 *                                            expected version
+	 * @throws OptimisticLockingFailureException if the post was changed
+	 *                                            concurrently
+	 */
+	@Override
+	@Transactional
+	@CacheEvict(cacheNames = CacheConfiguration.POSTS, key = "#id")
+	public ResponsePostDto mergePatchPost(long id, Map<String, Object> mergePatch, Long expectedVersion) {
+		Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
+		checkVersion(post, expectedVersion);
+
+		Map<PostPatchField, String> changes = new EnumMap<>(PostPatchField.class);
+		for (Map.Entry<String, Object> entry : mergePatch.entrySet()) {
+			PostPatchField field = PostPatchField.byName(entry.getKey()).orElseThrow(() -> new BlogApiException(
+					String.format("Post has no field '%s'", entry.getKey()), HttpStatus.BAD_REQUEST));
+			if (!(entry.getValue() instanceof String value)) {
+				throw new BlogApiException(String.format("Post's %s should be a string", field.getName()),
+						HttpStatus.BAD_REQUEST);
+			}
+			changes.put(field, value);
 		}
-		Post updatedPost = postRepository.save(post);
-		ResponsePostDto responsePostDto = mapper.map(updatedPost, ResponsePostDto.class);
-		return responsePostDto;
+		return applyPatch(post, changes);
 	}
 
 	/**
@@ -173,10 +623,180 @@ public class PostServiceImpl implements PostService {
 	 * @throws ResourceNotFoundException if no post found with provided id
 	 */
 	@Override
+	@Transactional
+	@CacheEvict(cacheNames = CacheConfiguration.POSTS, key = "#id")
 	public DeletePostDto deletePost(long id) {
 		Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
 		postRepository.delete(post);
+		String title = post.getTitle();
+		TransactionCallbacks.afterCommit(() -> {
+			postSearchIndex.remove(id);
+			postTitleIndex.remove(title);
+		});
 		DeletePostDto deletePostDto = new DeletePostDto(id);
 		return deletePostDto;
 	}
+
+	/**
+	 * Loads the posts with their comments in one query instead of one lazy comment
+	 * query per post, keeping the order of the given ids
+	 *
+	 * @param ids posts' ids
+	 * @return List<Post> with initialized comments
+	 */
+	private List<Post> findAllWithComments(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		Map<Long, Post> postsById = postRepository.findAllWithCommentsByIdIn(ids).stream()
+				.collect(Collectors.toMap(Post::getId, Function.identity(), (post, duplicate) -> post));
+
+		return ids.stream().map(postsById::get).filter(Objects::nonNull).collect(Collectors.toList());
+	}
+
+	// The last modification time of a new post is set by the database, so it is read back
+	private ResponsePostDto withVersion(ResponsePostDto responsePostDto) {
+		postRepository.findVersionById(responsePostDto.getId()).ifPresent(version -> {
+			responsePostDto.setVersion(version.getVersion());
+			responsePostDto.setLastModified(version.getLastModified());
+		});
+		return responsePostDto;
+	}
+
+	/**
+	 * Applies the validated changes to the managed post and flushes them, so
+	 * Hibernate updates the changed columns (see @DynamicUpdate) with a version
+	 * check. Unchanged values are no change, the version stays the same then
+	 */
+	private ResponsePostDto applyPatch(Post post, Map<PostPatchField, String> changes) {
+		String oldTitle = post.getTitle();
+		for (Map.Entry<PostPatchField, String> change : changes.entrySet()) {
+			PostPatchField field = change.getKey();
+			if (!field.isValid(change.getValue())) {
+				throw new BlogApiException(String.format("Post's %s should have at least %s characters",
+						field.getName(), field.getMinLength()), HttpStatus.BAD_REQUEST);
+			}
+			if (field == PostPatchField.TITLE && !change.getValue().equals(oldTitle)) {
+				checkTitleNotTaken(change.getValue());
+			}
+		}
+		changes.forEach((field, value) -> field.set(post, value));
+
+		Post updatedPost = saveWithTitle(post);
+		long id = updatedPost.getId();
+		String title = updatedPost.getTitle();
+		String description = updatedPost.getDescription();
+		String content = updatedPost.getContent();
+		TransactionCallbacks.afterCommit(() -> {
+			postSearchIndex.index(id, title, description, content);
+			postTitleIndex.rename(id, oldTitle, title);
+		});
+		ResponsePostDto responsePostDto = mapper.toResponsePostDto(updatedPost);
+		return responsePostDto;
+	}
+
+	private void checkVersion(Post post, Long expectedVersion) {
+		if (expectedVersion != null && expectedVersion != post.getVersion()) {
+			throw new PreconditionFailedException("Post", post.getId(), post.getVersion());
+		}
+	}
+
+	private void checkTitleNotTaken(String title) {
+		if (postTitleIndex.contains(title)) {
+			throw new AlreadyExistsException("Post", "title", title);
+		}
+	}
+
+	/**
+	 * Saves and flushes the post, a title taken since checkTitleNotTaken() violates
+	 * the unique constraint, also within a transaction
+	 *
+	 * @throws AlreadyExistsException         if the title is already taken
+	 * @throws DataIntegrityViolationException if another constraint is violated
+	 */
+	private Post saveWithTitle(Post post) {
+		try {
+			return postRepository.saveAndFlush(post);
+		} catch (DataIntegrityViolationException ex) {
+			if (isTitleConstraintViolation(ex)) {
+				throw new AlreadyExistsException("Post", "title", post.getTitle());
+			}
+			throw ex;
+		}
+	}
+
+	private static boolean isTitleConstraintViolation(DataIntegrityViolationException ex) {
+		// Some drivers report the name of the index backing the constraint, with a suffix
+		return ex.getCause() instanceof ConstraintViolationException violation
+				&& violation.getConstraintName() != null
+				&& violation.getConstraintName().toLowerCase(Locale.ROOT).contains(Post.TITLE_CONSTRAINT);
+	}
+
+	private Sort getSort(String sortBy, String sortDir) {
+		return sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.by(sortBy).ascending()
+				: Sort.by(sortBy).descending();
+	}
+
+	/**
+	 * Seeks the ids of the next keyset page
+	 *
+	 * @throws BlogApiException if the cursor, the sorting field or the page size is
+	 *                          invalid
+	 */
+	private KeysetPage findNextPage(String cursor, int pageSize, String sortBy, String sortDir) {
+		Sort.Direction direction = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.Direction.ASC
+				: Sort.Direction.DESC;
+		PostCursor.checkSortField(sortBy);
+		if (pageSize < 1) {
+			throw new BlogApiException("Page size should be greater than zero", HttpStatus.BAD_REQUEST);
+		}
+
+		Object lastValue = null;
+		Long lastId = null;
+		if (cursor != null && !cursor.isEmpty()) {
+			PostCursor previous = PostCursor.decode(cursor, sortBy, direction);
+			lastValue = previous.getLastValue();
+			lastId = previous.getLastId();
+		}
+
+		// One extra row tells whether there is a next page without counting
+		List<Tuple> keys = postRepository.findNextPageKeys(sortBy, direction, lastValue, lastId, pageSize + 1);
+		KeysetPage keysetPage = new KeysetPage();
+		keysetPage.last = keys.size() <= pageSize;
+		if (!keysetPage.last) {
+			keys = keys.subList(0, pageSize);
+			Tuple lastKey = keys.get(pageSize - 1);
+			Long keyId = lastKey.get(PostRepository.ID, Long.class);
+			Object keyValue = "id".equals(sortBy) ? keyId : lastKey.get(PostRepository.SORT_VALUE);
+			keysetPage.nextCursor = new PostCursor(sortBy, direction, keyId, keyValue).encode();
+		}
+		keysetPage.ids = keys.stream().map(key -> key.get(PostRepository.ID, Long.class))
+				.collect(Collectors.toList());
+
+		return keysetPage;
+	}
+
+	private void checkSummarySortField(String sortBy) {
+		if (!SUMMARY_SORT_FIELDS.contains(sortBy)) {
+			String message = String.format("Sorting the summaries by '%s' is not supported", sortBy);
+			throw new BlogApiException(message, HttpStatus.BAD_REQUEST);
+		}
+	}
+
+	private PostSummaryDto mapToSummaryDto(PostSummary summary) {
+		PostSummaryDto postSummaryDto = new PostSummaryDto();
+		postSummaryDto.setId(summary.getId());
+		postSummaryDto.setTitle(summary.getTitle());
+		postSummaryDto.setDescription(summary.getDescription());
+		postSummaryDto.setCommentCount(summary.getCommentCount());
+		postSummaryDto.setViewCount(summary.getViewCount());
+		return postSummaryDto;
+	}
+
+	private static class KeysetPage {
+		private List<Long> ids;
+		private String nextCursor;
+		private boolean last;
+	}
 }
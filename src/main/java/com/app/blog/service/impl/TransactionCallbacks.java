@@ -0,0 +1,29 @@
+package com.app.blog.service.impl;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers the in-memory side effects of a service call (the indexes, the
+ * trending counters) to the commit, so a rolled back transaction leaves them
+ * untouched
+ */
+final class TransactionCallbacks {
+	private TransactionCallbacks() {
+	}
+
+	// Runs the action once the current transaction commits, or at once without one
+	static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+}
@@ -0,0 +1,116 @@
+package com.app.blog.views;
+
+import com.app.blog.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the views of the posts in memory and adds them to posts.view_count
+ * every app.posts.views.flush-interval-ms with batched updates, instead of one
+ * update per view. Recording a view is a map lookup and a LongAdder increment,
+ * which spreads contended increments over striped cells, so no lock is taken
+ * and parallel views of a popular post do not serialize.
+ *
+ * The pending views are flushed once more on a graceful shutdown. Views not yet
+ * flushed when the process dies are lost, at most one flush interval of them.
+ */
+@Component
+public class PostViewCounter {
+	private static final Logger logger = LoggerFactory.getLogger(PostViewCounter.class);
+
+	private final ConcurrentMap<Long, LongAdder> views = new ConcurrentHashMap<>();
+
+	private PostRepository postRepository;
+
+	public PostViewCounter(PostRepository postRepository) {
+		this.postRepository = postRepository;
+	}
+
+	public void record(long postId) {
+		LongAdder adder = views.get(postId);
+		if (adder == null) {
+			adder = views.computeIfAbsent(postId, key -> new LongAdder());
+		}
+		adder.increment();
+		if (views.get(postId) != adder) {
+			// Dropped as idle by a flush meanwhile, the view goes to the current adder
+			long orphaned = adder.sumThenReset();
+			if (orphaned != 0) {
+				views.computeIfAbsent(postId, key -> new LongAdder()).add(orphaned);
+			}
+		}
+	}
+
+	/**
+	 * @param postId post's id
+	 * @return views of the post recorded since the last flush
+	 */
+	public long pending(long postId) {
+		LongAdder adder = views.get(postId);
+		return adder == null ? 0 : adder.sum();
+	}
+
+	/**
+	 * @return amount of the posts with an adder, viewed since the previous flush
+	 */
+	public int trackedPosts() {
+		return views.size();
+	}
+
+	/**
+	 * Adds the views recorded since the last flush to the posts. The adders are
+	 * drained one by one, a view recorded meanwhile goes to the next flush. If the
+	 * update fails, the views are put back. The adders of the deleted posts, and
+	 * of the posts not viewed since the previous flush, are dropped
+	 *
+	 * @return amount of the flushed views
+	 */
+	@Scheduled(fixedDelayString = "${app.posts.views.flush-interval-ms:5000}")
+	public synchronized long flush() {
+		// Sorted by id, so the rows are always locked in the same order
+		Map<Long, Long> deltas = new TreeMap<>();
+		views.forEach((postId, adder) -> {
+			long delta = adder.sumThenReset();
+			if (delta == 0 && views.remove(postId, adder)) {
+				// A view recorded before the removal is drained here, a later one by
+				// record(), which then no longer finds the adder
+				delta = adder.sumThenReset();
+			}
+			if (delta != 0) {
+				deltas.put(postId, delta);
+			}
+		});
+		if (deltas.isEmpty()) {
+			return 0;
+		}
+
+		List<Long> missingIds;
+		try {
+			missingIds = postRepository.addToViewCounts(deltas);
+		} catch (DataAccessException ex) {
+			deltas.forEach((postId, delta) -> views.computeIfAbsent(postId, key -> new LongAdder()).add(delta));
+			logger.warn("Failed to flush the views of {} posts, retrying with the next flush", deltas.size(), ex);
+			return 0;
+		}
+
+		missingIds.forEach(views::remove);
+		return deltas.values().stream().mapToLong(Long::longValue).sum();
+	}
+
+	@PreDestroy
+	public void flushOnShutdown() {
+		long flushed = flush();
+		logger.info("Flushed {} post views on shutdown", flushed);
+	}
+}
@@ -0,0 +1,237 @@
+package com.app.blog.views;
+
+import com.app.blog.repository.PostRepository;
+import com.app.blog.repository.PostSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the posts with the most recent activity (views and comments) with the
+ * Space-Saving heavy hitters algorithm over time-decayed weights. An event
+ * weighs half as much after every app.posts.trending.half-life-seconds.
+ *
+ * The decay is forward: an event at time t adds exp(lambda * (t - landmark)) to
+ * the counter of the post, so older counters never need to be touched, and the
+ * counters are scaled down only when the landmark moves. Space-Saving keeps at
+ * most app.posts.trending.capacity counters; a new post takes over the counter
+ * with the smallest weight and inherits it, so the weight of a post is
+ * overestimated by at most that smallest weight and the memory does not depend
+ * on the amount of the posts.
+ *
+ * The counters are split into STRIPES by thread, each with its own lock, so the
+ * recording threads rarely wait for each other. Every
+ * app.posts.trending.refresh-interval-ms the stripes are merged into a snapshot
+ * of the top posts with their summaries, which is what the readers get.
+ */
+@Component
+public class TrendingPosts {
+	public static final double VIEW_WEIGHT = 1;
+
+	private static final int STRIPES = 8;
+
+	// The landmark moves once the weight of a new event exceeds exp(MAX_EXPONENT)
+	private static final double MAX_EXPONENT = 20;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+	private final double lambda;
+	private final int capacityPerStripe;
+	private final int size;
+	private final double commentWeight;
+
+	private PostRepository postRepository;
+
+	private volatile Snapshot snapshot = new Snapshot(Instant.EPOCH, Collections.emptyList());
+
+	public TrendingPosts(PostRepository postRepository,
+			@Value("${app.posts.trending.capacity:1024}") int capacity,
+			@Value("${app.posts.trending.half-life-seconds:600}") long halfLifeSeconds,
+			@Value("${app.posts.trending.size:50}") int size,
+			@Value("${app.posts.trending.comment-weight:5}") double commentWeight) {
+		this.postRepository = postRepository;
+		this.size = size;
+		this.commentWeight = commentWeight;
+		this.capacityPerStripe = Math.max(1, capacity / STRIPES);
+		this.lambda = Math.log(2) / (halfLifeSeconds * 1000.0);
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe(now);
+		}
+	}
+
+	public void recordView(long postId) {
+		record(postId, VIEW_WEIGHT, System.currentTimeMillis());
+	}
+
+	public void recordComment(long postId) {
+		record(postId, commentWeight, System.currentTimeMillis());
+	}
+
+	/**
+	 * Adds the weight of an event of the post at the given time
+	 *
+	 * @param postId     post's id
+	 * @param weight     weight of the event before the decay
+	 * @param timeMillis time of the event, not far behind the current time
+	 */
+	public void record(long postId, double weight, long timeMillis) {
+		Stripe stripe = stripes[(int) (Thread.currentThread().getId() % STRIPES)];
+		synchronized (stripe) {
+			double exponent = lambda * (timeMillis - stripe.landmark);
+			if (exponent > MAX_EXPONENT) {
+				stripe.moveLandmark(timeMillis, lambda);
+				exponent = 0;
+			}
+			stripe.add(postId, weight * Math.exp(exponent), capacityPerStripe);
+		}
+	}
+
+	/**
+	 * @return amount of the tracked posts, at most app.posts.trending.capacity
+	 */
+	public int trackedPosts() {
+		int tracked = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				tracked += stripe.counters.size();
+			}
+		}
+		return tracked;
+	}
+
+	public Snapshot snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Merges the stripes into a new snapshot of the top posts. The summaries of
+	 * the posts are read with one query, the deleted posts are skipped
+	 */
+	@Scheduled(fixedDelayString = "${app.posts.trending.refresh-interval-ms:5000}")
+	public void refresh() {
+		long now = System.currentTimeMillis();
+		Map<Long, Double> scores = new HashMap<>();
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				double decay = Math.exp(-lambda * (now - stripe.landmark));
+				stripe.counters.forEach((postId, counter) -> scores.merge(postId, counter.weight * decay, Double::sum));
+			}
+		}
+
+		// Some of the candidates might have been deleted
+		List<Map.Entry<Long, Double>> candidates = scores.entrySet().stream()
+				.sorted(Map.Entry.<Long, Double>comparingByValue().reversed()).limit(2L * size)
+				.collect(Collectors.toList());
+		Map<Long, PostSummary> summariesById = candidates.isEmpty() ? Collections.emptyMap()
+				: postRepository.findSummariesByIdIn(candidates.stream().map(Map.Entry::getKey)
+						.collect(Collectors.toList())).stream()
+						.collect(Collectors.toMap(PostSummary::getId, Function.identity()));
+
+		List<TrendingPost> posts = candidates.stream().filter(candidate -> summariesById.containsKey(candidate.getKey()))
+				.limit(size).map(candidate -> new TrendingPost(summariesById.get(candidate.getKey()),
+						candidate.getValue()))
+				.collect(Collectors.toList());
+		snapshot = new Snapshot(Instant.ofEpochMilli(now), Collections.unmodifiableList(posts));
+	}
+
+	public static class Snapshot {
+		private final Instant refreshedAt;
+		private final List<TrendingPost> posts;
+
+		private Snapshot(Instant refreshedAt, List<TrendingPost> posts) {
+			this.refreshedAt = refreshedAt;
+			this.posts = posts;
+		}
+
+		public Instant getRefreshedAt() {
+			return refreshedAt;
+		}
+
+		// Best first
+		public List<TrendingPost> getPosts() {
+			return posts;
+		}
+	}
+
+	public static class TrendingPost {
+		private final PostSummary summary;
+		private final double score;
+
+		private TrendingPost(PostSummary summary, double score) {
+			this.summary = summary;
+			this.score = score;
+		}
+
+		public PostSummary getSummary() {
+			return summary;
+		}
+
+		// Decayed weight of the activity at the time of the snapshot
+		public double getScore() {
+			return score;
+		}
+	}
+
+	private static class Counter {
+		private final long postId;
+		private double weight;
+
+		private Counter(long postId, double weight) {
+			this.postId = postId;
+			this.weight = weight;
+		}
+	}
+
+	private static class Stripe {
+		private final Map<Long, Counter> counters = new HashMap<>();
+		private TreeSet<Counter> byWeight = newByWeight();
+		private long landmark;
+
+		private Stripe(long landmark) {
+			this.landmark = landmark;
+		}
+
+		private static TreeSet<Counter> newByWeight() {
+			return new TreeSet<>(Comparator.comparingDouble((Counter counter) -> counter.weight)
+					.thenComparingLong(counter -> counter.postId));
+		}
+
+		private void add(long postId, double weight, int capacity) {
+			Counter counter = counters.get(postId);
+			if (counter != null) {
+				byWeight.remove(counter);
+				counter.weight += weight;
+			} else if (counters.size() < capacity) {
+				counter = new Counter(postId, weight);
+				counters.put(postId, counter);
+			} else {
+				Counter smallest = byWeight.pollFirst();
+				counters.remove(smallest.postId);
+				counter = new Counter(postId, smallest.weight + weight);
+				counters.put(postId, counter);
+			}
+			byWeight.add(counter);
+		}
+
+		private void moveLandmark(long newLandmark, double lambda) {
+			double scale = Math.exp(-lambda * (newLandmark - landmark));
+			byWeight = newByWeight();
+			for (Counter counter : counters.values()) {
+				counter.weight *= scale;
+				byWeight.add(counter);
+			}
+			landmark = newLandmark;
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.app.blog.benchmark;
+
+import java.security.KeyPair;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.app.blog.security.JwtKeyRing;
+import com.app.blog.security.JwtTokenProvider;
+
+/**
+ * Throughput of signing (login, refresh) and verifying (every authenticated
+ * request) a Jwt token with the shared HS512 secret and with an ES256 key pair,
+ * to choose app.jwt.algorithm per deployment. ES256 signs and verifies much
+ * slower, in exchange the verifying nodes do not hold the signing key.
+ * 
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath org.openjdk.jmh.Main JwtSignatureBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtSignatureBenchmark {
+	private static final String JWT_SECRET = "647ae4a005b6fe1eab42822419e609765bbd1bb60875dadf1ea9d19016ee50cc0236ec6f0dac8fb244f15dceb02d71584629330b4f9dac5a689619e9b71b8fc2";
+
+	@Param({ "HS512", "ES256" })
+	private String algorithm;
+
+	private JwtTokenProvider jwtTokenProvider;
+
+	private String token;
+
+	@Setup
+	public void setup() {
+		if ("ES256".equals(algorithm)) {
+			KeyPair keyPair = JwtKeyRing.generateEs256KeyPair();
+			jwtTokenProvider = new JwtTokenProvider(
+					JwtKeyRing.es256("key-1", keyPair.getPrivate(), Map.of("key-1", keyPair.getPublic()), null),
+					3_600_000);
+		} else {
+			jwtTokenProvider = new JwtTokenProvider(JWT_SECRET, 3_600_000);
+		}
+		token = jwtTokenProvider.generateToken("user-1@email.com");
+	}
+
+	@Benchmark
+	public String sign() {
+		return jwtTokenProvider.generateToken("user-1@email.com");
+	}
+
+	@Benchmark
+	public String verify() {
+		return jwtTokenProvider.validateAndGetClaims(token).getSubject();
+	}
+}
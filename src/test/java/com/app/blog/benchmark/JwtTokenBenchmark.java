@@ -0,0 +1,65 @@
+package com.app.blog.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import com.app.blog.security.JwtTokenProvider;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+
+/**
+ * Per-request cost of authenticating a Jwt token. The "parseTwiceFromSecret" benchmark
+ * reproduces the former JwtAuthenticationFilter path: validate and extract the
+ * subject with two parsers built from the Base64 secret, verifying the signature
+ * twice. The "validateAndGetClaims" benchmark is the current path.
+ * 
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath org.openjdk.jmh.Main JwtTokenBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenBenchmark {
+	private static final String JWT_SECRET = "647ae4a005b6fe1eab42822419e609765bbd1bb60875dadf1ea9d19016ee50cc0236ec6f0dac8fb244f15dceb02d71584629330b4f9dac5a689619e9b71b8fc2";
+
+	private JwtTokenProvider jwtTokenProvider;
+
+	private String token;
+
+	@Setup
+	public void setup() {
+		jwtTokenProvider = new JwtTokenProvider(JWT_SECRET, 3_600_000);
+		token = jwtTokenProvider
+				.generateToken(new UsernamePasswordAuthenticationToken("user-1@email.com", null, List.of()));
+	}
+
+	@Benchmark
+	@SuppressWarnings("deprecation")
+	public String parseTwiceFromSecret() {
+		Jwts.parser().setSigningKey(JWT_SECRET).parseClaimsJws(token);
+		Claims claims = Jwts.parser().setSigningKey(JWT_SECRET).parseClaimsJws(token).getBody();
+		return claims.getSubject();
+	}
+
+	@Benchmark
+	public String validateAndGetClaims() {
+		return jwtTokenProvider.validateAndGetClaims(token).getSubject();
+	}
+}
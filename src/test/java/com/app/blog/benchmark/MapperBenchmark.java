@@ -0,0 +1,90 @@
+package com.app.blog.benchmark;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.app.blog.dto.post.CreatePostDto;
+import com.app.blog.dto.post.PostDto;
+import com.app.blog.entity.Comment;
+import com.app.blog.entity.Post;
+import com.app.blog.mapper.CommentMapper;
+import com.app.blog.mapper.PostMapper;
+
+/**
+ * Cost of mapping a post with 10 comments to PostDto (the listing path) and of
+ * mapping CreatePostDto to a new post, with the former ModelMapper bean and with
+ * PostMapper.
+ * 
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath org.openjdk.jmh.Main MapperBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+	private ModelMapper modelMapper;
+
+	private PostMapper postMapper;
+
+	private Post post;
+
+	private CreatePostDto createPostDto;
+
+	@Setup
+	public void setup() {
+		modelMapper = new ModelMapper();
+		postMapper = new PostMapper(new CommentMapper());
+
+		post = new Post();
+		post.setId(1L);
+		post.setTitle("PostTitle-1");
+		post.setDescription("PostDescription-1");
+		post.setContent("PostContent-1");
+		for (long i = 1; i <= 10; i++) {
+			Comment comment = new Comment(i, "CommentName-" + i, "email-" + i + "@email.com", "CommentBody-" + i, 0,
+					Instant.EPOCH, post);
+			post.getComments().add(comment);
+		}
+
+		createPostDto = new CreatePostDto();
+		createPostDto.setTitle("PostTitle-1");
+		createPostDto.setDescription("PostDescription-1");
+		createPostDto.setContent("PostContent-1");
+	}
+
+	@Benchmark
+	public PostDto modelMapperToPostDto() {
+		return modelMapper.map(post, PostDto.class);
+	}
+
+	@Benchmark
+	public PostDto postMapperToPostDto() {
+		return postMapper.toPostDto(post);
+	}
+
+	@Benchmark
+	public Post modelMapperToEntity() {
+		return modelMapper.map(createPostDto, Post.class);
+	}
+
+	@Benchmark
+	public Post postMapperToEntity() {
+		return postMapper.toEntity(createPostDto);
+	}
+}
@@ -0,0 +1,59 @@
+package com.app.blog.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.app.blog.views.PostViewCounter;
+
+/**
+ * Cost of recording a post view from 8 threads, all viewing the same post (the
+ * most contended case) or random posts out of 10000. Flushing is not measured,
+ * it runs off the request path.
+ * 
+ * Run with:
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath org.openjdk.jmh.Main PostViewCounterBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class PostViewCounterBenchmark {
+	private static final int POSTS = 10000;
+
+	private PostViewCounter postViewCounter;
+
+	@Setup
+	public void setup() {
+		// The repository is only used by flush()
+		postViewCounter = new PostViewCounter(null);
+		for (long postId = 1; postId <= POSTS; postId++) {
+			postViewCounter.record(postId);
+		}
+	}
+
+	@Benchmark
+	public void recordSamePost() {
+		postViewCounter.record(1);
+	}
+
+	@Benchmark
+	public void recordRandomPost() {
+		postViewCounter.record(ThreadLocalRandom.current().nextInt(POSTS) + 1);
+	}
+}
@@ -10,6 +10,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -18,15 +19,29 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import com.app.blog.dto.auth.LoginDto;
+import com.app.blog.dto.auth.RefreshTokenDto;
 import com.app.blog.dto.auth.SignupCreateDto;
+import com.app.blog.entity.Role;
+import com.app.blog.entity.User;
+import com.app.blog.repository.RevokedTokenRepository;
+import com.app.blog.repository.RoleRepository;
+import com.app.blog.repository.UserRepository;
+import com.app.blog.security.BoundedPasswordEncoder;
+import com.app.blog.security.CustomUserDetailsService;
+import com.app.blog.security.JwtTokenProvider;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * This class contains tests of the Auth controller. It utilizes H2 in-memory
  * database and data.sql initialization script.
@@ -43,6 +58,27 @@ public class AuthControllerTests {
 	@Autowired
 	private MockMvc mockMvc;
 
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private CustomUserDetailsService customUserDetailsService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private JwtTokenProvider jwtTokenProvider;
+
+	@Autowired
+	private RevokedTokenRepository revokedTokenRepository;
+
 	// Create a new user
 
 	@Test
@@ -166,4 +202,259 @@ public class AuthControllerTests {
 				.andDo(print()).andExpect(status().isUnauthorized())
 				.andExpect(jsonPath("$.errorMessage", is(equalTo("Expired Jwt token"))));
 	}
+
+	// Cache the authenticated principal
+
+	@Test
+	@Order(6)
+	public void authenticatedPrincipalCachedTestPositive() throws JsonProcessingException, Exception {
+		String email = "user-1@email.com";
+		LoginDto loginDto = new LoginDto();
+		loginDto.setUsernameOrEmail(email);
+		loginDto.setPassword("user-1");
+
+		MvcResult response = mockMvc.perform(post(BASE_URI + "/login").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(loginDto))).andExpect(status().isOk()).andReturn();
+		String token = objectMapper.readTree(response.getResponse().getContentAsString()).path("accessToken").asText();
+		String headerToken = String.format("Bearer %s", token);
+		userCache.removeUserFromCache(email);
+
+		// The first request loads the principal, the next ones are served from the cache
+		for (int i = 0; i < 2; i++) {
+			mockMvc.perform(get("/api/v1/posts/1").header("Authorization", headerToken)).andExpect(status().isOk());
+			UserDetails principal = userCache.getUserFromCache(email);
+			assertThat(principal).isNotNull();
+			assertThat(principal.getPassword()).isEmpty();
+			assertThat(principal.getAuthorities()).extracting("authority").contains("ROLE_ADMIN");
+		}
+
+		// Updating the user evicts the principal
+		User user = userRepository.findByEmail(email).get();
+		String name = user.getName();
+		user.setName(name + "-updated");
+		userRepository.save(user);
+		assertThat(userCache.getUserFromCache(email)).isNull();
+
+		user = userRepository.findByEmail(email).get();
+		user.setName(name);
+		userRepository.save(user);
+	}
+
+	// Verify the password on the hashing pool
+
+	@Test
+	@Order(7)
+	public void loginUserTestPositivePasswordHashingPool() throws JsonProcessingException, Exception {
+		LoginDto loginDto = new LoginDto();
+		loginDto.setUsernameOrEmail("user-1@email.com");
+		loginDto.setPassword("user-1");
+		long hashes = meterRegistry.get("executor").tag("name", BoundedPasswordEncoder.EXECUTOR_NAME).timer().count();
+
+		mockMvc.perform(post(BASE_URI + "/login").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(loginDto))).andExpect(status().isOk());
+		assertThat(meterRegistry.get("executor").tag("name", BoundedPasswordEncoder.EXECUTOR_NAME).timer().count())
+				.isEqualTo(hashes + 1);
+	}
+
+	// Revoke the token on logout
+
+	@Test
+	@Order(8)
+	public void logoutTestPositive() throws JsonProcessingException, Exception {
+		LoginDto loginDto = new LoginDto();
+		loginDto.setUsernameOrEmail("user-1@email.com");
+		loginDto.setPassword("user-1");
+
+		MvcResult response = mockMvc.perform(post(BASE_URI + "/login").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(loginDto))).andExpect(status().isOk()).andReturn();
+		String token = objectMapper.readTree(response.getResponse().getContentAsString()).path("accessToken").asText();
+		String headerToken = String.format("Bearer %s", token);
+		mockMvc.perform(get("/api/v1/posts/1").header("Authorization", headerToken)).andExpect(status().isOk());
+
+		mockMvc.perform(post(BASE_URI + "/logout").header("Authorization", headerToken))
+				.andExpect(status().isOk());
+		String jti = jwtTokenProvider.validateAndGetClaims(token).getId();
+		assertThat(revokedTokenRepository.existsById(jti)).isTrue();
+
+		// The revoked token is rejected, a new login is not
+		mockMvc.perform(get("/api/v1/posts/1").header("Authorization", headerToken))
+				.andExpect(status().isUnauthorized())
+				.andExpect(jsonPath("$.errorMessage", is(equalTo("Revoked Jwt token"))));
+		response = mockMvc.perform(post(BASE_URI + "/login").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(loginDto))).andExpect(status().isOk()).andReturn();
+		token = objectMapper.readTree(response.getResponse().getContentAsString()).path("accessToken").asText();
+		mockMvc.perform(get("/api/v1/posts/1").header("Authorization", String.format("Bearer %s", token)))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	@Order(9)
+	public void logoutTestNegativeMissingToken() throws JsonProcessingException, Exception {
+		mockMvc.perform(post(BASE_URI + "/logout")).andExpect(status().isUnauthorized());
+	}
+
+	// Renew the access token with a rotated refresh token
+
+	@Test
+	@Order(10)
+	public void refreshTestPositiveRotation() throws JsonProcessingException, Exception {
+		LoginDto loginDto = new LoginDto();
+		loginDto.setUsernameOrEmail("user-1@email.com");
+		loginDto.setPassword("user-1");
+
+		MvcResult response = mockMvc.perform(post(BASE_URI + "/login").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(loginDto))).andExpect(status().isOk())
+				.andExpect(jsonPath("$.refreshToken", is(notNullValue()))).andReturn();
+		RefreshTokenDto refreshTokenDto = new RefreshTokenDto();
+		refreshTokenDto.setRefreshToken(
+				objectMapper.readTree(response.getResponse().getContentAsString()).path("refreshToken").asText());
+		long hashes = meterRegistry.get("executor").tag("name", BoundedPasswordEncoder.EXECUTOR_NAME).timer().count();
+
+		// The refresh does not verify a password
+		response = mockMvc.perform(post(BASE_URI + "/refresh").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(refreshTokenDto))).andExpect(status().isOk())
+				.andExpect(jsonPath("$.accessToken", is(notNullValue())))
+				.andExpect(jsonPath("$.refreshToken", is(notNullValue()))).andReturn();
+		assertThat(meterRegistry.get("executor").tag("name", BoundedPasswordEncoder.EXECUTOR_NAME).timer().count())
+				.isEqualTo(hashes);
+		JsonNode root = objectMapper.readTree(response.getResponse().getContentAsString());
+		String rotated = root.path("refreshToken").asText();
+		assertThat(rotated).isNotEqualTo(refreshTokenDto.getRefreshToken());
+		mockMvc.perform(get("/api/v1/posts/1").header("Authorization",
+				String.format("Bearer %s", root.path("accessToken").asText()))).andExpect(status().isOk());
+
+		// Reusing the exchanged token revokes the family, including the rotated token
+		mockMvc.perform(post(BASE_URI + "/refresh").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(refreshTokenDto))).andExpect(status().isUnauthorized())
+				.andExpect(jsonPath("$.message", is(equalTo("Refresh token reuse detected"))));
+		refreshTokenDto.setRefreshToken(rotated);
+		mockMvc.perform(post(BASE_URI + "/refresh").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(refreshTokenDto))).andExpect(status().isUnauthorized())
+				.andExpect(jsonPath("$.message", is(equalTo("Revoked refresh token"))));
+	}
+
+	@Test
+	@Order(11)
+	public void refreshTestNegativeInvalidToken() throws JsonProcessingException, Exception {
+		RefreshTokenDto refreshTokenDto = new RefreshTokenDto();
+		refreshTokenDto.setRefreshToken("invalid");
+
+		mockMvc.perform(post(BASE_URI + "/refresh").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(refreshTokenDto))).andExpect(status().isUnauthorized())
+				.andExpect(jsonPath("$.message", is(equalTo("Invalid refresh token"))));
+	}
+
+	@Test
+	@Order(12)
+	public void logoutTestPositiveRevokesRefreshToken() throws JsonProcessingException, Exception {
+		LoginDto loginDto = new LoginDto();
+		loginDto.setUsernameOrEmail("user-1@email.com");
+		loginDto.setPassword("user-1");
+
+		MvcResult response = mockMvc.perform(post(BASE_URI + "/login").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(loginDto))).andExpect(status().isOk()).andReturn();
+		JsonNode root = objectMapper.readTree(response.getResponse().getContentAsString());
+		RefreshTokenDto refreshTokenDto = new RefreshTokenDto();
+		refreshTokenDto.setRefreshToken(root.path("refreshToken").asText());
+
+		mockMvc.perform(post(BASE_URI + "/logout").contentType(MediaType.APPLICATION_JSON)
+				.header("Authorization", String.format("Bearer %s", root.path("accessToken").asText()))
+				.content(objectMapper.writeValueAsString(refreshTokenDto))).andExpect(status().isOk());
+		mockMvc.perform(post(BASE_URI + "/refresh").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(refreshTokenDto))).andExpect(status().isUnauthorized());
+	}
+
+	// Evict the cached principal on a change of the roles or of the email
+
+	@Test
+	@Order(13)
+	public void authenticatedPrincipalEvictedTestPositiveRolesAndEmailChanged() {
+		String email = "user-2@email.com"; // see data.sql
+		String changedEmail = "user-2-changed@email.com";
+		assertThat(customUserDetailsService.loadPrincipal(email).getAuthorities()).extracting("authority")
+				.containsExactly("ROLE_USER");
+
+		// The roles only
+		User user = userRepository.findByEmail(email).get();
+		Set<Role> roles = user.getRoles();
+		user.setRoles(new HashSet<>(Set.of(roleRepository.findByName("ROLE_ADMIN").get())));
+		userRepository.save(user);
+		assertThat(userCache.getUserFromCache(email)).isNull();
+		assertThat(customUserDetailsService.loadPrincipal(email).getAuthorities()).extracting("authority")
+				.containsExactly("ROLE_ADMIN");
+
+		// The email, the principal cached under the former one is evicted
+		user = userRepository.findByEmail(email).get();
+		user.setEmail(changedEmail);
+		userRepository.save(user);
+		assertThat(userCache.getUserFromCache(email)).isNull();
+
+		user = userRepository.findByEmail(changedEmail).get();
+		user.setEmail(email);
+		user.setRoles(new HashSet<>(roles));
+		userRepository.save(user);
+		assertThat(customUserDetailsService.loadPrincipal(email).getAuthorities()).extracting("authority")
+				.containsExactly("ROLE_USER");
+	}
+
+	// Log out with the refresh token alone, refresh for a deleted user
+
+	@Test
+	@Order(14)
+	public void logoutTestPositiveRefreshTokenOnly() throws JsonProcessingException, Exception {
+		LoginDto loginDto = new LoginDto();
+		loginDto.setUsernameOrEmail("user-1@email.com");
+		loginDto.setPassword("user-1");
+
+		MvcResult response = mockMvc.perform(post(BASE_URI + "/login").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(loginDto))).andExpect(status().isOk()).andReturn();
+		RefreshTokenDto refreshTokenDto = new RefreshTokenDto();
+		refreshTokenDto.setRefreshToken(
+				objectMapper.readTree(response.getResponse().getContentAsString()).path("refreshToken").asText());
+
+		// An invalid access token does not fail the logout of a valid refresh token
+		mockMvc.perform(post(BASE_URI + "/logout").contentType(MediaType.APPLICATION_JSON)
+				.header("Authorization", "Bearer invalid").content(objectMapper.writeValueAsString(refreshTokenDto)))
+				.andExpect(status().isOk());
+		mockMvc.perform(post(BASE_URI + "/refresh").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(refreshTokenDto))).andExpect(status().isUnauthorized())
+				.andExpect(jsonPath("$.message", is(equalTo("Revoked refresh token"))));
+		mockMvc.perform(post(BASE_URI + "/logout").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(refreshTokenDto))).andExpect(status().isUnauthorized())
+				.andExpect(jsonPath("$.message", is(equalTo("Invalid refresh token"))));
+		mockMvc.perform(post(BASE_URI + "/logout")).andExpect(status().isUnauthorized())
+				.andExpect(jsonPath("$.message", is(equalTo("Missing Jwt token"))));
+	}
+
+	@Test
+	@Order(15)
+	public void refreshTestNegativeDeletedUser() throws JsonProcessingException, Exception {
+		SignupCreateDto signupCreateDto = new SignupCreateDto();
+		signupCreateDto.setEmail("deleted-user@email.com");
+		signupCreateDto.setUsername("deleted-user");
+		signupCreateDto.setName("deleted-user");
+		signupCreateDto.setPassword("deleted-user");
+		mockMvc.perform(post(BASE_URI + "/signup").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(signupCreateDto))).andExpect(status().isCreated());
+
+		LoginDto loginDto = new LoginDto();
+		loginDto.setUsernameOrEmail(signupCreateDto.getEmail());
+		loginDto.setPassword(signupCreateDto.getPassword());
+		MvcResult response = mockMvc.perform(post(BASE_URI + "/login").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(loginDto))).andExpect(status().isOk()).andReturn();
+		RefreshTokenDto refreshTokenDto = new RefreshTokenDto();
+		refreshTokenDto.setRefreshToken(
+				objectMapper.readTree(response.getResponse().getContentAsString()).path("refreshToken").asText());
+
+		// The roles are cascaded, detach them before deleting the user
+		User user = userRepository.findByEmail(signupCreateDto.getEmail()).get();
+		user.setRoles(new HashSet<>());
+		userRepository.delete(userRepository.save(user));
+		mockMvc.perform(post(BASE_URI + "/refresh").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(refreshTokenDto))).andExpect(status().isUnauthorized())
+				.andExpect(jsonPath("$.message", is(equalTo("Unknown user of the refresh token"))));
+		mockMvc.perform(post(BASE_URI + "/refresh").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(refreshTokenDto))).andExpect(status().isUnauthorized())
+				.andExpect(jsonPath("$.message", is(equalTo("Revoked refresh token"))));
+	}
 }
@@ -14,6 +14,7 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -31,6 +32,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -117,7 +119,8 @@ public class CommentControllerTests {
 
 		String responseBody = mvcResult.getResponse().getContentAsString();
 		JsonNode jsonNode = new ObjectMapper().readTree(responseBody);
-		Iterator<JsonNode> elements = jsonNode.elements();
+		assertThat(jsonNode.path("totalElements").asLong()).isEqualTo(2);
+		Iterator<JsonNode> elements = jsonNode.path("comments").elements();
 		List<JsonNode> commentNodes = new ArrayList<>();
 		while (elements.hasNext())
 			commentNodes.add(elements.next());
@@ -164,7 +167,9 @@ public class CommentControllerTests {
 				.andExpect(status().isOk()).andReturn();
 
 		String responseBody = mvcResult.getResponse().getContentAsString();
-		assertThat(responseBody).isEqualTo("[]");
+		JsonNode jsonNode = new ObjectMapper().readTree(responseBody);
+		assertThat(jsonNode.path("comments").isEmpty()).isTrue();
+		assertThat(jsonNode.path("totalElements").asLong()).isEqualTo(0);
 	}
 
 	/**
@@ -375,4 +380,141 @@ public class CommentControllerTests {
 				.andExpect(jsonPath("$.timestamp", is(notNullValue())))
 				.andExpect(jsonPath("$.stackTrace", is(notNullValue())));
 	}
+
+	/**
+	 * Retrieves comments by post id by cursor, positive (200 OK)
+	 */
+	@Test
+	@Order(14)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	public void getCommentsByPostIdByCursorTestPositive() throws Exception {
+		long postId = 2; // see data.sql
+		String POSTFIX = String.format("/posts/%s/comments", postId);
+
+		MvcResult mvcResult = mockMvc
+				.perform(get(BASE_URI + POSTFIX).param("cursor", "").param("pageSize", "1")
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.pageSize", is(equalTo(1))))
+				.andExpect(jsonPath("$.last", is(equalTo(false))))
+				.andExpect(jsonPath("$.comments[0].id", is(equalTo(3)))).andReturn();
+		String nextCursor = new ObjectMapper().readTree(mvcResult.getResponse().getContentAsString())
+				.path("nextCursor").asText();
+
+		mockMvc.perform(get(BASE_URI + POSTFIX).param("cursor", nextCursor).param("pageSize", "1")
+				.contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.last", is(equalTo(true))))
+				.andExpect(jsonPath("$.nextCursor", is(nullValue())))
+				.andExpect(jsonPath("$.comments[0].id", is(equalTo(4))));
+	}
+
+	/**
+	 * Retrieves comments by post id, the page size is capped (200 OK)
+	 */
+	@Test
+	@Order(15)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	public void getCommentsByPostIdTestPositivePageSizeCapped() throws Exception {
+		long postId = 2; // see data.sql
+		String POSTFIX = String.format("/posts/%s/comments", postId);
+
+		mockMvc.perform(get(BASE_URI + POSTFIX).param("pageSize", "100000").contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.pageSize", is(equalTo(CommentDefaults.MAX_PAGE_SIZE))));
+	}
+
+	/**
+	 * Retrieves a comment and the comments of its post with the conditional
+	 * headers, positive (304 Not modified)
+	 */
+	@Test
+	@Order(16)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	public void getCommentByIdTestPositiveNotModified() throws Exception {
+		long postId = 2; // see data.sql
+		long commentId = 3; // see data.sql
+		String POSTFIX = String.format("/posts/%s/comments", postId);
+
+		String etag = mockMvc.perform(get(BASE_URI + POSTFIX + "/" + commentId)).andExpect(status().isOk())
+				.andExpect(header().exists(HttpHeaders.ETAG)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		mockMvc.perform(get(BASE_URI + POSTFIX + "/" + commentId).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+		mockMvc.perform(get(BASE_URI + POSTFIX + "/" + commentId).header(HttpHeaders.IF_NONE_MATCH, "\"c3-1000\""))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.id", is(equalTo((int) commentId))));
+
+		etag = mockMvc.perform(get(BASE_URI + POSTFIX)).andExpect(status().isOk()).andReturn().getResponse()
+				.getHeader(HttpHeaders.ETAG);
+		mockMvc.perform(get(BASE_URI + POSTFIX).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+		// Another page has another ETag
+		mockMvc.perform(get(BASE_URI + POSTFIX).param("cursor", "").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk());
+		mockMvc.perform(get(BASE_URI + POSTFIX).param("pageNo", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk());
+		mockMvc.perform(get(BASE_URI + POSTFIX).param("pageSize", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk());
+		etag = mockMvc.perform(get(BASE_URI + POSTFIX).param("cursor", "")).andExpect(status().isOk()).andReturn()
+				.getResponse().getHeader(HttpHeaders.ETAG);
+		mockMvc.perform(get(BASE_URI + POSTFIX).param("cursor", "").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+	}
+
+	/**
+	 * Updates a comment with If-Match, negative, the comment changed since (412
+	 * Precondition failed)
+	 */
+	@Test
+	@Order(17)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	public void updateCommentByIdTestNegativeIfMatch() throws Exception {
+		long postId = 2; // see data.sql
+		long commentId = 4; // see data.sql
+		String POSTFIX = String.format("/posts/%s/comments/%s", postId, commentId);
+		String etag = mockMvc.perform(get(BASE_URI + POSTFIX)).andExpect(status().isOk()).andReturn().getResponse()
+				.getHeader(HttpHeaders.ETAG);
+
+		CommentDto commentDto = new CommentDto();
+		commentDto.setName("CommentName-If-Match");
+		commentDto.setEmail("if-match@email.com");
+		commentDto.setBody("CommentBody-If-Match");
+		mockMvc.perform(put(BASE_URI + POSTFIX).header(HttpHeaders.IF_MATCH, etag)
+				.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(commentDto)))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.name", is(equalTo(commentDto.getName()))));
+		mockMvc.perform(put(BASE_URI + POSTFIX).header(HttpHeaders.IF_MATCH, etag)
+				.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(commentDto)))
+				.andExpect(status().isPreconditionFailed()).andExpect(jsonPath("$.code", is(equalTo(412))));
+		mockMvc.perform(get(BASE_URI + POSTFIX).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isOk());
+	}
+
+	/**
+	 * Updates a comment twice with If-Match, positive, the second update uses the
+	 * ETag returned by the first (200 OK)
+	 */
+	@Test
+	@Order(18)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	public void updateCommentByIdTestPositiveIfMatchReturnedEtag() throws Exception {
+		long postId = 1; // see data.sql
+		long commentId = 2; // see data.sql
+		String POSTFIX = String.format("/posts/%s/comments/%s", postId, commentId);
+		String etag = mockMvc.perform(get(BASE_URI + POSTFIX)).andExpect(status().isOk()).andReturn().getResponse()
+				.getHeader(HttpHeaders.ETAG);
+
+		CommentDto commentDto = new CommentDto();
+		commentDto.setName("CommentName-Returned-ETag");
+		commentDto.setEmail("returned-etag@email.com");
+		commentDto.setBody("CommentBody-Returned-ETag");
+		String newEtag = mockMvc
+				.perform(put(BASE_URI + POSTFIX).header(HttpHeaders.IF_MATCH, etag)
+						.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(commentDto)))
+				.andExpect(status().isOk()).andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+				.andExpect(jsonPath("$.version").doesNotExist()).andReturn().getResponse()
+				.getHeader(HttpHeaders.ETAG);
+		assertThat(newEtag).isNotEqualTo(etag);
+
+		commentDto.setBody("CommentBody-Returned-ETag-Again");
+		mockMvc.perform(put(BASE_URI + POSTFIX).header(HttpHeaders.IF_MATCH, newEtag)
+				.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(commentDto)))
+				.andExpect(status().isOk());
+		mockMvc.perform(get(BASE_URI + POSTFIX).header(HttpHeaders.IF_NONE_MATCH, newEtag))
+				.andExpect(status().isOk());
+	}
 }
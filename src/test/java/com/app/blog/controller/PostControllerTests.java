@@ -7,7 +7,13 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -15,6 +21,7 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
@@ -27,15 +34,24 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 
+import com.app.blog.dto.comment.CreateCommentDto;
+import com.app.blog.dto.post.BulkCreatePostsDto;
 import com.app.blog.dto.post.CreatePostDto;
 import com.app.blog.dto.post.PatchPostDto;
 import com.app.blog.dto.post.UpdatePostDto;
 import com.app.blog.exception.AlreadyExistsException;
 import com.app.blog.exception.ResourceNotFoundException;
+import com.app.blog.views.PostViewCounter;
+import com.app.blog.views.TrendingPosts;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * This class contains tests of the controller for Post resource. It utilizes H2
  * in-memory database and data.sql initialization script.
@@ -54,6 +70,15 @@ public class PostControllerTests {
 	@Autowired
 	private ObjectMapper objectMapper;
 
+	@Autowired
+	private PostViewCounter postViewCounter;
+
+	@Autowired
+	private TrendingPosts trendingPosts;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
 	/**
 	 * Creates new post (User role), positive (201 Created)
 	 */
@@ -437,4 +462,416 @@ public class PostControllerTests {
 				.andExpect(jsonPath("$.details", is(notNullValue())))
 				.andExpect(jsonPath("$.stackTrace", is(notNullValue())));
 	}
+
+	/**
+	 * Retrieves all posts with a cursor (User role), positive (200 OK)
+	 */
+	@Test
+	@Order(17)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void getAllPostsByCursorTestPositive() throws Exception {
+		int pageSize = 2;
+		String POSTFIX = String.format("?cursor=&pageSize=%s&sortBy=id&sortDir=asc", pageSize);
+
+		MvcResult mvcResult = mockMvc.perform(get(BASE_URI + POSTFIX).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.pageSize", is(equalTo(pageSize))))
+				.andExpect(jsonPath("$.last", is(equalTo(false))))
+				.andExpect(jsonPath("$.nextCursor", is(notNullValue())))
+				.andExpect(jsonPath("$.totalElements").doesNotExist())
+				.andExpect(jsonPath("$.posts.length()", is(equalTo(pageSize)))).andReturn();
+
+		String body = mvcResult.getResponse().getContentAsString();
+		String nextCursor = new ObjectMapper().readTree(body).path("nextCursor").asText();
+
+		POSTFIX = String.format("?cursor=%s&pageSize=%s&sortBy=id&sortDir=asc", nextCursor, pageSize);
+		mockMvc.perform(get(BASE_URI + POSTFIX).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.posts[0].id", is(equalTo(3))));
+	}
+
+	/**
+	 * Retrieves all posts with a cursor (User role). Negative, invalid cursor (400
+	 * Bad request)
+	 */
+	@Test
+	@Order(18)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void getAllPostsByCursorTestNegativeInvalidCursor() throws Exception {
+		String POSTFIX = "?cursor=invalid&sortBy=id&sortDir=asc";
+
+		mockMvc.perform(get(BASE_URI + POSTFIX).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest()).andExpect(jsonPath("$.httpStatus", is(equalTo("BAD_REQUEST"))))
+				.andExpect(jsonPath("$.code", is(equalTo(400))));
+	}
+
+	/**
+	 * Retrieves post summaries (User role), positive (200 OK)
+	 */
+	@Test
+	@Order(19)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void getAllPostSummariesTestPositive() throws Exception {
+		String POSTFIX = "?view=summary&pageNo=0&pageSize=2&sortBy=id&sortDir=asc";
+
+		mockMvc.perform(get(BASE_URI + POSTFIX).contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.pageNo", is(equalTo(0)))).andExpect(jsonPath("$.pageSize", is(equalTo(2))))
+				.andExpect(jsonPath("$.posts[0].id", is(equalTo(1))))
+				.andExpect(jsonPath("$.posts[0].title", is(equalTo("PostTitle-1"))))
+				.andExpect(jsonPath("$.posts[0].description", is(notNullValue())))
+				.andExpect(jsonPath("$.posts[0].content").doesNotExist())
+				.andExpect(jsonPath("$.posts[0].comments").doesNotExist());
+	}
+
+	/**
+	 * Retrieves all posts (User role). Negative, unknown view (400 Bad request)
+	 */
+	@Test
+	@Order(20)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void getAllPostsTestNegativeUnknownView() throws Exception {
+		String POSTFIX = "?view=unknown";
+
+		mockMvc.perform(get(BASE_URI + POSTFIX).contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest()).andExpect(jsonPath("$.code", is(equalTo(400))));
+	}
+
+	/**
+	 * Creates posts in bulk (Admin role), positive (200 OK)
+	 */
+	@Test
+	@Order(21)
+	@WithMockUser(username = "admin", password = "admin", roles = "ADMIN")
+	void createPostsTestPositive() throws Exception {
+		String POSTFIX = "/bulk";
+		BulkCreatePostsDto bulkCreatePostsDto = new BulkCreatePostsDto();
+		bulkCreatePostsDto.setPosts(new ArrayList<>());
+		for (String title : List.of("PostTitle-Bulk", "PostTitle-2")) {
+			CreatePostDto createPostDto = new CreatePostDto();
+			createPostDto.setTitle(title);
+			createPostDto.setDescription("PostDescription-Bulk");
+			createPostDto.setContent("PostContent-Bulk");
+			bulkCreatePostsDto.getPosts().add(createPostDto);
+		}
+
+		mockMvc.perform(post(BASE_URI + POSTFIX).contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(bulkCreatePostsDto))).andExpect(status().isOk())
+				.andExpect(jsonPath("$.created", is(equalTo(1)))).andExpect(jsonPath("$.conflicts", is(equalTo(1))))
+				.andExpect(jsonPath("$.results[0].status", is(equalTo("CREATED"))))
+				.andExpect(jsonPath("$.results[0].id", is(notNullValue())))
+				.andExpect(jsonPath("$.results[1].status", is(equalTo("CONFLICT"))));
+	}
+
+	/**
+	 * Creates posts in bulk. Negative, User role (403 Forbidden) and an invalid
+	 * post (400 Bad request)
+	 */
+	@Test
+	@Order(22)
+	@WithMockUser(username = "admin", password = "admin", roles = "ADMIN")
+	void createPostsTestNegativeInvalidPost() throws Exception {
+		String POSTFIX = "/bulk";
+		CreatePostDto createPostDto = new CreatePostDto();
+		createPostDto.setTitle("P");
+		createPostDto.setDescription("PostDescription-Bulk");
+		createPostDto.setContent("PostContent-Bulk");
+		BulkCreatePostsDto bulkCreatePostsDto = new BulkCreatePostsDto();
+		bulkCreatePostsDto.setPosts(List.of(createPostDto));
+
+		mockMvc.perform(post(BASE_URI + POSTFIX).contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(bulkCreatePostsDto))).andExpect(status().isBadRequest());
+
+		createPostDto.setTitle("PostTitle-Forbidden");
+		mockMvc.perform(post(BASE_URI + POSTFIX).with(user("user").roles("USER"))
+				.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(bulkCreatePostsDto)))
+				.andExpect(status().isForbidden());
+	}
+
+	/**
+	 * Exports all the posts (Admin role), positive (200 OK)
+	 */
+	@Test
+	@Order(23)
+	@WithMockUser(username = "admin", password = "admin", roles = "ADMIN")
+	void exportPostsTestPositive() throws Exception {
+		String POSTFIX = "/export";
+
+		MvcResult mvcResult = mockMvc.perform(get(BASE_URI + POSTFIX)).andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_NDJSON)).andReturn().getResponse()
+				.getContentAsString();
+
+		String[] lines = body.split("\n");
+		assertThat(lines.length).isGreaterThanOrEqualTo(5); // see data.sql
+		JsonNode secondPost = objectMapper.readTree(lines[1]);
+		assertThat(secondPost.path("id").asInt()).isEqualTo(2);
+		assertThat(secondPost.path("comments")).hasSize(2);
+	}
+
+	/**
+	 * Imports posts from newline-delimited JSON (Admin role), positive (200 OK)
+	 */
+	@Test
+	@Order(24)
+	@WithMockUser(username = "admin", password = "admin", roles = "ADMIN")
+	void importPostsTestPositive() throws Exception {
+		String POSTFIX = "/import";
+		String ndjson = "{\"title\":\"PostTitle-Import\",\"description\":\"PostDescription-Import\",\"content\":\"PostContent-Import\"}\n"
+				+ "{\"title\":\"PostTitle-1\",\"description\":\"PostDescription\",\"content\":\"PostContent\"}\n";
+
+		mockMvc.perform(post(BASE_URI + POSTFIX).contentType(MediaType.APPLICATION_NDJSON).content(ndjson))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.lines", is(equalTo(2))))
+				.andExpect(jsonPath("$.importedPosts", is(equalTo(1))))
+				.andExpect(jsonPath("$.failedLines", is(equalTo(1))))
+				.andExpect(jsonPath("$.errors[0].line", is(equalTo(2))));
+	}
+
+	/**
+	 * Searches the posts (User role), positive (200 OK)
+	 */
+	@Test
+	@Order(25)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void searchPostsTestPositive() throws Exception {
+		String POSTFIX = "/search";
+
+		mockMvc.perform(get(BASE_URI + POSTFIX).param("q", "PostTitle-4 Patched").param("pageSize", "3"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.pageSize", is(equalTo(3))))
+				.andExpect(jsonPath("$.posts.length()", is(equalTo(3))))
+				.andExpect(jsonPath("$.posts[0].id", is(equalTo(4))))
+				.andExpect(jsonPath("$.posts[0].title", is(equalTo("PostTitle-4 Patched")))) // see partiallyUpdatePostByIdTestPositive
+				.andExpect(jsonPath("$.posts[0].score", is(notNullValue())))
+				.andExpect(jsonPath("$.posts[0].content").doesNotExist());
+	}
+
+	/**
+	 * Searches the posts (User role). Negative, empty query (400 Bad request)
+	 */
+	@Test
+	@Order(26)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void searchPostsTestNegativeEmptyQuery() throws Exception {
+		String POSTFIX = "/search?q=";
+
+		mockMvc.perform(get(BASE_URI + POSTFIX)).andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.code", is(equalTo(400))));
+	}
+
+	/**
+	 * Suggests titles by prefix (User role), positive (200 OK)
+	 */
+	@Test
+	@Order(27)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void suggestTitlesTestPositive() throws Exception {
+		String POSTFIX = "/titles?prefix=posttitle-1&limit=2";
+
+		mockMvc.perform(get(BASE_URI + POSTFIX)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.taken", is(equalTo(false))))
+				.andExpect(jsonPath("$.suggestions.length()", is(equalTo(1))))
+				.andExpect(jsonPath("$.suggestions[0].id", is(equalTo(1))))
+				.andExpect(jsonPath("$.suggestions[0].title", is(equalTo("PostTitle-1")))); // see data.sql
+
+		mockMvc.perform(get(BASE_URI + "/titles?prefix=PostTitle-1")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.taken", is(equalTo(true))));
+	}
+
+	/**
+	 * Suggests titles by prefix (User role). Negative, empty prefix (400 Bad
+	 * request)
+	 */
+	@Test
+	@Order(28)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void suggestTitlesTestNegativeEmptyPrefix() throws Exception {
+		String POSTFIX = "/titles?prefix=";
+
+		mockMvc.perform(get(BASE_URI + POSTFIX)).andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.code", is(equalTo(400))));
+	}
+
+	/**
+	 * Retrieves a post by id (User role), positive, the view is counted and the
+	 * posts are sorted by the flushed view counts (200 OK)
+	 */
+	@Test
+	@Order(29)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void getPostByIdTestPositiveViewCount() throws Exception {
+		int postId = 2; // see data.sql
+		postViewCounter.flush();
+		for (int i = 0; i < 1000; i++) {
+			postViewCounter.record(postId);
+		}
+
+		mockMvc.perform(get(BASE_URI + "/" + postId)).andExpect(status().isOk());
+		postViewCounter.flush();
+
+		String POSTFIX = "?view=summary&sortBy=viewCount&sortDir=desc&pageSize=1";
+		mockMvc.perform(get(BASE_URI + POSTFIX)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.posts[0].id", is(equalTo(postId))))
+				.andExpect(jsonPath("$.posts[0].viewCount", is(equalTo(1001))));
+		// The view counter is not indexed, no keyset pages
+		mockMvc.perform(get(BASE_URI + POSTFIX + "&cursor=")).andExpect(status().isBadRequest());
+	}
+
+	/**
+	 * Retrieves the trending posts (User role), positive (200 OK)
+	 */
+	@Test
+	@Order(30)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void getTrendingPostsTestPositive() throws Exception {
+		int postId = 3; // see data.sql
+		trendingPosts.record(postId, 1000, System.currentTimeMillis());
+		mockMvc.perform(get(BASE_URI + "/" + postId)).andExpect(status().isOk());
+		trendingPosts.refresh();
+
+		String POSTFIX = "/trending?limit=1";
+		mockMvc.perform(get(BASE_URI + POSTFIX)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.refreshedAt", is(notNullValue())))
+				.andExpect(jsonPath("$.posts.length()", is(equalTo(1))))
+				.andExpect(jsonPath("$.posts[0].id", is(equalTo(postId))))
+				.andExpect(jsonPath("$.posts[0].title", is(notNullValue())));
+
+		mockMvc.perform(get(BASE_URI + "/trending?limit=0")).andExpect(status().isBadRequest());
+	}
+
+	/**
+	 * Retrieves a post by id with the conditional headers (User role), not
+	 * modified until a comment is added to the post (304 Not modified, 200 OK)
+	 */
+	@Test
+	@Order(31)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void getPostByIdTestPositiveNotModified() throws Exception {
+		int postId = 1; // see data.sql
+		MvcResult mvcResult = mockMvc.perform(get(BASE_URI + "/" + postId)).andExpect(status().isOk())
+				.andExpect(header().exists(HttpHeaders.ETAG)).andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+				.andReturn();
+		String etag = mvcResult.getResponse().getHeader(HttpHeaders.ETAG);
+		String lastModified = mvcResult.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+		mockMvc.perform(get(BASE_URI + "/" + postId).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified()).andExpect(header().string(HttpHeaders.ETAG, etag))
+				.andExpect(content().string(""));
+		mockMvc.perform(get(BASE_URI + "/" + postId).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+				.andExpect(status().isNotModified());
+
+		CreateCommentDto createCommentDto = new CreateCommentDto();
+		createCommentDto.setName("CommentName-ETag");
+		createCommentDto.setEmail("etag@email.com");
+		createCommentDto.setBody("CommentBody-ETag");
+		mockMvc.perform(post("/api/v1/posts/" + postId + "/comments").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(createCommentDto))).andExpect(status().isCreated());
+
+		mvcResult = mockMvc.perform(get(BASE_URI + "/" + postId).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk()).andReturn();
+		assertThat(mvcResult.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+		mockMvc.perform(get(BASE_URI + "/" + postId).header(HttpHeaders.IF_NONE_MATCH,
+				mvcResult.getResponse().getHeader(HttpHeaders.ETAG))).andExpect(status().isNotModified());
+
+		mockMvc.perform(get(BASE_URI + "/1000").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotFound());
+	}
+
+	/**
+	 * Patches a post with If-Match (User role), positive with the current ETag,
+	 * negative with the old one (200 OK, 412 Precondition failed)
+	 */
+	@Test
+	@Order(32)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void patchPostTestIfMatch() throws Exception {
+		int postId = 1; // see data.sql
+		String etag = mockMvc.perform(get(BASE_URI + "/" + postId)).andExpect(status().isOk()).andReturn()
+				.getResponse().getHeader(HttpHeaders.ETAG);
+
+		PatchPostDto patchPostDto = new PatchPostDto();
+		patchPostDto.setFieldName("setDescription");
+		patchPostDto.setFieldValue("PostDescription If-Match");
+		String newEtag = mockMvc
+				.perform(patch(BASE_URI + "/" + postId).header(HttpHeaders.IF_MATCH, etag)
+						.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(patchPostDto)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.description", is(equalTo(patchPostDto.getFieldValue())))).andReturn()
+				.getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(newEtag).isNotEqualTo(etag);
+
+		mockMvc.perform(patch(BASE_URI + "/" + postId).header(HttpHeaders.IF_MATCH, etag)
+				.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(patchPostDto)))
+				.andExpect(status().isPreconditionFailed()).andExpect(jsonPath("$.code", is(equalTo(412))));
+		mockMvc.perform(patch(BASE_URI + "/" + postId).header(HttpHeaders.IF_MATCH, "\"c1-v0\"")
+				.contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(patchPostDto)))
+				.andExpect(status().isPreconditionFailed());
+		mockMvc.perform(get(BASE_URI + "/" + postId).header(HttpHeaders.IF_NONE_MATCH, newEtag))
+				.andExpect(status().isNotModified());
+	}
+
+	/**
+	 * Updates two fields of a post with a merge patch (User role), positive (200
+	 * OK), negative when a field is removed (400 Bad request)
+	 */
+	@Test
+	@Order(33)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void mergePatchPostTestPositive() throws Exception {
+		int postId = 1; // see data.sql
+		String mergePatch = "{\"description\": \"PostDescription Merged\", \"content\": \"PostContent Merged\"}";
+
+		mockMvc.perform(patch(BASE_URI + "/" + postId).contentType("application/merge-patch+json").content(mergePatch))
+				.andExpect(status().isOk()).andExpect(header().exists(HttpHeaders.ETAG))
+				.andExpect(jsonPath("$.title", is(equalTo("PostTitle-1"))))
+				.andExpect(jsonPath("$.description", is(equalTo("PostDescription Merged"))))
+				.andExpect(jsonPath("$.content", is(equalTo("PostContent Merged"))));
+
+		mockMvc.perform(patch(BASE_URI + "/" + postId).contentType("application/merge-patch+json")
+				.content("{\"title\": null}")).andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.code", is(equalTo(400))));
+		mockMvc.perform(get(BASE_URI + "/" + postId)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.title", is(equalTo("PostTitle-1"))));
+	}
+
+	/**
+	 * Retrieves all the posts (User role), the page size is capped (200 OK)
+	 */
+	@Test
+	@Order(34)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void getAllPostsTestPositivePageSizeCapped() throws Exception {
+		mockMvc.perform(get(BASE_URI).param("pageSize", "100000")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.pageSize", is(equalTo(PostDefaults.MAX_PAGE_SIZE))));
+		mockMvc.perform(get(BASE_URI).param("pageSize", "100000").param("cursor", "")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.pageSize", is(equalTo(PostDefaults.MAX_PAGE_SIZE))));
+	}
+
+	/**
+	 * Retrieves a post twice (User role), positive (200 OK). The ETag of a cached
+	 * post costs no statement, the version is only looked up for a conditional
+	 * request
+	 */
+	@Test
+	@Order(35)
+	@WithMockUser(username = "user", password = "user", roles = "USER")
+	void getPostByIdTestPositiveCachedEtag() throws Exception {
+		int postId = 2; // see data.sql
+		String etag = mockMvc.perform(get(BASE_URI + "/" + postId)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.version").doesNotExist()).andReturn().getResponse()
+				.getHeader(HttpHeaders.ETAG);
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		try {
+			statistics.clear();
+			mockMvc.perform(get(BASE_URI + "/" + postId)).andExpect(status().isOk())
+					.andExpect(header().string(HttpHeaders.ETAG, etag));
+			assertThat(statistics.getPrepareStatementCount()).isZero();
+
+			mockMvc.perform(get(BASE_URI + "/" + postId).header(HttpHeaders.IF_NONE_MATCH, etag))
+					.andExpect(status().isNotModified());
+			assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+	}
 }
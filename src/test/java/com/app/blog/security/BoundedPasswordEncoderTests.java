@@ -0,0 +1,120 @@
+package com.app.blog.security;
+
+import com.app.blog.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class contains tests of the bounded password encoder, without the
+ * application context
+ */
+public class BoundedPasswordEncoderTests {
+	/**
+	 * Hashes and verifies a password on the pool, positive
+	 */
+	@Test
+	public void matchesTestPositive() {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 1, 1, 5000,
+				meterRegistry);
+		try {
+			String encodedPassword = encoder.encode("user");
+			assertThat(encoder.matches("user", encodedPassword)).isTrue();
+			assertThat(encoder.matches("admin", encodedPassword)).isFalse();
+			assertThat(meterRegistry.get("executor").tag("name", BoundedPasswordEncoder.EXECUTOR_NAME).timer()
+					.count()).isEqualTo(3);
+		} finally {
+			encoder.destroy();
+		}
+	}
+
+	/**
+	 * Hashes more passwords than the threads and the queue hold, negative, the
+	 * next hash is rejected at once (503 Service unavailable) and the queued ones
+	 * complete
+	 */
+	@Test
+	public void encodeTestNegativeQueueFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder(release), 1, 1, 5000,
+				meterRegistry);
+		ExecutorService clients = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> running = clients.submit(() -> encoder.encode("first"));
+			Future<String> queued = clients.submit(() -> encoder.encode("second"));
+			long deadline = System.currentTimeMillis() + 5000;
+			while (encoder.getQueueSize() < 1 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+			assertThat(meterRegistry.get("executor.queued").tag("name", BoundedPasswordEncoder.EXECUTOR_NAME).gauge()
+					.value()).isEqualTo(1);
+
+			ServiceUnavailableException actualException = assertThrows(ServiceUnavailableException.class,
+					() -> encoder.encode("third"));
+			assertThat(actualException.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+			assertThat(actualException.getRetryAfterSeconds()).isPositive();
+			assertThat(meterRegistry.get("executor.rejected").counter().count()).isEqualTo(1);
+
+			release.countDown();
+			assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("{noop}first");
+			assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("{noop}second");
+		} finally {
+			release.countDown();
+			clients.shutdown();
+			encoder.destroy();
+		}
+	}
+
+	/**
+	 * Waits longer than the timeout for a hash, negative (503 Service unavailable)
+	 */
+	@Test
+	public void encodeTestNegativeTimeout() {
+		CountDownLatch release = new CountDownLatch(1);
+		BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder(release), 1, 1, 50,
+				new SimpleMeterRegistry());
+		try {
+			assertThrows(ServiceUnavailableException.class, () -> encoder.encode("slow"));
+		} finally {
+			release.countDown();
+			encoder.destroy();
+		}
+	}
+
+	// Hashes only once released, to hold the threads of the pool
+	private static class BlockingPasswordEncoder implements PasswordEncoder {
+		private final CountDownLatch release;
+
+		private BlockingPasswordEncoder(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public String encode(CharSequence rawPassword) {
+			try {
+				release.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			return "{noop}" + rawPassword;
+		}
+
+		@Override
+		public boolean matches(CharSequence rawPassword, String encodedPassword) {
+			return encode(rawPassword).equals(encodedPassword);
+		}
+	}
+}
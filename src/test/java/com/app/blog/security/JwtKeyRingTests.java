@@ -0,0 +1,118 @@
+package com.app.blog.security;
+
+import com.app.blog.exception.BlogApiException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.security.KeyPair;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * This class contains tests of the Jwt signing keys and their rotation,
+ * without the application context
+ */
+public class JwtKeyRingTests {
+	private static final String JWT_SECRET = "647ae4a005b6fe1eab42822419e609765bbd1bb60875dadf1ea9d19016ee50cc0236ec6f0dac8fb244f15dceb02d71584629330b4f9dac5a689619e9b71b8fc2";
+
+	private static final int EXPIRATION = 60_000;
+
+	/**
+	 * An ES256 token carries the kid of its key and is verified with the public
+	 * key only
+	 */
+	@Test
+	public void es256TestPositive() {
+		KeyPair keyPair = JwtKeyRing.generateEs256KeyPair();
+		JwtTokenProvider signer = new JwtTokenProvider(
+				JwtKeyRing.es256("key-1", keyPair.getPrivate(), Map.of("key-1", keyPair.getPublic()), null),
+				EXPIRATION);
+		String token = signer.generateToken("user-1@email.com");
+
+		JwsHeader<?> header = Jwts.parserBuilder().setSigningKey(keyPair.getPublic()).build().parseClaimsJws(token)
+				.getHeader();
+		assertThat(header.getAlgorithm()).isEqualTo("ES256");
+		assertThat(header.getKeyId()).isEqualTo("key-1");
+		assertThat(signer.validateAndGetClaims(token).getSubject()).isEqualTo("user-1@email.com");
+	}
+
+	/**
+	 * The old key keeps verifying its tokens after the new key signs, and is
+	 * rejected once removed from the ring. A node without the new public key
+	 * rejects the new tokens, so it is added everywhere before the switch
+	 */
+	@Test
+	public void rotationTestPositive() {
+		KeyPair oldKeyPair = JwtKeyRing.generateEs256KeyPair();
+		KeyPair newKeyPair = JwtKeyRing.generateEs256KeyPair();
+		JwtTokenProvider before = new JwtTokenProvider(
+				JwtKeyRing.es256("old", oldKeyPair.getPrivate(), Map.of("old", oldKeyPair.getPublic()), null),
+				EXPIRATION);
+		JwtTokenProvider during = new JwtTokenProvider(JwtKeyRing.es256("new", newKeyPair.getPrivate(),
+				Map.of("old", oldKeyPair.getPublic(), "new", newKeyPair.getPublic()), null), EXPIRATION);
+		JwtTokenProvider after = new JwtTokenProvider(
+				JwtKeyRing.es256("new", newKeyPair.getPrivate(), Map.of("new", newKeyPair.getPublic()), null),
+				EXPIRATION);
+		String oldToken = before.generateToken("user-1@email.com");
+		String newToken = during.generateToken("user-1@email.com");
+
+		assertThat(during.validateAndGetClaims(oldToken).getSubject()).isEqualTo("user-1@email.com");
+		assertThatThrownBy(() -> before.validateAndGetClaims(newToken)).isInstanceOf(BlogApiException.class)
+				.hasMessage("Unsupported Jwt token");
+		assertThat(after.validateAndGetClaims(newToken).getSubject()).isEqualTo("user-1@email.com");
+		assertThatThrownBy(() -> after.validateAndGetClaims(oldToken)).isInstanceOf(BlogApiException.class)
+				.hasMessage("Unsupported Jwt token");
+	}
+
+	/**
+	 * The HS512 tokens issued before the switch to ES256 are accepted only if
+	 * configured
+	 */
+	@Test
+	public void hs512TokensAfterSwitchTestPositive() {
+		String hs512Token = new JwtTokenProvider(JWT_SECRET, EXPIRATION).generateToken("user-1@email.com");
+		KeyPair keyPair = JwtKeyRing.generateEs256KeyPair();
+		SecretKey hmacKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(JWT_SECRET));
+
+		JwtTokenProvider accepting = new JwtTokenProvider(
+				JwtKeyRing.es256("key-1", keyPair.getPrivate(), Map.of("key-1", keyPair.getPublic()), hmacKey),
+				EXPIRATION);
+		JwtTokenProvider rejecting = new JwtTokenProvider(
+				JwtKeyRing.es256("key-1", keyPair.getPrivate(), Map.of("key-1", keyPair.getPublic()), null),
+				EXPIRATION);
+
+		assertThat(accepting.validateAndGetClaims(hs512Token).getSubject()).isEqualTo("user-1@email.com");
+		assertThatThrownBy(() -> rejecting.validateAndGetClaims(hs512Token)).isInstanceOf(BlogApiException.class)
+				.hasMessage("Unsupported Jwt token");
+	}
+
+	/**
+	 * The keys of the properties are Base64 encoded, the signing key must have its
+	 * public key in the ring
+	 */
+	@Test
+	public void fromPropertiesTestPositive() {
+		KeyPair keyPair = JwtKeyRing.generateEs256KeyPair();
+		String privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+		String publicKey = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+
+		JwtKeyRing keyRing = JwtKeyRing.fromProperties(JWT_SECRET, "ES256", "key-1", privateKey,
+				"key-0=" + publicKey + ", key-1=" + publicKey, false);
+		String token = new JwtTokenProvider(keyRing, EXPIRATION).generateToken("user-1@email.com");
+		assertThat(Jwts.parserBuilder().setSigningKey(keyPair.getPublic()).build().parseClaimsJws(token).getBody()
+				.getSubject()).isEqualTo("user-1@email.com");
+
+		assertThatThrownBy(
+				() -> JwtKeyRing.fromProperties(JWT_SECRET, "ES256", "key-2", privateKey, "key-1=" + publicKey, false))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> JwtKeyRing.fromProperties(JWT_SECRET, "RS256", "", "", "", false))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
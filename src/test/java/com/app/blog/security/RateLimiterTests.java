@@ -0,0 +1,118 @@
+package com.app.blog.security;
+
+import com.app.blog.security.RateLimiter.RouteClass;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * This class contains tests of the rate limiter and its filter, without the
+ * application context
+ */
+public class RateLimiterTests {
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Takes the tokens of a client, positive until the budget is spent, then
+	 * again after the refill. The clients and the route classes do not share
+	 * their budgets
+	 */
+	@Test
+	public void tryAcquireTestPositive() {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		RateLimiter rateLimiter = new RateLimiter(3, 1, 3, 1, 3, 1, 1000, meterRegistry);
+		long now = System.nanoTime();
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(rateLimiter.tryAcquire(RouteClass.READ, "user:user", now)).isZero();
+		}
+		assertThat(rateLimiter.tryAcquire(RouteClass.READ, "user:user", now)).isEqualTo(SECOND);
+		assertThat(rateLimiter.tryAcquire(RouteClass.READ, "user:admin", now)).isZero();
+		assertThat(rateLimiter.tryAcquire(RouteClass.WRITE, "user:user", now)).isZero();
+
+		assertThat(rateLimiter.tryAcquire(RouteClass.READ, "user:user", now + SECOND / 2)).isEqualTo(SECOND / 2);
+		assertThat(rateLimiter.tryAcquire(RouteClass.READ, "user:user", now + SECOND)).isZero();
+		assertThat(rateLimiter.tryAcquire(RouteClass.READ, "user:user", now + SECOND)).isPositive();
+		assertThat(meterRegistry.get("rate.limit.rejected").tag("route", "read").counter().count()).isEqualTo(3);
+		assertThat(rateLimiter.trackedClients(RouteClass.READ)).isEqualTo(2);
+	}
+
+	/**
+	 * Takes the tokens of one client from several threads at once, positive, no
+	 * more tokens are taken than the capacity
+	 */
+	@Test
+	public void tryAcquireTestPositiveConcurrent() throws Exception {
+		RateLimiter rateLimiter = new RateLimiter(1, 1, 100, 0.001, 1, 1, 1000, new SimpleMeterRegistry());
+		long now = System.nanoTime();
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> clients = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				clients.add(executor.submit(() -> {
+					int acquired = 0;
+					for (int j = 0; j < 1000; j++) {
+						if (rateLimiter.tryAcquire(RouteClass.READ, "ip:127.0.0.1", now) == 0) {
+							acquired++;
+						}
+					}
+					return acquired;
+				}));
+			}
+
+			int acquired = 0;
+			for (Future<Integer> client : clients) {
+				acquired += client.get();
+			}
+			assertThat(acquired).isEqualTo(100);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Filters the requests of an anonymous client, negative once its read budget
+	 * is spent (429 Too many requests), the auth budget is separate
+	 */
+	@Test
+	public void doFilterTestNegativeTooManyRequests() throws Exception {
+		RateLimiter rateLimiter = new RateLimiter(1, 0.001, 1, 0.001, 1, 0.001, 1000, new SimpleMeterRegistry());
+		RateLimitFilter rateLimitFilter = new RateLimitFilter(rateLimiter, new ObjectMapper());
+
+		MockHttpServletResponse response = filter(rateLimitFilter, "GET", "/api/v1/posts");
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+
+		response = filter(rateLimitFilter, "GET", "/api/v1/posts/1");
+		assertThat(response.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+		assertThat(Long.parseLong(response.getHeader(HttpHeaders.RETRY_AFTER))).isPositive();
+		assertThat(response.getContentAsString()).contains("errorMessage");
+
+		assertThat(filter(rateLimitFilter, "POST", "/api/v1/auth/login").getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(filter(rateLimitFilter, "POST", "/api/v1/posts").getStatus()).isEqualTo(HttpStatus.OK.value());
+		assertThat(filter(rateLimitFilter, "POST", "/api/v1/posts").getStatus())
+				.isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+	}
+
+	private MockHttpServletResponse filter(RateLimitFilter rateLimitFilter, String method, String uri)
+			throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		rateLimitFilter.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+}
@@ -0,0 +1,96 @@
+package com.app.blog.security;
+
+import com.app.blog.entity.RevokedToken;
+import com.app.blog.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * This class contains tests of the Bloom filter and the token revocation list,
+ * without the application context
+ */
+public class TokenRevocationListTests {
+
+	/**
+	 * An added id is always found, an id never added is found with about the
+	 * configured false positive rate
+	 */
+	@Test
+	public void bloomFilterTestPositive() {
+		int insertions = 10_000;
+		BloomFilter bloomFilter = new BloomFilter(insertions, 0.01);
+		for (int i = 0; i < insertions; i++) {
+			bloomFilter.add("revoked-" + i);
+		}
+
+		for (int i = 0; i < insertions; i++) {
+			assertThat(bloomFilter.mightContain("revoked-" + i)).isTrue();
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < insertions; i++) {
+			if (bloomFilter.mightContain(UUID.randomUUID().toString())) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives).isLessThan(insertions * 3 / 100);
+	}
+
+	/**
+	 * A revoked id is found at once and stored, the ids never revoked (and the
+	 * tokens without an id) are not
+	 */
+	@Test
+	public void revokeTestPositive() {
+		RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+		TokenRevocationList tokenRevocationList = new TokenRevocationList(repository, 1000, 0.01, 10_000);
+		String jti = UUID.randomUUID().toString();
+
+		assertThat(tokenRevocationList.isRevoked(jti)).isFalse();
+		tokenRevocationList.revoke(jti, Instant.now().plusSeconds(60));
+
+		assertThat(tokenRevocationList.isRevoked(jti)).isTrue();
+		assertThat(tokenRevocationList.isRevoked(UUID.randomUUID().toString())).isFalse();
+		assertThat(tokenRevocationList.isRevoked(null)).isFalse();
+		verify(repository).save(any(RevokedToken.class));
+	}
+
+	/**
+	 * A sync loads the revocations of the other instances and forgets the expired
+	 * ones, without a query per check
+	 */
+	@Test
+	public void syncTestPositive() {
+		RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+		TokenRevocationList tokenRevocationList = new TokenRevocationList(repository, 1000, 0.01, 10_000);
+		String remote = UUID.randomUUID().toString();
+		String expiring = UUID.randomUUID().toString();
+		tokenRevocationList.revoke(expiring, Instant.now().plusMillis(50));
+		when(repository.findByRevokedAtGreaterThanEqualAndExpiresAtAfter(any(), any()))
+				.thenReturn(List.of(new RevokedToken(remote, Instant.now().plusSeconds(60), Instant.now())));
+
+		assertThat(tokenRevocationList.isRevoked(remote)).isFalse();
+		assertThat(tokenRevocationList.sync()).isEqualTo(1);
+		assertThat(tokenRevocationList.isRevoked(remote)).isTrue();
+		assertThat(tokenRevocationList.isRevoked(expiring)).isTrue();
+
+		when(repository.findByRevokedAtGreaterThanEqualAndExpiresAtAfter(any(), any())).thenReturn(List.of());
+		Instant expiration = Instant.now().plusMillis(100);
+		while (Instant.now().isBefore(expiration)) {
+			Thread.onSpinWait();
+		}
+		tokenRevocationList.sync();
+		assertThat(tokenRevocationList.isRevoked(expiring)).isFalse();
+		assertThat(tokenRevocationList.isRevoked(remote)).isTrue();
+		verify(repository, never()).findById(any());
+	}
+}
@@ -2,6 +2,8 @@ package com.app.blog.service;
 
 import com.app.blog.dto.comment.CommentDto;
 import com.app.blog.dto.comment.CreateCommentDto;
+import com.app.blog.dto.comment.ResponseCommentCursorPagesDto;
+import com.app.blog.dto.comment.ResponseCommentPagesDto;
 import com.app.blog.dto.post.CreatePostDto;
 import com.app.blog.dto.post.ResponsePostDto;
 import com.app.blog.entity.Post;
@@ -10,9 +12,14 @@ import com.app.blog.exception.PostCommentMismatchException;
 import com.app.blog.exception.ResourceNotFoundException;
 import com.app.blog.repository.CommentRepository;
 import com.app.blog.repository.PostRepository;
+import com.app.blog.scheduling.CommentCountRepairJob;
 import com.app.blog.service.impl.CommentServiceImpl;
 import com.app.blog.service.impl.PostServiceImpl;
+import com.app.blog.views.TrendingPosts;
 
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -20,11 +27,19 @@ import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -48,6 +63,21 @@ public class CommentServiceTests {
 	@Autowired
 	PostRepository postRepository;
 
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	CommentCountRepairJob commentCountRepairJob;
+
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@Autowired
+	TrendingPosts trendingPosts;
+
 	/**
 	 * Creates new post, positive
 	 */
@@ -99,7 +129,7 @@ public class CommentServiceTests {
 	@Order(3)
 	public void getCommentsByPostIdTestPositive() {
 		long postId = 1; // see data.sql
-		List<CommentDto> commentDtoList = commentService.getCommentsByPostId(postId);
+		List<CommentDto> commentDtoList = commentService.getCommentsByPostId(postId, 0, 10).getComments();
 		CommentDto comment1 = commentDtoList.get(0);
 		CommentDto comment2 = commentDtoList.get(1);
 		assertThat(commentDtoList.size()).isEqualTo(2);
@@ -119,7 +149,7 @@ public class CommentServiceTests {
 	@Order(4)
 	public void getCommentsByPostIdTestPositiveEmpty() {
 		long postId = 3; // see data.sql
-		List<CommentDto> commentDtoList = commentService.getCommentsByPostId(postId);
+		List<CommentDto> commentDtoList = commentService.getCommentsByPostId(postId, 0, 10).getComments();
 		assertThat(commentDtoList).isEqualTo(Collections.EMPTY_LIST);
 	}
 
@@ -133,7 +163,7 @@ public class CommentServiceTests {
 		ResourceNotFoundException expectedException = new ResourceNotFoundException("Post", "id", wrongPostId);
 
 		ResourceNotFoundException actualException = assertThrows(ResourceNotFoundException.class, () -> {
-			commentService.getCommentsByPostId(wrongPostId);
+			commentService.getCommentsByPostId(wrongPostId, 0, 10);
 		});
 		assertThat(actualException.getStatus()).isEqualTo(expectedException.getStatus());
 		assertThat(actualException.getMessage()).isEqualTo(expectedException.getMessage());
@@ -221,7 +251,7 @@ public class CommentServiceTests {
 		updateBodyDto.setEmail("email-3-updated@email.com");
 		updateBodyDto.setBody("CommentBody-3 Updated");
 
-		CommentDto updatedComment = commentService.updateCommentById(postId, commentId, updateBodyDto);
+		CommentDto updatedComment = commentService.updateCommentById(postId, commentId, updateBodyDto, null);
 		assertThat(updatedComment.getId()).isEqualTo(commentId);
 		assertThat(updatedComment.getName()).isEqualTo(updateBodyDto.getName());
 		assertThat(updatedComment.getEmail()).isEqualTo(updateBodyDto.getEmail());
@@ -243,7 +273,7 @@ public class CommentServiceTests {
 		ResourceNotFoundException expectedException = new ResourceNotFoundException("Post", "id", wrongPostId);
 
 		ResourceNotFoundException actualException = assertThrows(ResourceNotFoundException.class, () -> {
-			commentService.updateCommentById(wrongPostId, randomCommentId, updateBodyDto);
+			commentService.updateCommentById(wrongPostId, randomCommentId, updateBodyDto, null);
 		});
 		assertThat(actualException.getStatus()).isEqualTo(expectedException.getStatus());
 		assertThat(actualException.getMessage()).isEqualTo(expectedException.getMessage());
@@ -264,7 +294,7 @@ public class CommentServiceTests {
 		ResourceNotFoundException expectedException = new ResourceNotFoundException("Comment", "id", wrongCommentId);
 
 		ResourceNotFoundException actualException = assertThrows(ResourceNotFoundException.class, () -> {
-			commentService.updateCommentById(postId, wrongCommentId, updateBodyDto);
+			commentService.updateCommentById(postId, wrongCommentId, updateBodyDto, null);
 		});
 		assertThat(actualException.getStatus()).isEqualTo(expectedException.getStatus());
 		assertThat(actualException.getMessage()).isEqualTo(expectedException.getMessage());
@@ -287,4 +317,247 @@ public class CommentServiceTests {
 		assertThat(actualException.getStatus()).isEqualTo(expectedException.getStatus());
 		assertThat(actualException.getMessage()).isEqualTo(expectedException.getMessage());
 	}
+
+	/**
+	 * Creates new comment, positive. The post cached with its comments is evicted
+	 */
+	@Test
+	@Order(14)
+	public void createCommentTestPositiveEvictsPost() {
+		long postId = 3; // see data.sql
+		int commentsBefore = postService.getPostById(postId).getComments().size();
+
+		CreateCommentDto createCommentDto = new CreateCommentDto();
+		createCommentDto.setName("CommentName-6");
+		createCommentDto.setEmail("email-6@email.com");
+		createCommentDto.setBody("CommentBody-6");
+		CommentDto commentDto = commentService.createComment(postId, createCommentDto);
+
+		ResponsePostDto responsePostDto = postService.getPostById(postId);
+		assertThat(responsePostDto.getComments()).hasSize(commentsBefore + 1);
+		assertThat(responsePostDto.getComments()).extracting(CommentDto::getId).contains(commentDto.getId());
+	}
+
+	/**
+	 * Retrieves comments by post id page by page, offset and cursor modes give the
+	 * same comments
+	 */
+	@Test
+	@Order(15)
+	public void getCommentsByPostIdTestPositivePages() {
+		long postId = 1; // see data.sql, comments 1 and 2
+
+		ResponseCommentPagesDto firstPage = commentService.getCommentsByPostId(postId, 0, 1);
+		assertThat(firstPage.getTotalElements()).isEqualTo(2);
+		assertThat(firstPage.getTotalPages()).isEqualTo(2);
+		assertThat(firstPage.isLast()).isFalse();
+		assertThat(firstPage.getComments()).extracting(CommentDto::getId).containsExactly(1L);
+		ResponseCommentPagesDto secondPage = commentService.getCommentsByPostId(postId, 1, 1);
+		assertThat(secondPage.isLast()).isTrue();
+		assertThat(secondPage.getComments()).extracting(CommentDto::getId).containsExactly(2L);
+
+		ResponseCommentCursorPagesDto firstCursorPage = commentService.getCommentsByPostIdByCursor(postId, "", 1);
+		assertThat(firstCursorPage.isLast()).isFalse();
+		assertThat(firstCursorPage.getNextCursor()).isNotNull();
+		assertThat(firstCursorPage.getComments()).extracting(CommentDto::getId).containsExactly(1L);
+		ResponseCommentCursorPagesDto secondCursorPage = commentService.getCommentsByPostIdByCursor(postId,
+				firstCursorPage.getNextCursor(), 1);
+		assertThat(secondCursorPage.isLast()).isTrue();
+		assertThat(secondCursorPage.getNextCursor()).isNull();
+		assertThat(secondCursorPage.getComments()).extracting(CommentDto::getId).containsExactly(2L);
+	}
+
+	/**
+	 * Retrieves comments by post id by cursor. Negative, no post with given id,
+	 * invalid cursor and page size
+	 */
+	@Test
+	@Order(16)
+	public void getCommentsByPostIdByCursorTestNegative() {
+		long wrongPostId = 100L;
+		ResourceNotFoundException notFoundException = assertThrows(ResourceNotFoundException.class, () -> {
+			commentService.getCommentsByPostIdByCursor(wrongPostId, "", 10);
+		});
+		assertThat(notFoundException.getStatus()).isEqualTo(HttpStatus.NOT_FOUND);
+
+		BlogApiException cursorException = assertThrows(BlogApiException.class, () -> {
+			commentService.getCommentsByPostIdByCursor(1, "not a cursor", 10);
+		});
+		assertThat(cursorException.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(cursorException.getMessage()).isEqualTo("Invalid cursor");
+
+		BlogApiException pageSizeException = assertThrows(BlogApiException.class, () -> {
+			commentService.getCommentsByPostIdByCursor(1, "", 0);
+		});
+		assertThat(pageSizeException.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * Retrieves comment by id with a single statement, the errors are only resolved
+	 * on a miss
+	 */
+	@Test
+	@Order(17)
+	public void getCommentByIdTestPositiveSingleStatement() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		try {
+			statistics.clear();
+			CommentDto commentDto = commentService.getCommentById(1, 1); // see data.sql
+			assertThat(commentDto.getName()).isEqualTo("CommentName-1");
+			assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+
+		long postId = 2;
+		long commentId = 1;
+		PostCommentMismatchException actualException = assertThrows(PostCommentMismatchException.class, () -> {
+			commentService.deleteComment(postId, commentId);
+		});
+		assertThat(actualException.getMessage())
+				.isEqualTo(new PostCommentMismatchException(postId, commentId).getMessage());
+		assertThat(commentRepository.existsById(commentId)).isTrue();
+	}
+
+	/**
+	 * Repairs the drifted comment counters set-wise, positive
+	 */
+	@Test
+	@Order(18)
+	public void repairCommentCountsTestPositive() {
+		List<Long> postIds = List.of(1L, 3L); // see data.sql
+		jdbcTemplate.update("update posts set comment_count = 100 where id in (1, 3)");
+
+		assertThat(commentCountRepairJob.repair()).isEqualTo(postIds.size());
+		for (long postId : postIds) {
+			long commentCount = commentRepository.findByPostId(postId).size();
+			assertThat(postRepository.findById(postId).get().getCommentCount()).isEqualTo(commentCount);
+		}
+		assertThat(commentCountRepairJob.repair()).isZero();
+
+		// The startup run, e.g. after the counter column was added with zeros
+		jdbcTemplate.update("update posts set comment_count = 0 where id = 1");
+		commentCountRepairJob.repairOnStartup();
+		assertThat(postRepository.findById(1L).get().getCommentCount())
+				.isEqualTo(commentRepository.findByPostId(1L).size());
+	}
+
+	/**
+	 * Creates and deletes comments of one post in parallel, the comment counter
+	 * matches the comments. The context is dirtied, as the comment ids are used
+	 */
+	@Test
+	@Order(19)
+	@DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+	public void commentCountTestConcurrentCreateAndDelete() throws Exception {
+		CreatePostDto createPostDto = new CreatePostDto();
+		createPostDto.setTitle("PostTitle-Counter");
+		createPostDto.setDescription("PostDescription");
+		createPostDto.setContent("PostContent");
+		long postId = postService.createPost(createPostDto).getId();
+		int threads = 8;
+		int commentsPerThread = 25;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Callable<List<Long>>> creators = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				creators.add(() -> {
+					List<Long> ids = new ArrayList<>();
+					for (int j = 0; j < commentsPerThread; j++) {
+						CreateCommentDto createCommentDto = new CreateCommentDto();
+						createCommentDto.setName("CommentName-Counter");
+						createCommentDto.setEmail("email-counter@email.com");
+						createCommentDto.setBody("CommentBody-Counter");
+						ids.add(commentService.createComment(postId, createCommentDto).getId());
+					}
+					return ids;
+				});
+			}
+			List<Long> commentIds = new ArrayList<>();
+			for (Future<List<Long>> created : executor.invokeAll(creators)) {
+				commentIds.addAll(created.get());
+			}
+			assertThat(postService.getPostById(postId).getCommentCount()).isEqualTo(threads * commentsPerThread);
+
+			List<Callable<Void>> deleters = new ArrayList<>();
+			for (Long commentId : commentIds.subList(0, commentIds.size() / 2)) {
+				deleters.add(() -> {
+					commentService.deleteComment(postId, commentId);
+					return null;
+				});
+			}
+			for (Future<Void> deleted : executor.invokeAll(deleters)) {
+				deleted.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		long commentCount = commentRepository.findByPostId(postId).size();
+		assertThat(commentCount).isEqualTo(threads * commentsPerThread / 2);
+		assertThat(postRepository.findById(postId).get().getCommentCount()).isEqualTo(commentCount);
+		assertThat(postService.getPostById(postId).getCommentCount()).isEqualTo(commentCount);
+		postService.deletePost(postId);
+	}
+
+	/**
+	 * Retrieves the comments by post id, positive. The version of the post comes
+	 * with the page, in the statement of the comments
+	 */
+	@Test
+	@Order(20)
+	public void getCommentsByPostIdTestPositivePostVersion() {
+		long postId = 2; // see data.sql
+		Post post = postRepository.findById(postId).get();
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		try {
+			statistics.clear();
+			ResponseCommentCursorPagesDto commentsDto = commentService.getCommentsByPostIdByCursor(postId, "", 10);
+			assertThat(commentsDto.getComments()).isNotEmpty();
+			assertThat(commentsDto.getPostVersion()).isEqualTo(post.getVersion());
+			assertThat(commentsDto.getPostLastModified()).isEqualTo(post.getLastModified());
+			assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+
+		ResponseCommentPagesDto emptyPageDto = commentService.getCommentsByPostId(postId, 100, 10);
+		assertThat(emptyPageDto.getComments()).isEmpty();
+		assertThat(emptyPageDto.getPostVersion()).isEqualTo(post.getVersion());
+	}
+
+	/**
+	 * Creates a comment in a transaction rolled back, positive. Only a committed
+	 * comment counts for the trending posts
+	 */
+	@Test
+	@Order(21)
+	public void createCommentTestRolledBackNotTrending() {
+		CreatePostDto createPostDto = new CreatePostDto();
+		createPostDto.setTitle("TrendingRolledBackPostTitle");
+		createPostDto.setDescription("TrendingRolledBackPostDescription");
+		createPostDto.setContent("TrendingRolledBackPostContent");
+		long postId = postService.createPost(createPostDto).getId();
+
+		CreateCommentDto createCommentDto = new CreateCommentDto();
+		createCommentDto.setName("CommentName-Trending");
+		createCommentDto.setEmail("trending@email.com");
+		createCommentDto.setBody("CommentBody-Trending");
+		transactionTemplate.executeWithoutResult(status -> {
+			commentService.createComment(postId, createCommentDto);
+			status.setRollbackOnly();
+		});
+		trendingPosts.refresh();
+		assertThat(trendingPosts.snapshot().getPosts()).extracting(post -> post.getSummary().getId())
+				.doesNotContain(postId);
+
+		commentService.createComment(postId, createCommentDto);
+		trendingPosts.refresh();
+		assertThat(trendingPosts.snapshot().getPosts()).extracting(post -> post.getSummary().getId())
+				.contains(postId);
+	}
 }
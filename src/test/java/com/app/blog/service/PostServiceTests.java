@@ -3,28 +3,74 @@ package com.app.blog.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.app.blog.cache.CacheConfiguration;
+import com.app.blog.dto.post.BulkCreatePostResultDto;
 import com.app.blog.dto.post.CreatePostDto;
 import com.app.blog.dto.post.DeletePostDto;
+import com.app.blog.dto.post.ImportErrorDto;
 import com.app.blog.dto.post.PatchPostDto;
+import com.app.blog.dto.post.PostDto;
+import com.app.blog.dto.post.PostSearchHitDto;
+import com.app.blog.dto.post.PostSummaryDto;
+import com.app.blog.dto.post.ResponseBulkCreatePostsDto;
+import com.app.blog.dto.post.ResponseImportPostsDto;
+import com.app.blog.dto.post.ResponsePostCursorPagesDto;
 import com.app.blog.dto.post.ResponsePostDto;
 import com.app.blog.dto.post.ResponsePostPagesDto;
+import com.app.blog.dto.post.ResponsePostSearchPagesDto;
+import com.app.blog.dto.post.ResponsePostSummaryCursorPagesDto;
+import com.app.blog.dto.post.ResponsePostSummaryPagesDto;
+import com.app.blog.dto.post.ResponseTitleSuggestionsDto;
+import com.app.blog.dto.post.ResponseTrendingPostsDto;
+import com.app.blog.dto.post.TitleSuggestionDto;
+import com.app.blog.dto.post.TrendingPostDto;
 import com.app.blog.dto.post.UpdatePostDto;
+import com.app.blog.entity.Post;
 import com.app.blog.exception.AlreadyExistsException;
 import com.app.blog.exception.BlogApiException;
+import com.app.blog.exception.PreconditionFailedException;
 import com.app.blog.exception.ResourceNotFoundException;
 import com.app.blog.repository.CommentRepository;
 import com.app.blog.repository.PostRepository;
 import com.app.blog.service.impl.PostServiceImpl;
+import com.app.blog.views.PostViewCounter;
+import com.app.blog.views.TrendingPosts;
+
+import jakarta.persistence.EntityManagerFactory;
 
 /**
  * This class contains tests of the service methods for Post resource. It
@@ -42,6 +88,27 @@ public class PostServiceTests {
 	@Autowired
 	private PostServiceImpl postService;
 
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PostImportService postImportService;
+
+	@Autowired
+	private PostViewCounter postViewCounter;
+
+	@Autowired
+	private TrendingPosts trendingPosts;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
 	private int totalPosts = 5; // see data.sql
 
 	private int newPostId = 6; // as 5 created within data.sql during initialization
@@ -185,7 +252,7 @@ public class PostServiceTests {
 		expectedPost.setDescription("PostDescription Updated");
 		expectedPost.setContent("PostContent Updated");
 
-		ResponsePostDto actualPost = postService.updatePost(expectedPost, postId);
+		ResponsePostDto actualPost = postService.updatePost(expectedPost, postId, null);
 		assertThat(actualPost.getId()).isEqualTo(postId);
 		assertThat(actualPost.getTitle()).isEqualTo(expectedPost.getTitle());
 		assertThat(actualPost.getDescription()).isEqualTo(expectedPost.getDescription());
@@ -205,7 +272,7 @@ public class PostServiceTests {
 		expectedPost.setContent("PostContent Updated");
 
 		ResourceNotFoundException actualException = assertThrows(ResourceNotFoundException.class, () -> {
-			postService.updatePost(expectedPost, wrongId);
+			postService.updatePost(expectedPost, wrongId, null);
 		});
 		ResourceNotFoundException expectedException = new ResourceNotFoundException("Post", "id", wrongId);
 		assertThat(actualException.getMessage()).isEqualTo(expectedException.getMessage());
@@ -225,7 +292,7 @@ public class PostServiceTests {
 		expectedPost.setContent("PostContent Updated");
 
 		AlreadyExistsException actualException = assertThrows(AlreadyExistsException.class, () -> {
-			postService.updatePost(expectedPost, postId);
+			postService.updatePost(expectedPost, postId, null);
 		});
 		AlreadyExistsException expectedException = new AlreadyExistsException("Post", "title", expectedPost.getTitle());
 		assertThat(actualException.getMessage()).isEqualTo(expectedException.getMessage());
@@ -248,7 +315,7 @@ public class PostServiceTests {
 		String expectedContent = "PostContent";
 		String expectedDescription = "PostDescription";
 
-		ResponsePostDto actualPost = postService.partialUpdatePost(postId, expectedPatch);
+		ResponsePostDto actualPost = postService.partialUpdatePost(postId, expectedPatch, null);
 		assertThat(actualPost.getId()).isEqualTo(postId);
 		assertThat(actualPost.getTitle()).isEqualTo(expectedTitle);
 		assertThat(actualPost.getDescription()).isEqualTo(expectedDescription);
@@ -271,7 +338,7 @@ public class PostServiceTests {
 		String expectedContent = "PostContent Patched";
 		String expectedDescription = "PostDescription";
 
-		ResponsePostDto actualPost = postService.partialUpdatePost(postId, expectedPatch);
+		ResponsePostDto actualPost = postService.partialUpdatePost(postId, expectedPatch, null);
 		assertThat(actualPost.getId()).isEqualTo(postId);
 		assertThat(actualPost.getTitle()).isEqualTo(expectedTitle);
 		assertThat(actualPost.getDescription()).isEqualTo(expectedDescription);
@@ -294,7 +361,7 @@ public class PostServiceTests {
 		String expectedContent = "PostContent Patched";
 		String expectedDescription = "PostDescription Patched";
 
-		ResponsePostDto actualPost = postService.partialUpdatePost(postId, expectedPatch);
+		ResponsePostDto actualPost = postService.partialUpdatePost(postId, expectedPatch, null);
 		assertThat(actualPost.getId()).isEqualTo(postId);
 		assertThat(actualPost.getTitle()).isEqualTo(expectedTitle);
 		assertThat(actualPost.getDescription()).isEqualTo(expectedDescription);
@@ -315,7 +382,7 @@ public class PostServiceTests {
 		expectedPatch.setFieldValue("PostTitle-1"); // already exists with post_id=1
 
 		AlreadyExistsException actualException = assertThrows(AlreadyExistsException.class, () -> {
-			postService.partialUpdatePost(postId, expectedPatch);
+			postService.partialUpdatePost(postId, expectedPatch, null);
 		});
 		AlreadyExistsException expectedException = new AlreadyExistsException("Post", "title",
 				expectedPatch.getFieldValue());
@@ -337,7 +404,7 @@ public class PostServiceTests {
 		expectedPatch.setFieldValue("Value");
 
 		ResourceNotFoundException actualException = assertThrows(ResourceNotFoundException.class, () -> {
-			postService.partialUpdatePost(wrongPostId, expectedPatch);
+			postService.partialUpdatePost(wrongPostId, expectedPatch, null);
 		});
 		ResourceNotFoundException expectedException = new ResourceNotFoundException("Post", "id", wrongPostId);
 		assertThat(actualException.getMessage()).isEqualTo(expectedException.getMessage());
@@ -358,7 +425,7 @@ public class PostServiceTests {
 		expectedPatch.setFieldValue("Value");
 
 		BlogApiException actualException = assertThrows(BlogApiException.class, () -> {
-			postService.partialUpdatePost(wrongPostId, expectedPatch);
+			postService.partialUpdatePost(wrongPostId, expectedPatch, null);
 		});
 		assertThat(actualException.getMessage()).isNotNull();
 		assertThat(actualException.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
@@ -400,4 +467,766 @@ public class PostServiceTests {
 		assertThat(actualException.getMessage()).isEqualTo(expectedException.getMessage());
 		assertThat(actualException.getStatus()).isEqualTo(expectedException.getStatus());
 	}
+
+	/**
+	 * Retrieves all posts with a cursor, positive (walks every page)
+	 */
+	@Test
+	@Order(18)
+	public void getAllPostsByCursorTestPositive() {
+		int pageSize = 2;
+		String sortBy = "id";
+		String sortDir = "asc";
+
+		ResponsePostCursorPagesDto firstPage = postService.getAllPostsByCursor("", pageSize, sortBy, sortDir);
+		assertThat(firstPage.getPageSize()).isEqualTo(pageSize);
+		assertThat(firstPage.isLast()).isFalse();
+		assertThat(firstPage.getNextCursor()).isNotEmpty();
+		assertThat(firstPage.getPosts()).extracting(PostDto::getId).containsExactly(1L, 2L);
+
+		ResponsePostCursorPagesDto secondPage = postService.getAllPostsByCursor(firstPage.getNextCursor(), pageSize,
+				sortBy, sortDir);
+		assertThat(secondPage.isLast()).isFalse();
+		assertThat(secondPage.getPosts()).extracting(PostDto::getId).containsExactly(3L, 4L);
+
+		ResponsePostCursorPagesDto lastPage = postService.getAllPostsByCursor(secondPage.getNextCursor(), pageSize,
+				sortBy, sortDir);
+		assertThat(lastPage.isLast()).isTrue();
+		assertThat(lastPage.getNextCursor()).isNull();
+		assertThat(lastPage.getPosts()).extracting(PostDto::getId).containsExactly(5L);
+	}
+
+	/**
+	 * Retrieves all posts with a cursor, positive (descending by title)
+	 */
+	@Test
+	@Order(19)
+	public void getAllPostsByCursorTestPositiveSortByTitleDesc() {
+		int pageSize = 3;
+		String sortBy = "title";
+		String sortDir = "desc";
+
+		ResponsePostCursorPagesDto firstPage = postService.getAllPostsByCursor("", pageSize, sortBy, sortDir);
+		ResponsePostCursorPagesDto lastPage = postService.getAllPostsByCursor(firstPage.getNextCursor(), pageSize,
+				sortBy, sortDir);
+
+		List<String> titles = new ArrayList<>();
+		firstPage.getPosts().forEach(post -> titles.add(post.getTitle()));
+		lastPage.getPosts().forEach(post -> titles.add(post.getTitle()));
+		assertThat(lastPage.isLast()).isTrue();
+		assertThat(titles).hasSize(totalPosts);
+		assertThat(titles).isSortedAccordingTo(Comparator.reverseOrder());
+	}
+
+	/**
+	 * Retrieves all posts with a cursor. Negative, cursor issued for other sorting
+	 * parameters
+	 */
+	@Test
+	@Order(20)
+	public void getAllPostsByCursorTestNegativeCursorMismatch() {
+		ResponsePostCursorPagesDto firstPage = postService.getAllPostsByCursor("", 2, "id", "asc");
+
+		BlogApiException actualException = assertThrows(BlogApiException.class, () -> {
+			postService.getAllPostsByCursor(firstPage.getNextCursor(), 2, "title", "asc");
+		});
+		assertThat(actualException.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * Retrieves all posts, positive. Regression test for N+1 comment loading: a
+	 * page costs the same amount of statements whatever its size is
+	 */
+	@Test
+	@Order(21)
+	public void getAllPostsStatementCountTest() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		try {
+			for (int pageSize = 1; pageSize <= totalPosts; pageSize++) {
+				statistics.clear();
+				ResponsePostPagesDto actualPosts = postService.getAllPosts(0, pageSize, "id", "asc");
+				actualPosts.getPosts().forEach(post -> assertThat(post.getComments()).isNotNull());
+				// ids + count + posts with comments
+				assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+
+				statistics.clear();
+				ResponsePostCursorPagesDto actualCursorPosts = postService.getAllPostsByCursor("", pageSize, "id",
+						"asc");
+				actualCursorPosts.getPosts().forEach(post -> assertThat(post.getComments()).isNotNull());
+				// ids + posts with comments
+				assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+			}
+
+			ResponsePostPagesDto actualPosts = postService.getAllPosts(0, totalPosts, "id", "asc");
+			assertThat(actualPosts.getPosts().get(0).getComments()).hasSize(2); // see data.sql
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+	}
+
+	/**
+	 * Retrieves all post summaries, positive. Neither posts nor comments are
+	 * loaded as entities
+	 */
+	@Test
+	@Order(22)
+	public void getAllPostSummariesTestPositive() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		try {
+			statistics.clear();
+			ResponsePostSummaryPagesDto actualPosts = postService.getAllPostSummaries(0, 2, "id", "asc");
+
+			assertThat(actualPosts.getTotalElements()).isEqualTo(totalPosts);
+			assertThat(actualPosts.getTotalPages()).isEqualTo(3);
+			assertThat(actualPosts.isLast()).isFalse();
+			assertThat(actualPosts.getPosts()).extracting(PostSummaryDto::getId).containsExactly(1L, 2L);
+			assertThat(actualPosts.getPosts().get(0).getTitle()).isEqualTo("PostTitle-1");
+			assertThat(actualPosts.getPosts().get(0).getDescription()).isEqualTo("PostDescription");
+			assertThat(actualPosts.getPosts()).extracting(PostSummaryDto::getCommentCount).containsExactly(2L, 2L);
+			assertThat(statistics.getEntityLoadCount()).isZero();
+			assertThat(statistics.getCollectionLoadCount()).isZero();
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+	}
+
+	/**
+	 * Retrieves all post summaries with a cursor, positive (walks every page)
+	 */
+	@Test
+	@Order(23)
+	public void getAllPostSummariesByCursorTestPositive() {
+		List<Long> ids = new ArrayList<>();
+		String cursor = "";
+		ResponsePostSummaryCursorPagesDto page;
+		do {
+			page = postService.getAllPostSummariesByCursor(cursor, 2, "id", "desc");
+			page.getPosts().forEach(post -> ids.add(post.getId()));
+			cursor = page.getNextCursor();
+		} while (!page.isLast());
+
+		assertThat(ids).containsExactly(5L, 4L, 3L, 2L, 1L);
+	}
+
+	/**
+	 * Retrieves post by id, positive. The second read is served from the cache,
+	 * and an update evicts the post
+	 */
+	@Test
+	@Order(24)
+	public void getPostByIdTestPositiveCached() {
+		long postId = 2; // see data.sql
+		@SuppressWarnings("unchecked")
+		Cache<Object, Object> postsCache = (Cache<Object, Object>) cacheManager.getCache(CacheConfiguration.POSTS).getNativeCache();
+		postsCache.invalidateAll();
+		long hits = postsCache.stats().hitCount();
+		long misses = postsCache.stats().missCount();
+
+		ResponsePostDto firstPost = postService.getPostById(postId);
+		ResponsePostDto cachedPost = postService.getPostById(postId);
+		assertThat(cachedPost).isEqualTo(firstPost);
+		assertThat(postsCache.stats().missCount()).isEqualTo(misses + 1);
+		assertThat(postsCache.stats().hitCount()).isEqualTo(hits + 1);
+
+		UpdatePostDto updatePostDto = new UpdatePostDto();
+		updatePostDto.setDescription("PostDescription Cached");
+		postService.updatePost(updatePostDto, postId, null);
+		assertThat(postsCache.asMap()).doesNotContainKey(postId);
+
+		ResponsePostDto updatedPost = postService.getPostById(postId);
+		assertThat(updatedPost.getDescription()).isEqualTo(updatePostDto.getDescription());
+		assertThat(postsCache.stats().missCount()).isEqualTo(misses + 2);
+	}
+
+	/**
+	 * Creates posts in bulk, positive, conflicting titles are reported per post
+	 */
+	@Test
+	@Order(25)
+	public void createPostsTestPositive() {
+		List<CreatePostDto> createPostDtos = new ArrayList<>();
+		for (String title : List.of("PostTitle-Bulk-1", "PostTitle-1", "PostTitle-Bulk-2", "PostTitle-Bulk-1")) {
+			CreatePostDto createPostDto = new CreatePostDto();
+			createPostDto.setTitle(title);
+			createPostDto.setDescription("PostDescription-Bulk");
+			createPostDto.setContent("PostContent-Bulk");
+			createPostDtos.add(createPostDto);
+		}
+
+		ResponseBulkCreatePostsDto responseBulkCreatePostsDto = postService.createPosts(createPostDtos);
+
+		assertThat(responseBulkCreatePostsDto.getCreated()).isEqualTo(2);
+		assertThat(responseBulkCreatePostsDto.getConflicts()).isEqualTo(2); // "PostTitle-1", see data.sql
+		List<BulkCreatePostResultDto> results = responseBulkCreatePostsDto.getResults();
+		assertThat(results).extracting(BulkCreatePostResultDto::getStatus).containsExactly(
+				BulkCreatePostResultDto.Status.CREATED, BulkCreatePostResultDto.Status.CONFLICT,
+				BulkCreatePostResultDto.Status.CREATED, BulkCreatePostResultDto.Status.CONFLICT);
+		assertThat(results.get(1).getId()).isNull();
+		for (int i : new int[] { 0, 2 }) {
+			BulkCreatePostResultDto result = results.get(i);
+			assertThat(postRepository.findById(result.getId()).get().getTitle()).isEqualTo(result.getTitle());
+			postRepository.deleteById(result.getId());
+		}
+	}
+
+	/**
+	 * Exports all the posts as newline-delimited JSON, positive
+	 */
+	@Test
+	@Order(26)
+	public void exportPostsTestPositive() throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+		long exported = postService.exportPosts(outputStream);
+
+		String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+		assertThat(exported).isEqualTo(postRepository.count());
+		assertThat(lines).hasSize((int) exported);
+		JsonNode firstPost = objectMapper.readTree(lines[0]); // see data.sql
+		assertThat(firstPost.path("id").asLong()).isEqualTo(1);
+		assertThat(firstPost.path("title").asText()).isEqualTo("PostTitle-1");
+		assertThat(firstPost.path("comments")).hasSize(2);
+		assertThat(firstPost.path("comments").get(0).path("name").asText()).isEqualTo("CommentName-1");
+		assertThat(objectMapper.readTree(lines[2]).path("comments")).isEmpty();
+	}
+
+	/**
+	 * Imports posts with comments from newline-delimited JSON, invalid lines are
+	 * reported and skipped. The context is dirtied, so the next test class starts
+	 * from data.sql ids again
+	 */
+	@Test
+	@Order(27)
+	@DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+	public void importPostsTestPositive() throws IOException {
+		String ndjson = String.join("\n",
+				"{\"title\":\"PostTitle-Import-1\",\"description\":\"PostDescription-Import\",\"content\":\"PostContent-Import\","
+						+ "\"comments\":[{\"name\":\"CommentName-Import\",\"email\":\"email-import@email.com\",\"body\":\"CommentBody-Import\"},"
+						+ "{\"name\":\"CommentName-Import\",\"email\":\"email-import@email.com\",\"body\":\"CommentBody-Import\"}]}",
+				"{\"title\":\"P\",\"description\":\"PostDescription-Import\",\"content\":\"PostContent-Import\"}",
+				"",
+				"{\"title\":",
+				"{\"id\":1,\"title\":\"PostTitle-1\",\"description\":\"PostDescription\",\"content\":\"PostContent\"}",
+				"{\"title\":\"PostTitle-Import-1\",\"description\":\"PostDescription-Import\",\"content\":\"PostContent-Import\"}",
+				"{\"title\":\"PostTitle-Import-2\",\"description\":\"PostDescription-Import\",\"content\":\"PostContent-Import\"}");
+
+		ResponseImportPostsDto report = postImportService
+				.importPosts(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(report.getLines()).isEqualTo(7);
+		assertThat(report.getImportedPosts()).isEqualTo(2);
+		assertThat(report.getImportedComments()).isEqualTo(2);
+		assertThat(report.getFailedLines()).isEqualTo(4);
+		assertThat(report.getRowsPerSecond()).isPositive();
+		// Invalid title, malformed JSON, existing title (see data.sql), duplicate title
+		assertThat(report.getErrors()).extracting(ImportErrorDto::getLine).containsExactlyInAnyOrder(2L, 4L, 5L, 6L);
+
+		Post importedPost = postRepository.findByTitle("PostTitle-Import-1").get();
+		assertThat(commentRepository.findByPostId(importedPost.getId())).hasSize(2);
+		postRepository.deleteById(importedPost.getId());
+		postRepository.deleteById(postRepository.findByTitle("PostTitle-Import-2").get().getId());
+	}
+
+	/**
+	 * Searches the posts, positive, the index follows create, patch, update and
+	 * delete, a title match ranks above a content match
+	 */
+	@Test
+	@Order(28)
+	public void searchPostsTestPositive() throws Exception {
+		ResponsePostSearchPagesDto seeded = postService.searchPosts("PostTitle 3", 0, 2);
+		assertThat(seeded.getTotalElements()).isEqualTo(5); // every title has "posttitle", see data.sql
+		assertThat(seeded.getTotalPages()).isEqualTo(3);
+		assertThat(seeded.isLast()).isFalse();
+		assertThat(seeded.getPosts()).hasSize(2);
+		assertThat(seeded.getPosts().get(0).getId()).isEqualTo(3);
+
+		CreatePostDto createPostDto = new CreatePostDto();
+		createPostDto.setTitle("PostTitle Search Kotlin");
+		createPostDto.setDescription("PostDescription");
+		createPostDto.setContent("PostContent");
+		long titleMatchId = postService.createPost(createPostDto).getId();
+		createPostDto.setTitle("PostTitle Search Java");
+		createPostDto.setContent("PostContent about Kotlin coroutines");
+		long contentMatchId = postService.createPost(createPostDto).getId();
+
+		ResponsePostSearchPagesDto found = postService.searchPosts("KOTLIN", 0, 10);
+		assertThat(found.getPosts()).extracting(PostSearchHitDto::getId).containsExactly(titleMatchId,
+				contentMatchId);
+		assertThat(found.getPosts().get(0).getScore()).isGreaterThan(found.getPosts().get(1).getScore());
+		assertThat(found.getPosts().get(0).getTitle()).isEqualTo("PostTitle Search Kotlin");
+
+		PatchPostDto patchPostDto = new PatchPostDto();
+		patchPostDto.setFieldName("setContent");
+		patchPostDto.setFieldValue("PostContent about Scala");
+		postService.partialUpdatePost(contentMatchId, patchPostDto, null);
+		assertThat(postService.searchPosts("kotlin", 0, 10).getPosts()).extracting(PostSearchHitDto::getId)
+				.containsExactly(titleMatchId);
+		assertThat(postService.searchPosts("scala", 0, 10).getPosts()).extracting(PostSearchHitDto::getId)
+				.containsExactly(contentMatchId);
+
+		UpdatePostDto updatePostDto = new UpdatePostDto();
+		updatePostDto.setTitle("PostTitle Search Groovy");
+		postService.updatePost(updatePostDto, titleMatchId, null);
+		assertThat(postService.searchPosts("kotlin", 0, 10).getTotalElements()).isZero();
+		assertThat(postService.searchPosts("groovy", 0, 10).getPosts()).hasSize(1);
+
+		postService.deletePost(titleMatchId);
+		postService.deletePost(contentMatchId);
+		assertThat(postService.searchPosts("search", 0, 10).getTotalElements()).isZero();
+	}
+
+	/**
+	 * Searches the posts, negative, empty query and invalid page
+	 */
+	@Test
+	@Order(29)
+	public void searchPostsTestNegative() {
+		BlogApiException emptyQuery = assertThrows(BlogApiException.class, () -> postService.searchPosts(" ", 0, 10));
+		assertThat(emptyQuery.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThrows(BlogApiException.class, () -> postService.searchPosts("post", -1, 10));
+		assertThrows(BlogApiException.class, () -> postService.searchPosts("post", 0, 0));
+	}
+
+	/**
+	 * Suggests titles by prefix, positive, ignoring the case and following the
+	 * title changes. Neither the suggestions nor the duplicate title check query
+	 * the database
+	 */
+	@Test
+	@Order(30)
+	public void suggestTitlesTestPositive() {
+		CreatePostDto createPostDto = new CreatePostDto();
+		createPostDto.setTitle("PostTitle-Suggest");
+		createPostDto.setDescription("PostDescription");
+		createPostDto.setContent("PostContent");
+		long postId = postService.createPost(createPostDto).getId();
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		try {
+			statistics.clear();
+			ResponseTitleSuggestionsDto suggestions = postService.suggestTitles("posttitle-", 3);
+			assertThat(suggestions.isTaken()).isFalse();
+			assertThat(suggestions.getSuggestions()).extracting(TitleSuggestionDto::getTitle)
+					.containsExactly("PostTitle-1", "PostTitle-2", "PostTitle-3"); // see data.sql
+			assertThrows(AlreadyExistsException.class, () -> postService.createPost(createPostDto));
+			assertThat(statistics.getPrepareStatementCount()).isZero();
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+
+		assertThat(postService.suggestTitles("PostTitle-Suggest", 10).isTaken()).isTrue();
+		assertThat(postService.suggestTitles("POSTTITLE-S", 10).getSuggestions())
+				.extracting(TitleSuggestionDto::getId).containsExactly(postId);
+
+		UpdatePostDto updatePostDto = new UpdatePostDto();
+		updatePostDto.setTitle("PostTitle-Suggest-Updated");
+		postService.updatePost(updatePostDto, postId, null);
+		assertThat(postService.suggestTitles("PostTitle-Suggest", 10).isTaken()).isFalse();
+		assertThat(postService.suggestTitles("PostTitle-Suggest", 10).getSuggestions())
+				.extracting(TitleSuggestionDto::getTitle).containsExactly("PostTitle-Suggest-Updated");
+
+		postService.deletePost(postId);
+		assertThat(postService.suggestTitles("PostTitle-Suggest", 10).getSuggestions()).isEmpty();
+	}
+
+	/**
+	 * Suggests titles by prefix, negative, empty prefix and invalid limit
+	 */
+	@Test
+	@Order(31)
+	public void suggestTitlesTestNegative() {
+		assertThrows(BlogApiException.class, () -> postService.suggestTitles("", 10));
+		assertThrows(BlogApiException.class, () -> postService.suggestTitles("PostTitle", 0));
+	}
+
+	/**
+	 * Counts views from parallel threads while flushing concurrently, positive, no
+	 * view is lost. The views of a missing post are dropped
+	 */
+	@Test
+	@Order(32)
+	public void countViewsTestConcurrentFlush() throws Exception {
+		long postId = 2; // see data.sql
+		int threads = 8;
+		int viewsPerThread = 10000;
+		postViewCounter.flush();
+		long viewCount = postRepository.findById(postId).get().getViewCount();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch done = new CountDownLatch(threads);
+		try {
+			List<Future<?>> viewers = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				viewers.add(executor.submit(() -> {
+					for (int j = 0; j < viewsPerThread; j++) {
+						postViewCounter.record(postId);
+					}
+					done.countDown();
+				}));
+			}
+			while (done.getCount() > 0) {
+				postViewCounter.flush();
+			}
+			for (Future<?> viewer : viewers) {
+				viewer.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		postViewCounter.flush();
+
+		assertThat(postRepository.findById(postId).get().getViewCount())
+				.isEqualTo(viewCount + threads * viewsPerThread);
+		assertThat(postViewCounter.pending(postId)).isZero();
+
+		postViewCounter.record(100);
+		assertThat(postViewCounter.flush()).isEqualTo(1);
+		assertThat(postViewCounter.pending(100)).isZero();
+	}
+
+	/**
+	 * Retrieves the trending posts, positive, a comment outweighs a few views, old
+	 * activity is decayed, deleted posts are skipped and the amount of the tracked
+	 * posts is bounded
+	 */
+	@Test
+	@Order(33)
+	public void getTrendingPostsTestPositive() {
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < 3; i++) {
+			trendingPosts.recordView(1); // see data.sql
+		}
+		trendingPosts.recordComment(2);
+		for (int i = 0; i < 100; i++) {
+			trendingPosts.record(3, TrendingPosts.VIEW_WEIGHT, now - 2 * 60 * 60 * 1000); // 12 half-lives ago
+		}
+		trendingPosts.recordView(100);
+		trendingPosts.refresh();
+
+		ResponseTrendingPostsDto trending = postService.getTrendingPosts(3);
+		assertThat(trending.getRefreshedAt()).isNotNull();
+		assertThat(trending.getPosts()).extracting(TrendingPostDto::getId).containsExactly(2L, 1L, 3L);
+		assertThat(trending.getPosts().get(0).getTitle()).isEqualTo("PostTitle-2");
+		assertThat(trending.getPosts().get(2).getScore()).isLessThan(1);
+		assertThat(postService.getTrendingPosts(1).getPosts()).hasSize(1);
+		assertThrows(BlogApiException.class, () -> postService.getTrendingPosts(0));
+
+		for (long postId = 1000; postId < 11000; postId++) {
+			trendingPosts.recordView(postId);
+		}
+		assertThat(trendingPosts.trackedPosts()).isLessThanOrEqualTo(1024);
+	}
+
+	/**
+	 * Updates a post at the expected version, positive, the version is incremented
+	 * and an update based on the old version fails (412 Precondition failed), as
+	 * does saving a stale copy of the post
+	 */
+	@Test
+	@Order(34)
+	public void updatePostByIdTestVersion() throws Exception {
+		long postId = 1; // see data.sql
+		long version = postService.getPostVersion(postId).getVersion();
+		UpdatePostDto updatePostDto = new UpdatePostDto();
+		updatePostDto.setDescription("PostDescription Versioned");
+
+		ResponsePostDto updatedPost = postService.updatePost(updatePostDto, postId, version);
+		assertThat(updatedPost.getVersion()).isEqualTo(version + 1);
+		assertThat(updatedPost.getLastModified()).isNotNull();
+		assertThat(postService.getPostVersion(postId).getVersion()).isEqualTo(version + 1);
+
+		PatchPostDto patchPostDto = new PatchPostDto();
+		patchPostDto.setFieldName("setContent");
+		patchPostDto.setFieldValue("PostContent Versioned");
+		PreconditionFailedException actualException = assertThrows(PreconditionFailedException.class, () -> {
+			postService.partialUpdatePost(postId, patchPostDto, version);
+		});
+		assertThat(actualException.getStatus()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+		assertThat(postService.partialUpdatePost(postId, patchPostDto, version + 1).getVersion())
+				.isEqualTo(version + 2);
+
+		Post post = postRepository.findById(postId).get();
+		Post stalePost = postRepository.findById(postId).get();
+		post.setDescription("PostDescription Versioned Again");
+		postRepository.save(post);
+		stalePost.setContent("PostContent Lost");
+		assertThrows(OptimisticLockingFailureException.class, () -> postRepository.save(stalePost));
+		assertThat(postRepository.findById(postId).get().getContent()).isEqualTo("PostContent Versioned");
+	}
+
+	/**
+	 * Updates several fields of a post with a merge patch, positive, with one load
+	 * and one update. An unchanged value keeps the version, an unknown field, a
+	 * removed field or a too short value is rejected (400 Bad request)
+	 */
+	@Test
+	@Order(35)
+	public void mergePatchPostTestPositive() {
+		CreatePostDto createPostDto = new CreatePostDto();
+		createPostDto.setTitle("PostTitle-Merge");
+		createPostDto.setDescription("PostDescription");
+		createPostDto.setContent("PostContent");
+		long postId = postService.createPost(createPostDto).getId();
+
+		Map<String, Object> mergePatch = new LinkedHashMap<>();
+		mergePatch.put("title", "PostTitle-Merge-Patched");
+		mergePatch.put("content", "PostContent Merge Patched");
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		ResponsePostDto actualPost;
+		try {
+			statistics.clear();
+			actualPost = postService.mergePatchPost(postId, mergePatch, 0L);
+			assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+			assertThat(statistics.getEntityUpdateCount()).isEqualTo(1);
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+		assertThat(actualPost.getTitle()).isEqualTo("PostTitle-Merge-Patched");
+		assertThat(actualPost.getDescription()).isEqualTo("PostDescription");
+		assertThat(actualPost.getContent()).isEqualTo("PostContent Merge Patched");
+		assertThat(actualPost.getVersion()).isEqualTo(1);
+		assertThat(postService.suggestTitles("PostTitle-Merge", 10).getSuggestions())
+				.extracting(TitleSuggestionDto::getTitle).containsExactly("PostTitle-Merge-Patched");
+		assertThat(postService.searchPosts("merge patched", 0, 10).getPosts()).hasSize(1);
+
+		assertThat(postService.mergePatchPost(postId, Map.of("title", "PostTitle-Merge-Patched"), null).getVersion())
+				.isEqualTo(1);
+
+		Map<String, Object> removal = new LinkedHashMap<>();
+		removal.put("description", null);
+		List<Map<String, Object>> invalidPatches = List.of(Map.of("author", "Author"), removal,
+				Map.of("description", "Short"), Map.of("content", 42));
+		for (Map<String, Object> invalidPatch : invalidPatches) {
+			BlogApiException actualException = assertThrows(BlogApiException.class, () -> {
+				postService.mergePatchPost(postId, invalidPatch, null);
+			});
+			assertThat(actualException.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+		}
+		assertThrows(AlreadyExistsException.class,
+				() -> postService.mergePatchPost(postId, Map.of("title", "PostTitle-1"), null)); // see data.sql
+		assertThat(postService.getPostVersion(postId).getVersion()).isEqualTo(1);
+
+		postService.deletePost(postId);
+	}
+
+	/**
+	 * Retrieves all posts with a cursor. Negative, the columns without an index
+	 * cannot be seeked
+	 */
+	@Test
+	@Order(36)
+	public void getAllPostsByCursorTestNegativeUnindexedSortField() {
+		for (String sortBy : List.of("content", "description", "commentCount", "viewCount")) {
+			BlogApiException actualException = assertThrows(BlogApiException.class, () -> {
+				postService.getAllPostsByCursor("", 2, sortBy, "asc");
+			});
+			assertThat(actualException.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+		}
+	}
+
+	/**
+	 * Retrieves all post summaries. Negative, the content is not a column of the
+	 * summary, neither page mode sorts by it
+	 */
+	@Test
+	@Order(37)
+	public void getAllPostSummariesTestNegativeSortByContent() {
+		BlogApiException actualException = assertThrows(BlogApiException.class, () -> {
+			postService.getAllPostSummaries(0, 2, "content", "asc");
+		});
+		assertThat(actualException.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+		actualException = assertThrows(BlogApiException.class, () -> {
+			postService.getAllPostSummariesByCursor("", 2, "content", "asc");
+		});
+		assertThat(actualException.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
+	/**
+	 * Patches a post within a transaction, positive. The cached post is evicted
+	 * once the transaction commits, not before
+	 */
+	@Test
+	@Order(38)
+	public void mergePatchPostTestPositiveEvictedAfterCommit() {
+		long postId = 2; // see data.sql
+		@SuppressWarnings("unchecked")
+		Cache<Object, Object> postsCache = (Cache<Object, Object>) cacheManager.getCache(CacheConfiguration.POSTS)
+				.getNativeCache();
+		postService.getPostById(postId);
+		assertThat(postsCache.asMap()).containsKey(postId);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			postService.mergePatchPost(postId, Map.of("description", "PostDescription Committed"), null);
+			assertThat(postsCache.asMap()).containsKey(postId);
+		});
+		assertThat(postsCache.asMap()).doesNotContainKey(postId);
+		assertThat(postService.getPostById(postId).getDescription()).isEqualTo("PostDescription Committed");
+	}
+
+	/**
+	 * Streams the posts with their comments, positive. The content of a post is
+	 * read once, not once per comment
+	 */
+	@Test
+	@Order(39)
+	public void streamAllWithCommentsTestPositiveContentOnce() {
+		Map<Long, Integer> rowsByPost = new HashMap<>();
+		Map<Long, Integer> contentsByPost = new HashMap<>();
+		postRepository.streamAllWithComments(row -> {
+			long postId = row.getLong(PostRepository.POST_ID);
+			rowsByPost.merge(postId, 1, Integer::sum);
+			if (row.getString(PostRepository.POST_CONTENT) != null) {
+				contentsByPost.merge(postId, 1, Integer::sum);
+			}
+		});
+
+		assertThat(rowsByPost.get(1L)).isEqualTo(2); // see data.sql
+		assertThat(contentsByPost).hasSameSizeAs(rowsByPost).allSatisfy((postId, contents) -> {
+			assertThat(contents).isEqualTo(1);
+		});
+	}
+
+	/**
+	 * Counts the views, positive. The adder of a post not viewed since the
+	 * previous flush is dropped, the map does not grow with every post ever viewed
+	 */
+	@Test
+	@Order(40)
+	public void countViewsTestIdleAddersDropped() {
+		long postId = 3; // see data.sql
+		long viewCount = postRepository.findById(postId).get().getViewCount();
+		postViewCounter.record(postId);
+		postViewCounter.flush();
+		postViewCounter.flush();
+		assertThat(postViewCounter.trackedPosts()).isZero();
+
+		postViewCounter.record(postId);
+		postViewCounter.flush();
+		assertThat(postRepository.findById(postId).get().getViewCount()).isEqualTo(viewCount + 2);
+	}
+
+	/**
+	 * Updates and deletes a post in a transaction rolled back, positive. The title
+	 * suggestions only change once the transaction commits
+	 */
+	@Test
+	@Order(41)
+	public void updatePostTestRolledBackIndexUnchanged() {
+		CreatePostDto createPostDto = new CreatePostDto();
+		createPostDto.setTitle("RolledBackPostTitle");
+		createPostDto.setDescription("RolledBackPostDescription");
+		createPostDto.setContent("RolledBackPostContent");
+		long postId = postService.createPost(createPostDto).getId();
+
+		UpdatePostDto updatePostDto = new UpdatePostDto();
+		updatePostDto.setTitle("RolledBackPostTitle Renamed");
+		transactionTemplate.executeWithoutResult(status -> {
+			postService.updatePost(updatePostDto, postId, null);
+			status.setRollbackOnly();
+		});
+		assertThat(postService.suggestTitles("RolledBackPostTitle", 10).getSuggestions())
+				.extracting(TitleSuggestionDto::getTitle).containsExactly("RolledBackPostTitle");
+
+		transactionTemplate.executeWithoutResult(status -> {
+			postService.deletePost(postId);
+			status.setRollbackOnly();
+		});
+		assertThat(postService.suggestTitles("RolledBackPostTitle", 10).getSuggestions())
+				.extracting(TitleSuggestionDto::getTitle).containsExactly("RolledBackPostTitle");
+
+		postService.updatePost(updatePostDto, postId, null);
+		assertThat(postService.suggestTitles("RolledBackPostTitle", 10).getSuggestions())
+				.extracting(TitleSuggestionDto::getTitle).containsExactly("RolledBackPostTitle Renamed");
+	}
+
+	/**
+	 * Creates posts in bulk, positive, a title taken in another case conflicts
+	 * per post instead of failing the request on the unique index
+	 */
+	@Test
+	@Order(42)
+	public void createPostsTestPositiveCaseVariantConflicts() {
+		CreatePostDto existingPostDto = new CreatePostDto();
+		existingPostDto.setTitle("CaseVariantPostTitle");
+		existingPostDto.setDescription("CaseVariantPostDescription");
+		existingPostDto.setContent("CaseVariantPostContent");
+		long existingPostId = postService.createPost(existingPostDto).getId();
+
+		List<CreatePostDto> createPostDtos = new ArrayList<>();
+		for (String title : List.of("casevariantposttitle", "CaseVariant-Bulk", "CASEVARIANT-BULK")) {
+			CreatePostDto createPostDto = new CreatePostDto();
+			createPostDto.setTitle(title);
+			createPostDto.setDescription("PostDescription-Bulk");
+			createPostDto.setContent("PostContent-Bulk");
+			createPostDtos.add(createPostDto);
+		}
+
+		ResponseBulkCreatePostsDto responseBulkCreatePostsDto = postService.createPosts(createPostDtos);
+
+		assertThat(responseBulkCreatePostsDto.getResults()).extracting(BulkCreatePostResultDto::getStatus)
+				.containsExactly(BulkCreatePostResultDto.Status.CONFLICT, BulkCreatePostResultDto.Status.CREATED,
+						BulkCreatePostResultDto.Status.CONFLICT);
+		assertThat(postRepository.findIdsByTitles(List.of("CASEVARIANTPOSTTITLE")))
+				.containsEntry("casevariantposttitle", existingPostId);
+		postRepository.deleteById(responseBulkCreatePostsDto.getResults().get(1).getId());
+	}
+
+	/**
+	 * Imports posts, positive, a title taken in another case is reported on its
+	 * line instead of failing the import
+	 */
+	@Test
+	@Order(43)
+	public void importPostsTestPositiveCaseVariantReported() throws IOException {
+		CreatePostDto existingPostDto = new CreatePostDto();
+		existingPostDto.setTitle("ImportCaseVariantTitle");
+		existingPostDto.setDescription("ImportCaseVariantDescription");
+		existingPostDto.setContent("ImportCaseVariantContent");
+		postService.createPost(existingPostDto);
+
+		String ndjson = String.join("\n",
+				"{\"title\":\"importcasevarianttitle\",\"description\":\"PostDescription-Import\",\"content\":\"PostContent-Import\"}",
+				"{\"title\":\"Import-Case-1\",\"description\":\"PostDescription-Import\",\"content\":\"PostContent-Import\"}",
+				"{\"title\":\"IMPORT-CASE-1\",\"description\":\"PostDescription-Import\",\"content\":\"PostContent-Import\"}");
+
+		ResponseImportPostsDto report = postImportService
+				.importPosts(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(report.getImportedPosts()).isEqualTo(1);
+		// Existing title in another case, duplicate title in another case
+		assertThat(report.getErrors()).extracting(ImportErrorDto::getLine).containsExactlyInAnyOrder(1L, 3L);
+		postRepository.deleteById(postRepository.findByTitle("Import-Case-1").get().getId());
+	}
+
+	/**
+	 * Creates a post, negative. A title taken behind the title index violates the
+	 * title constraint (AlreadyExistsException), a violation of another constraint
+	 * is not reported as a taken title
+	 */
+	@Test
+	@Order(44)
+	public void createPostTestNegativeConstraintViolations() {
+		Post unindexedPost = new Post();
+		unindexedPost.setTitle("UnindexedPostTitle");
+		unindexedPost.setDescription("UnindexedPostDescription");
+		unindexedPost.setContent("UnindexedPostContent");
+		postRepository.save(unindexedPost);
+
+		CreatePostDto createPostDto = new CreatePostDto();
+		createPostDto.setTitle("UnindexedPostTitle");
+		createPostDto.setDescription("PostDescription");
+		createPostDto.setContent("PostContent");
+		assertThrows(AlreadyExistsException.class, () -> postService.createPost(createPostDto));
+
+		createPostDto.setTitle("TooLongPostDescription");
+		createPostDto.setDescription("PostDescription".repeat(100));
+		assertThrows(DataIntegrityViolationException.class, () -> postService.createPost(createPostDto));
+		postRepository.delete(unindexedPost);
+	}
 }
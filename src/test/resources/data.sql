@@ -8,6 +8,7 @@ insert into comments(name, email, body, post_id) values ('CommentName-1','email-
 insert into comments(name, email, body, post_id) values ('CommentName-2','email-2@email.com','CommentBody-2',1);
 insert into comments(name, email, body, post_id) values ('CommentName-3','email-3@email.com','CommentBody-3',2);
 insert into comments(name, email, body, post_id) values ('CommentName-4','email-4@email.com','CommentBody-4',2);
+update posts set comment_count = (select count(*) from comments where comments.post_id = posts.id);
 
 insert into roles(name) values ('ROLE_ADMIN'), ('ROLE_USER');
 